@@ -0,0 +1,169 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+/**
+ * Benchmark of inserts into a large table whose primary key is either a time-ordered UUID, as generated for relationships, or a random
+ * UUID, as generated by Hibernate's {@code uuid2} generator.
+ * <p>
+ * The table is seeded with {@code tableSize} rows using the same kind of key, and has a secondary index like the source indexes of the
+ * relationship table. Each operation inserts one row, in JDBC batches of {@value #BATCH_SIZE} rows. The size of the table and its indexes
+ * per row is printed after each trial. The benchmark runs against an H2 database file in {@code target} by default, which uses the B-tree page
+ * store since only that reports the disk space of a table. It can be pointed at MariaDB to see the effect on the InnoDB clustered index,
+ * e.g.
+ * {@code -p jdbcUrl=jdbc:mariadb://localhost/benchmark -p user=cosmos -p password=dev -p tableSize=5000000}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyOrderInsertBenchmark {
+
+    public static final int BATCH_SIZE = 1000;
+
+    private static final String TABLE = "key_order_benchmark";
+
+    public enum KeyOrder {
+        TIME_ORDERED,
+        RANDOM;
+
+        UUID newKey() {
+
+            return this == TIME_ORDERED ? UuidUtil.getNewUuid() : UUID.randomUUID();
+        }
+    }
+
+    @Param({ "TIME_ORDERED", "RANDOM" })
+    public KeyOrder keyOrder;
+
+    @Param({ "2000000" })
+    public int tableSize;
+
+    @Param({ "jdbc:h2:./target/key-order-benchmark;MV_STORE=FALSE" })
+    public String jdbcUrl;
+
+    @Param({ "" })
+    public String user;
+
+    @Param({ "" })
+    public String password;
+
+    private final UUID sourceId = UUID.randomUUID();
+
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BINARY(16) NOT NULL PRIMARY KEY, sourceId BINARY(16) NOT NULL, "
+                              + "created TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX " + TABLE + "_source_index ON " + TABLE + " (sourceId, created, id)");
+        }
+        connection.commit();
+
+        insert = connection.prepareStatement("INSERT INTO " + TABLE + " (id, sourceId, created) VALUES (?, ?, ?)");
+        for (int i = 0; i < tableSize; i += BATCH_SIZE) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+
+        // the table grows during the benchmark, so the size is compared per row
+        long rows = getRowCount();
+        long bytes = getTableSize();
+        System.out.printf("%n%s: %d bytes for %d rows, %.1f bytes per row%n", keyOrder, bytes, rows, (double) bytes / rows);
+
+        insert.close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + TABLE);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insert() throws SQLException {
+
+        insertBatch();
+    }
+
+    private void insertBatch() throws SQLException {
+
+        Timestamp created = new Timestamp(System.currentTimeMillis());
+        byte[] source = toBytes(sourceId);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setBytes(1, toBytes(keyOrder.newKey()));
+            insert.setBytes(2, source);
+            insert.setTimestamp(3, created);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    private long getRowCount() throws SQLException {
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private long getTableSize() throws SQLException {
+
+        String query = jdbcUrl.startsWith("jdbc:h2:")
+                       ? "CALL DISK_SPACE_USED('" + TABLE.toUpperCase() + "')"
+                       : "SELECT DATA_LENGTH + INDEX_LENGTH FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '"
+                         + TABLE + "'";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+}
@@ -0,0 +1,14 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceConfig;
+
+@EnableAutoConfiguration
+@Configuration
+@Import(RelationshipPersistenceConfig.class)
+public class RelationshipBenchmarkApplication {
+
+}
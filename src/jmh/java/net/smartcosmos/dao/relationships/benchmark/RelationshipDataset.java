@@ -0,0 +1,127 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService;
+import net.smartcosmos.dao.relationships.repository.RelationshipRepository;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+/**
+ * Embedded H2 database seeded with {@code datasetSize} relationships.
+ * <p>
+ * The relationships form a grid: each of the {@code datasetSize / fanOut} sources is related to the same {@code fanOut} targets, so
+ * a source has {@code fanOut} relationships and a target has {@code datasetSize / fanOut} relationships. Both parameters can be
+ * overridden on the JMH command line, e.g. {@code -p datasetSize=100000 -p fanOut=1000}.
+ */
+@State(Scope.Benchmark)
+public class RelationshipDataset {
+
+    public static final String TYPE = "Thing";
+    public static final String RELATIONSHIP_TYPE = "contains";
+
+    @Param({ "1000", "10000" })
+    public int datasetSize;
+
+    @Param({ "100" })
+    public int fanOut;
+
+    ConfigurableApplicationContext context;
+    RelationshipPersistenceService service;
+
+    final UUID tenantId = UuidUtil.getNewUuid();
+    final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    String[] sourceUrns;
+    String[] targetUrns;
+    String[] relationshipUrns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(RelationshipBenchmarkApplication.class)
+            .profiles("benchmark")
+            .run();
+        service = context.getBean(RelationshipPersistenceService.class);
+
+        int sourceCount = Math.max(1, datasetSize / fanOut);
+        UUID[] sourceIds = newUuids(sourceCount);
+        UUID[] targetIds = newUuids(fanOut);
+
+        List<RelationshipEntity> entities = new ArrayList<>(sourceCount * fanOut);
+        for (UUID sourceId : sourceIds) {
+            for (UUID targetId : targetIds) {
+                entities.add(RelationshipEntity.builder()
+                                 .tenantId(tenantId)
+                                 .sourceType(TYPE)
+                                 .sourceId(sourceId)
+                                 .relationshipType(RELATIONSHIP_TYPE)
+                                 .targetType(TYPE)
+                                 .targetId(targetId)
+                                 .build());
+            }
+        }
+        entities = context.getBean(RelationshipRepository.class)
+            .insertAll(entities);
+
+        sourceUrns = toThingUrns(sourceIds);
+        targetUrns = toThingUrns(targetIds);
+        relationshipUrns = entities.stream()
+            .map(entity -> UuidUtil.getRelationshipUrnFromUuid(entity.getId()))
+            .toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        context.close();
+    }
+
+    String randomSourceUrn() {
+
+        return sourceUrns[ThreadLocalRandom.current()
+            .nextInt(sourceUrns.length)];
+    }
+
+    String randomTargetUrn() {
+
+        return targetUrns[ThreadLocalRandom.current()
+            .nextInt(targetUrns.length)];
+    }
+
+    String randomRelationshipUrn() {
+
+        return relationshipUrns[ThreadLocalRandom.current()
+            .nextInt(relationshipUrns.length)];
+    }
+
+    private static UUID[] newUuids(int count) {
+
+        UUID[] uuids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            uuids[i] = UuidUtil.getNewUuid();
+        }
+        return uuids;
+    }
+
+    private static String[] toThingUrns(UUID[] uuids) {
+
+        String[] urns = new String[uuids.length];
+        for (int i = 0; i < uuids.length; i++) {
+            urns[i] = UuidUtil.getThingUrnFromUuid(uuids[i]);
+        }
+        return urns;
+    }
+}
@@ -0,0 +1,181 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipReference;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static net.smartcosmos.dao.relationships.benchmark.RelationshipDataset.RELATIONSHIP_TYPE;
+import static net.smartcosmos.dao.relationships.benchmark.RelationshipDataset.TYPE;
+
+/**
+ * Benchmarks of the {@link net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService} operations on a seeded
+ * {@link RelationshipDataset}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelationshipPersistenceServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PageSize {
+
+        @Param({ "10", "100" })
+        public int pageSize;
+    }
+
+    /**
+     * New relationships for each invocation of {@link #createAll(RelationshipDataset, Batch)} and
+     * {@link #createEach(RelationshipDataset, Batch)}.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+
+        @Param({ "10", "100", "1000" })
+        public int batchSize;
+
+        List<RelationshipCreate> relationships;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+
+            relationships = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                relationships.add(newRelationship());
+            }
+        }
+    }
+
+    /**
+     * A new relationship for each invocation of {@link #delete(RelationshipDataset, DeletableRelationship)}.
+     */
+    @State(Scope.Thread)
+    public static class DeletableRelationship {
+
+        String urn;
+
+        @Setup(Level.Invocation)
+        public void setUp(RelationshipDataset dataset) {
+
+            urn = dataset.service.create(dataset.tenantUrn, newRelationship())
+                .map(RelationshipResponse::getUrn)
+                .orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    /**
+     * Creates a relationship to a new target, so the dataset grows during the benchmark.
+     */
+    @Benchmark
+    public Optional<RelationshipResponse> create(RelationshipDataset dataset) {
+
+        return dataset.service.create(dataset.tenantUrn, newRelationship());
+    }
+
+    /**
+     * Creates a batch of relationships in one transaction with JDBC statement batching.
+     */
+    @Benchmark
+    public List<RelationshipCreateResult> createAll(RelationshipDataset dataset, Batch batch) {
+
+        return dataset.service.createAll(dataset.tenantUrn, batch.relationships);
+    }
+
+    /**
+     * Creates the same batch as {@link #createAll(RelationshipDataset, Batch)} one relationship at a time, each in its own transaction.
+     */
+    @Benchmark
+    public List<Optional<RelationshipResponse>> createEach(RelationshipDataset dataset, Batch batch) {
+
+        List<Optional<RelationshipResponse>> created = new ArrayList<>(batch.batchSize);
+        for (RelationshipCreate relationship : batch.relationships) {
+            created.add(dataset.service.create(dataset.tenantUrn, relationship));
+        }
+        return created;
+    }
+
+    @Benchmark
+    public Optional<RelationshipResponse> findSpecific(RelationshipDataset dataset) {
+
+        return dataset.service.findSpecific(dataset.tenantUrn,
+                                            TYPE,
+                                            dataset.randomSourceUrn(),
+                                            TYPE,
+                                            dataset.randomTargetUrn(),
+                                            RELATIONSHIP_TYPE);
+    }
+
+    @Benchmark
+    public Optional<RelationshipResponse> findByUrn(RelationshipDataset dataset) {
+
+        return dataset.service.findByUrn(dataset.tenantUrn, dataset.randomRelationshipUrn());
+    }
+
+    @Benchmark
+    public Page<RelationshipResponse> findAllForSource(RelationshipDataset dataset, PageSize pageSize) {
+
+        return dataset.service.findAllForSource(dataset.tenantUrn,
+                                                TYPE,
+                                                dataset.randomSourceUrn(),
+                                                1,
+                                                pageSize.pageSize,
+                                                SortOrder.ASC,
+                                                "created");
+    }
+
+    @Benchmark
+    public Page<RelationshipResponse> findAllForTarget(RelationshipDataset dataset, PageSize pageSize) {
+
+        return dataset.service.findAllForTarget(dataset.tenantUrn,
+                                                TYPE,
+                                                dataset.randomTargetUrn(),
+                                                1,
+                                                pageSize.pageSize,
+                                                SortOrder.ASC,
+                                                "created");
+    }
+
+    @Benchmark
+    public List<RelationshipResponse> delete(RelationshipDataset dataset, DeletableRelationship relationship) {
+
+        return dataset.service.delete(dataset.tenantUrn, relationship.urn);
+    }
+
+    private static RelationshipCreate newRelationship() {
+
+        return RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type(TYPE)
+                        .urn(UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid()))
+                        .build())
+            .relationshipType(RELATIONSHIP_TYPE)
+            .target(RelationshipReference.builder()
+                        .type(TYPE)
+                        .urn(UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid()))
+                        .build())
+            .build();
+    }
+}
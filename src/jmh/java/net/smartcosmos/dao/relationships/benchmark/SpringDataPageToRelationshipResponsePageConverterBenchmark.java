@@ -0,0 +1,101 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import net.smartcosmos.dao.relationships.converter.RelationshipEntityToRelationshipResponseConverter;
+import net.smartcosmos.dao.relationships.converter.SpringDataPageToRelationshipResponsePageConverter;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.util.RelationshipPersistenceUtil;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static net.smartcosmos.dao.relationships.benchmark.RelationshipDataset.RELATIONSHIP_TYPE;
+import static net.smartcosmos.dao.relationships.benchmark.RelationshipDataset.TYPE;
+
+/**
+ * Benchmark of the conversion of a page of entities, without any database access.
+ * <p>
+ * {@code convert} maps the entities directly, as the service does. {@code convertThroughConversionService} dispatches every entity
+ * through the generic conversion service instead, as external users of the registered converters do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringDataPageToRelationshipResponsePageConverterBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int pageSize;
+
+    SpringDataPageToRelationshipResponsePageConverter converter;
+    GenericConversionService conversionService;
+    org.springframework.data.domain.Page<RelationshipEntity> entityPage;
+
+    @Setup
+    public void setUp() {
+
+        converter = new SpringDataPageToRelationshipResponsePageConverter();
+
+        conversionService = new GenericConversionService();
+        conversionService.addConverter(new RelationshipEntityToRelationshipResponseConverter());
+        conversionService.addConverter(converter);
+
+        UUID tenantId = UuidUtil.getNewUuid();
+        UUID sourceId = UuidUtil.getNewUuid();
+        List<RelationshipEntity> entities = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .id(UuidUtil.getNewUuid())
+                             .tenantId(tenantId)
+                             .sourceType(TYPE)
+                             .sourceId(sourceId)
+                             .relationshipType(RELATIONSHIP_TYPE)
+                             .targetType(TYPE)
+                             .targetId(UuidUtil.getNewUuid())
+                             .build());
+        }
+        entityPage = new PageImpl<>(entities, new PageRequest(0, pageSize), 10L * pageSize);
+    }
+
+    @Benchmark
+    public Page<RelationshipResponse> convert() {
+
+        return converter.convert(entityPage);
+    }
+
+    @Benchmark
+    public Page<RelationshipResponse> convertThroughConversionService() {
+
+        List<RelationshipResponse> data = entityPage.getContent()
+            .stream()
+            .map(entity -> conversionService.convert(entity, RelationshipResponse.class))
+            .collect(Collectors.toList());
+
+        return Page.<RelationshipResponse>builder()
+            .data(data)
+            .page(RelationshipPersistenceUtil.getPageInformation(entityPage))
+            .build();
+    }
+}
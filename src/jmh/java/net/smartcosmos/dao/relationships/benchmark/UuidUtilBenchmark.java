@@ -0,0 +1,61 @@
+package net.smartcosmos.dao.relationships.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UuidUtilBenchmark {
+
+    UUID uuid = UUID.fromString("8e24eabd-1be9-46ac-8c7d-1e753746b413");
+    String urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b413";
+
+    @Benchmark
+    public UUID getUuidFromUrn() {
+
+        return UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Benchmark
+    public String getThingUrnFromUuid() {
+
+        return UuidUtil.getThingUrnFromUuid(uuid);
+    }
+
+    @Benchmark
+    public String getTenantUrnFromUuid() {
+
+        return UuidUtil.getTenantUrnFromUuid(uuid);
+    }
+
+    @Benchmark
+    public UUID getNewUuid() {
+
+        return UuidUtil.getNewUuid();
+    }
+
+    /**
+     * Baseline for {@link #getNewUuid()}: the random UUIDs of Hibernate's {@code uuid2} generator.
+     */
+    @Benchmark
+    public UUID randomUuid() {
+
+        return UUID.randomUUID();
+    }
+}
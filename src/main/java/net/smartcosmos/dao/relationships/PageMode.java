@@ -0,0 +1,19 @@
+package net.smartcosmos.dao.relationships;
+
+/**
+ * Selects how a paged finder determines the page information of its result.
+ */
+public enum PageMode {
+
+    /**
+     * Counts all matching relationships with an additional query, so the page information contains the total number of elements and
+     * pages.
+     */
+    PAGE,
+
+    /**
+     * Only finds out if there is a next page by fetching one relationship more than the page size, without counting all matching
+     * relationships. The total number of elements is not set, and the total number of pages only includes the next page if there is one.
+     */
+    SLICE
+}
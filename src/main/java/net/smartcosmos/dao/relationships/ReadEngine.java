@@ -0,0 +1,18 @@
+package net.smartcosmos.dao.relationships;
+
+/**
+ * Selects how the finders of {@code RelationshipPersistenceService} read relationships from the database.
+ */
+public enum ReadEngine {
+
+    /**
+     * Loads read-only entities through the JPA repositories and converts them to responses.
+     */
+    JPA,
+
+    /**
+     * Maps the rows of plain JDBC queries straight to responses, without entities, a persistence context or the conversion service. The
+     * paged queries use {@code LIMIT} and {@code OFFSET}, which MariaDB, MySQL, PostgreSQL and H2 understand.
+     */
+    JDBC
+}
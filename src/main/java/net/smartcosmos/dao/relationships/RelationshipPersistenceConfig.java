@@ -3,6 +3,7 @@ package net.smartcosmos.dao.relationships;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.orm.jpa.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -14,6 +15,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 
 @EnableJpaRepositories
 @EnableJpaAuditing
+@EnableConfigurationProperties(RelationshipPersistenceProperties.class)
 @EntityScan
 @ComponentScan
 @Configuration
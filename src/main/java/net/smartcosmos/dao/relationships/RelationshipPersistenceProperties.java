@@ -0,0 +1,253 @@
+package net.smartcosmos.dao.relationships;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the relationship persistence, prefixed by {@code smartcosmos.dao.relationships}.
+ */
+@Data
+@ConfigurationProperties("smartcosmos.dao.relationships")
+public class RelationshipPersistenceProperties {
+
+    /**
+     * number of rows the JDBC driver fetches from the database at once when streaming relationships
+     */
+    private int streamFetchSize = 500;
+
+    /**
+     * how the finders read relationships, either as entities through JPA or mapped straight from plain JDBC queries
+     */
+    private ReadEngine readEngine = ReadEngine.JPA;
+
+    private final Cache cache = new Cache();
+
+    private final PageCache pageCache = new PageCache();
+
+    private final Async async = new Async();
+
+    private final Reactive reactive = new Reactive();
+
+    private final ScatterGather scatterGather = new ScatterGather();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Replicas replicas = new Replicas();
+
+    private final Metrics metrics = new Metrics();
+
+    private final R2dbc r2dbc = new R2dbc();
+
+    /**
+     * Configuration of the in-process cache of single relationships, prefixed by {@code smartcosmos.dao.relationships.cache}.
+     */
+    @Data
+    public static class Cache {
+
+        /**
+         * whether {@code findByUrn()} and {@code findSpecific()} results are cached
+         */
+        private boolean enabled = false;
+
+        /**
+         * maximum number of cached relationships
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * number of seconds after which a cached relationship expires, or {@code 0} to never expire; this bounds how long an instance may still
+         * return a relationship that was deleted through another instance
+         */
+        private long expireAfterWriteSeconds = 600;
+    }
+
+    /**
+     * Configuration of the in-process cache of relationship pages of a source or target, prefixed by
+     * {@code smartcosmos.dao.relationships.page-cache}.
+     */
+    @Data
+    public static class PageCache {
+
+        /**
+         * whether {@code findAllForSource()}, {@code findAllForTarget()}, {@code findByTypeForSource()} and {@code findByTypeForTarget()}
+         * results are cached
+         */
+        private boolean enabled = false;
+
+        /**
+         * maximum number of cached pages
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * number of seconds after which a cached page expires, or {@code 0} to never expire; this bounds how long an instance may still return
+         * a page that was changed through another instance
+         */
+        private long expireAfterWriteSeconds = 60;
+    }
+
+    /**
+     * Configuration of the executor of {@code AsyncRelationshipPersistenceService}, prefixed by {@code smartcosmos.dao.relationships.async}.
+     */
+    @Data
+    public static class Async {
+
+        /**
+         * number of threads, or {@code 0} to use the maximum size of the JDBC connection pool, since more threads would only wait for a
+         * connection
+         */
+        private int threads = 0;
+
+        /**
+         * maximum number of calls that wait for a thread, further calls are rejected
+         */
+        private int queueCapacity = 1000;
+    }
+
+    /**
+     * Configuration of {@code ReactiveRelationshipPersistenceService}, prefixed by {@code smartcosmos.dao.relationships.reactive}.
+     */
+    @Data
+    public static class Reactive {
+
+        /**
+         * maximum number of database cursors that publish relationships at the same time, each holding a JDBC connection, or {@code 0} to use
+         * half the maximum size of the JDBC connection pool; further cursors are rejected
+         */
+        private int maxOpenCursors = 0;
+    }
+
+    /**
+     * Configuration of {@code RelationshipScatterGatherService}, prefixed by {@code smartcosmos.dao.relationships.scatter-gather}.
+     */
+    @Data
+    public static class ScatterGather {
+
+        /**
+         * maximum number of calls that run at the same time across all callers, or {@code 0} to use the maximum size of the JDBC connection
+         * pool
+         */
+        private int maxConcurrency = 0;
+    }
+
+    /**
+     * Configuration of the buffer of {@code WriteBehindRelationshipPersistenceService}, prefixed by
+     * {@code smartcosmos.dao.relationships.write-behind}.
+     */
+    @Data
+    public static class WriteBehind {
+
+        /**
+         * whether creates are buffered and written in batches, otherwise they are written right away
+         */
+        private boolean enabled = false;
+
+        /**
+         * maximum number of buffered creates
+         */
+        private int capacity = 10000;
+
+        /**
+         * number of buffered creates that triggers a flush, and maximum number of creates written in one transaction
+         */
+        private int batchSize = 500;
+
+        /**
+         * number of milliseconds after which buffered creates are flushed, even if there are fewer than the batch size
+         */
+        private long flushIntervalMillis = 100;
+
+        /**
+         * number of milliseconds a create waits for space in a full buffer before it is rejected
+         */
+        private long offerTimeoutMillis = 1000;
+    }
+
+    /**
+     * Configuration of the read replicas, prefixed by {@code smartcosmos.dao.relationships.replicas}.
+     */
+    @Data
+    public static class Replicas {
+
+        /**
+         * JDBC URLs of the read replicas, the finders use the primary data source if there are none
+         */
+        private List<String> urls = new ArrayList<>();
+
+        /**
+         * login user of the read replicas, or {@code null} to use that of the primary data source
+         */
+        private String username;
+
+        /**
+         * login password of the read replicas, or {@code null} to use that of the primary data source
+         */
+        private String password;
+
+        /**
+         * fully qualified name of the JDBC driver of the read replicas, or {@code null} to detect it from the URL
+         */
+        private String driverClassName;
+
+        /**
+         * how a read replica is chosen for each connection
+         */
+        private ReplicaBalancing balancing = ReplicaBalancing.ROUND_ROBIN;
+
+        /**
+         * number of milliseconds after a create or delete during which the finders of the same tenant still use the primary data source, or
+         * {@code 0} to always use the read replicas; this should cover the replication lag if a tenant must see its own writes
+         */
+        private long readYourWritesMillis = 0;
+    }
+
+    /**
+     * Configuration of the metrics of {@code RelationshipPersistenceService}, prefixed by {@code smartcosmos.dao.relationships.metrics}.
+     */
+    @Data
+    public static class Metrics {
+
+        /**
+         * whether the calls of {@code RelationshipPersistenceService} are timed and their results counted, and the queues in front of it
+         * are measured
+         */
+        private boolean enabled = true;
+
+        /**
+         * whether the metrics are also tagged with the tenant URN, which multiplies their number by the number of tenants
+         */
+        private boolean tenantTag = false;
+
+        /**
+         * whether Hibernate collects statistics, which are then exported as well; collecting them costs some throughput
+         */
+        private boolean hibernateStatistics = false;
+    }
+
+    /**
+     * Configuration of {@code R2dbcRelationshipPersistenceService}, prefixed by {@code smartcosmos.dao.relationships.r2dbc}.
+     */
+    @Data
+    public static class R2dbc {
+
+        /**
+         * R2DBC URL of the database, e.g. {@code r2dbc:pool:mariadb://host/db}; the service is only created if it is set, and needs the
+         * R2DBC driver on the class path
+         */
+        private String url;
+
+        /**
+         * login user, or {@code null} to use that of the URL
+         */
+        private String username;
+
+        /**
+         * login password, or {@code null} to use that of the URL
+         */
+        private String password;
+    }
+}
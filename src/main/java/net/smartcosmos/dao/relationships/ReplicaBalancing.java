@@ -0,0 +1,18 @@
+package net.smartcosmos.dao.relationships;
+
+/**
+ * Selects how a connection of the finders is distributed over the read replicas.
+ */
+public enum ReplicaBalancing {
+
+    /**
+     * Uses the read replicas in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Uses the read replica with the fewest connections that were taken from it and not closed yet, and the replicas in turn if several have
+     * as few.
+     */
+    LEAST_LOADED
+}
@@ -0,0 +1,166 @@
+package net.smartcosmos.dao.relationships.cache;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Size-bounded in-process cache of the relationship pages of a source or target.
+ * <p>
+ * Every endpoint, i.e. a source or target entity identified by its type and ID, has a generation that is part of the keys of all its cached
+ * pages. Creating or deleting a relationship moves both its source and its target to a new generation, which makes all their cached pages
+ * unreachable at once without looking for their keys. The unreachable pages are evicted eventually.
+ * <p>
+ * Generations are drawn from a single increasing counter, so an endpoint whose generation was evicted from the cache gets a newer
+ * generation than any of its old pages. Generations ignore the tenant, because pages can be requested across tenants.
+ */
+@Component
+public class AdjacencyPageCache {
+
+    private final AtomicLong lastGeneration = new AtomicLong();
+    private final Cache<Endpoint, Long> generations;
+    private final Cache<PageKey, Page<RelationshipResponse>> pages;
+
+    @Autowired
+    public AdjacencyPageCache(RelationshipPersistenceProperties properties) {
+
+        RelationshipPersistenceProperties.PageCache config = properties.getPageCache();
+        if (config.isEnabled()) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .recordStats();
+            if (config.getExpireAfterWriteSeconds() > 0) {
+                builder.expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS);
+            }
+            pages = builder.build();
+
+            // each cached page needs the generation of its endpoint, so there are never more live generations than pages
+            generations = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .build();
+        } else {
+            pages = null;
+            generations = null;
+        }
+    }
+
+    /**
+     * Gets a page of relationships of an endpoint.
+     *
+     * @param endpointType the type of the source or target entity
+     * @param endpointId the ID of the source or target entity
+     * @param query all other parameters of the query, e.g. the finder name, tenant, relationship type and page request
+     * @param loader loads the page if it isn't cached
+     * @return the page
+     */
+    public Page<RelationshipResponse> get(String endpointType, UUID endpointId, List<?> query, Supplier<Page<RelationshipResponse>> loader) {
+
+        if (pages == null) {
+            return loader.get();
+        }
+
+        // the generation is read before the page is loaded, so a page that misses a concurrent write is cached under the old generation
+        Endpoint endpoint = Endpoint.of(endpointType, endpointId);
+        PageKey key = PageKey.of(endpoint, generation(endpoint), query);
+
+        return pages.get(key, k -> loader.get());
+    }
+
+    /**
+     * Moves the source and target of a created or deleted relationship to a new generation. Within a transaction, this happens after commit,
+     * so no page is loaded under the new generation before the change is visible.
+     *
+     * @param entity the created or deleted relationship
+     */
+    public void invalidate(RelationshipEntity entity) {
+
+        if (pages == null) {
+            return;
+        }
+
+        Endpoint source = Endpoint.of(entity.getSourceType(), entity.getSourceId());
+        Endpoint target = Endpoint.of(entity.getTargetType(), entity.getTargetId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+
+                    nextGeneration(source);
+                    nextGeneration(target);
+                }
+            });
+        } else {
+            nextGeneration(source);
+            nextGeneration(target);
+        }
+    }
+
+    /**
+     * Removes all pages from the cache.
+     */
+    public void invalidateAll() {
+
+        if (pages != null) {
+            pages.invalidateAll();
+            generations.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction statistics of the page cache.
+     *
+     * @return the statistics, which are empty if the cache is disabled
+     */
+    public CacheStats stats() {
+
+        return pages != null ? pages.stats() : CacheStats.empty();
+    }
+
+    public boolean isEnabled() {
+
+        return pages != null;
+    }
+
+    private long generation(Endpoint endpoint) {
+
+        return generations.get(endpoint, e -> lastGeneration.incrementAndGet());
+    }
+
+    private void nextGeneration(Endpoint endpoint) {
+
+        generations.put(endpoint, lastGeneration.incrementAndGet());
+    }
+
+    @Value(staticConstructor = "of")
+    private static class Endpoint {
+
+        private String type;
+        private UUID id;
+    }
+
+    @Value(staticConstructor = "of")
+    private static class PageKey {
+
+        private Endpoint endpoint;
+        private long generation;
+        private List<?> query;
+    }
+}
@@ -0,0 +1,150 @@
+package net.smartcosmos.dao.relationships.cache;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Size-bounded in-process cache of single relationships, looked up by tenant and ID or by tenant and natural key.
+ * <p>
+ * All columns of a relationship except {@code lastModified} are immutable, so a cached relationship only becomes stale when it is deleted.
+ * Only found relationships are cached. Caffeine's W-TinyLFU eviction keeps frequently requested relationships cached even if many other
+ * relationships are requested once. If the cache is disabled, all lookups go to the loader.
+ */
+@Component
+public class RelationshipCache {
+
+    private final Cache<Object, RelationshipResponse> cache;
+
+    @Autowired
+    public RelationshipCache(RelationshipPersistenceProperties properties) {
+
+        RelationshipPersistenceProperties.Cache config = properties.getCache();
+        if (config.isEnabled()) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .recordStats();
+            if (config.getExpireAfterWriteSeconds() > 0) {
+                builder.expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS);
+            }
+            cache = builder.build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Gets a relationship by tenant and ID.
+     *
+     * @param tenantId the tenant ID
+     * @param id the relationship ID
+     * @param loader loads the relationship if it isn't cached
+     * @return the relationship, or {@code Optional.empty()} if it doesn't exist
+     */
+    public Optional<RelationshipResponse> get(UUID tenantId, UUID id, Supplier<Optional<RelationshipResponse>> loader) {
+
+        return get(IdKey.of(tenantId, id), loader);
+    }
+
+    /**
+     * Gets a relationship by its natural key.
+     *
+     * @param key the natural key
+     * @param loader loads the relationship if it isn't cached
+     * @return the relationship, or {@code Optional.empty()} if it doesn't exist
+     */
+    public Optional<RelationshipResponse> get(RelationshipKey key, Supplier<Optional<RelationshipResponse>> loader) {
+
+        return get((Object) key, loader);
+    }
+
+    /**
+     * Removes a relationship from the cache, under both its ID and its natural key. Within a transaction, this happens after commit, since a
+     * concurrent lookup still finds the committed relationship until then and would cache it again.
+     *
+     * @param entity the created or deleted relationship
+     */
+    public void invalidate(RelationshipEntity entity) {
+
+        if (cache == null) {
+            return;
+        }
+
+        IdKey idKey = IdKey.of(entity.getTenantId(), entity.getId());
+        RelationshipKey key = RelationshipKey.of(entity);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+
+                    cache.invalidate(idKey);
+                    cache.invalidate(key);
+                }
+            });
+        } else {
+            cache.invalidate(idKey);
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Removes all relationships from the cache.
+     */
+    public void invalidateAll() {
+
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction statistics of the cache.
+     *
+     * @return the statistics, which are empty if the cache is disabled
+     */
+    public CacheStats stats() {
+
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    public boolean isEnabled() {
+
+        return cache != null;
+    }
+
+    private Optional<RelationshipResponse> get(Object key, Supplier<Optional<RelationshipResponse>> loader) {
+
+        if (cache == null) {
+            return loader.get();
+        }
+
+        // loading inside the cache means that an invalidation of the same key waits for the load, so a relationship that is deleted
+        // concurrently is not cached
+        return Optional.ofNullable(cache.get(key, k -> loader.get()
+            .orElse(null)));
+    }
+
+    @Value(staticConstructor = "of")
+    private static class IdKey {
+
+        private UUID tenantId;
+        private UUID id;
+    }
+}
@@ -16,6 +16,17 @@ public class RelationshipCreateToRelationshipEntityConverter
     @Override
     public RelationshipEntity convert(RelationshipCreate createRelationship) {
 
+        return toEntity(createRelationship);
+    }
+
+    /**
+     * Converts a create request to an entity without ID and tenant.
+     *
+     * @param createRelationship the create request
+     * @return the entity
+     */
+    public static RelationshipEntity toEntity(RelationshipCreate createRelationship) {
+
         return RelationshipEntity.builder()
             .sourceType(createRelationship.getSource()
                             .getType())
@@ -1,5 +1,8 @@
 package net.smartcosmos.dao.relationships.converter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.format.FormatterRegistrar;
 import org.springframework.format.FormatterRegistry;
@@ -10,6 +13,13 @@ import net.smartcosmos.dao.relationships.util.UuidUtil;
 import net.smartcosmos.dto.relationships.RelationshipReference;
 import net.smartcosmos.dto.relationships.RelationshipResponse;
 
+/**
+ * Converts a {@link RelationshipEntity} to a {@link RelationshipResponse}.
+ * <p>
+ * The converter is registered with the conversion service for external users. Code of this module calls {@link #toResponse} and
+ * {@link #toResponses} directly instead, which skips the converter lookup, type descriptors and generic dispatch of the conversion
+ * service for every relationship.
+ */
 @Component
 public class RelationshipEntityToRelationshipResponseConverter
     implements Converter<RelationshipEntity, RelationshipResponse>, FormatterRegistrar {
@@ -17,16 +27,29 @@ public class RelationshipEntityToRelationshipResponseConverter
     @Override
     public RelationshipResponse convert(RelationshipEntity entity) {
 
+        return toResponse(entity);
+    }
+
+    /**
+     * Converts an entity to a response.
+     *
+     * @param entity the entity
+     * @return the response
+     */
+    public static RelationshipResponse toResponse(RelationshipEntity entity) {
+
+        String tenantUrn = UuidUtil.getTenantUrnFromUuid(entity.getTenantId());
+
         RelationshipReference source = RelationshipReference.builder()
             .urn(UuidUtil.getThingUrnFromUuid(entity.getSourceId()))
             .type(entity.getSourceType())
-            .tenantUrn(UuidUtil.getTenantUrnFromUuid(entity.getTenantId()))
+            .tenantUrn(tenantUrn)
             .build();
 
         RelationshipReference target = RelationshipReference.builder()
             .urn(UuidUtil.getThingUrnFromUuid(entity.getTargetId()))
             .type(entity.getTargetType())
-            .tenantUrn(UuidUtil.getTenantUrnFromUuid(entity.getTenantId()))
+            .tenantUrn(tenantUrn)
             .build();
 
         return RelationshipResponse.builder()
@@ -34,10 +57,25 @@ public class RelationshipEntityToRelationshipResponseConverter
             .source(source)
             .target(target)
             .relationshipType(entity.getRelationshipType())
-            .tenantUrn(UuidUtil.getTenantUrnFromUuid(entity.getTenantId()))
+            .tenantUrn(tenantUrn)
             .build();
     }
 
+    /**
+     * Converts a list of entities to a list of responses of the same size.
+     *
+     * @param entities the entities
+     * @return the responses, in the order of the entities
+     */
+    public static List<RelationshipResponse> toResponses(List<RelationshipEntity> entities) {
+
+        List<RelationshipResponse> responses = new ArrayList<>(entities.size());
+        for (RelationshipEntity entity : entities) {
+            responses.add(toResponse(entity));
+        }
+        return responses;
+    }
+
     @Override
     public void registerFormatters(FormatterRegistry registry) {
 
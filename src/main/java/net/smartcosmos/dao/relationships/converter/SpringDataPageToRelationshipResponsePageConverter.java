@@ -1,47 +1,43 @@
 package net.smartcosmos.dao.relationships.converter;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.util.RelationshipPersistenceUtil;
 import net.smartcosmos.dto.relationships.Page;
-import net.smartcosmos.dto.relationships.PageInformation;
 import net.smartcosmos.dto.relationships.RelationshipResponse;
 
+/**
+ * Converts a Spring Data {@link org.springframework.data.domain.Page} or {@link Slice} of entities to a response page.
+ * <p>
+ * A slice doesn't know the total number of elements, so its page information has no total number of elements, and a total number of
+ * pages that only includes the next page if there is one.
+ * <p>
+ * Like {@link RelationshipEntityToRelationshipResponseConverter}, the converter is registered with the conversion service for external
+ * users, while code of this module calls {@link #toPage} directly.
+ */
 @Component
 public class SpringDataPageToRelationshipResponsePageConverter
-    extends ConversionServiceAwareConverter<org.springframework.data.domain.Page<RelationshipEntity>, Page<RelationshipResponse>> {
-
-    @Autowired
-    private ConversionService conversionService;
-
-    protected ConversionService conversionService() {
-
-        return conversionService;
-    }
+    extends ConversionServiceAwareConverter<Slice<RelationshipEntity>, Page<RelationshipResponse>> {
 
     @Override
-    public Page<RelationshipResponse> convert(org.springframework.data.domain.Page<RelationshipEntity> page) {
+    public Page<RelationshipResponse> convert(Slice<RelationshipEntity> slice) {
 
-        PageInformation pageInformation = PageInformation.builder()
-            .number((page.getTotalElements() > 0 ? page.getNumber() + 1 : 0))
-            .totalElements(page.getTotalElements())
-            .size(page.getNumberOfElements())
-            .totalPages((page.getNumberOfElements() > 0 ? page.getTotalPages() : 0))
-            .build();
+        return toPage(slice);
+    }
 
-        List<RelationshipResponse> data = page.getContent()
-            .stream()
-            .map(entity -> conversionService.convert(entity, RelationshipResponse.class))
-            .collect(Collectors.toList());
+    /**
+     * Converts a page or slice of entities to a response page.
+     *
+     * @param slice the page or slice
+     * @return the response page
+     */
+    public static Page<RelationshipResponse> toPage(Slice<RelationshipEntity> slice) {
 
         return Page.<RelationshipResponse>builder()
-            .data(data)
-            .page(pageInformation)
+            .data(RelationshipEntityToRelationshipResponseConverter.toResponses(slice.getContent()))
+            .page(RelationshipPersistenceUtil.getPageInformation(slice))
             .build();
     }
 }
@@ -0,0 +1,25 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A page of a cursor-based (keyset) query.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> data;
+
+    /**
+     * the continuation token to get the next page, or {@code null} if this is the last page
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,28 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * The outcome of creating a single relationship as part of a batch.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelationshipCreateResult {
+
+    /**
+     * {@code true} if the relationship was created by the request, {@code false} if it already existed
+     */
+    private boolean created;
+
+    /**
+     * the created or already existing relationship
+     */
+    private RelationshipResponse relationship;
+}
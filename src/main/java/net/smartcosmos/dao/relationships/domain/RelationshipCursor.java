@@ -0,0 +1,33 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The position of a {@link RelationshipEntity} in a result ordered by creation date and ID, used to continue a query after that
+ * relationship.
+ */
+@Value
+@AllArgsConstructor(staticName = "of")
+public class RelationshipCursor {
+
+    /**
+     * the creation date in milliseconds since the epoch
+     */
+    private long created;
+    private UUID id;
+
+    /**
+     * Gets the position of a relationship entity.
+     *
+     * @param entity the relationship entity
+     * @return the cursor
+     */
+    public static RelationshipCursor of(RelationshipEntity entity) {
+
+        return of(entity.getCreated()
+                      .getTime(), entity.getId());
+    }
+}
@@ -0,0 +1,32 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The number of relationships of a particular relationship type that an entity is the source or target of.
+ * <p>
+ * The counters are maintained in the transactions that create and delete relationships, so the degree of an entity can be read without
+ * counting its relationships.
+ */
+@Entity(name = "relationship_degree")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Data
+@AllArgsConstructor(staticName = "of")
+@Table(name = "relationship_degree")
+public class RelationshipDegreeEntity implements Serializable {
+
+    @EmbeddedId
+    private RelationshipDegreeKey id;
+
+    @Column(name = "relationshipCount", nullable = false)
+    private long relationshipCount;
+}
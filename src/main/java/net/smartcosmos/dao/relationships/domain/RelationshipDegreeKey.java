@@ -0,0 +1,112 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.hibernate.annotations.Type;
+
+/**
+ * The key of a {@link RelationshipDegreeEntity}, i.e. one end of the relationships of a particular relationship type with a particular
+ * entity.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor(staticName = "of")
+public class RelationshipDegreeKey implements Serializable, Comparable<RelationshipDegreeKey> {
+
+    private static final int UUID_LENGTH = 16;
+    private static final int ENDPOINT_LENGTH = 6;
+    private static final int ENDPOINT_TYPE_LENGTH = 255;
+    private static final int RELATIONSHIP_TYPE_LENGTH = 255;
+
+    private static final Comparator<RelationshipDegreeKey> ORDER = Comparator.comparing(RelationshipDegreeKey::getTenantId)
+        .thenComparing(RelationshipDegreeKey::getEndpoint)
+        .thenComparing(RelationshipDegreeKey::getEndpointType)
+        .thenComparing(RelationshipDegreeKey::getEndpointId)
+        .thenComparing(RelationshipDegreeKey::getRelationshipType);
+
+    @Type(type = "uuid-binary")
+    @Column(name = "tenantId", length = UUID_LENGTH, nullable = false, updatable = false)
+    private UUID tenantId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "endpoint", length = ENDPOINT_LENGTH, nullable = false, updatable = false)
+    private Endpoint endpoint;
+
+    @Column(name = "endpointType", length = ENDPOINT_TYPE_LENGTH, nullable = false, updatable = false)
+    private String endpointType;
+
+    @Type(type = "uuid-binary")
+    @Column(name = "endpointId", length = UUID_LENGTH, nullable = false, updatable = false)
+    private UUID endpointId;
+
+    @Column(name = "relationshipType", length = RELATIONSHIP_TYPE_LENGTH, nullable = false, updatable = false)
+    private String relationshipType;
+
+    /**
+     * Gets the key of the source end of a relationship.
+     *
+     * @param entity the relationship entity
+     * @return the key
+     */
+    public static RelationshipDegreeKey ofSource(RelationshipEntity entity) {
+
+        return of(entity.getTenantId(), Endpoint.SOURCE, entity.getSourceType(), entity.getSourceId(), entity.getRelationshipType());
+    }
+
+    /**
+     * Gets the key of the target end of a relationship.
+     *
+     * @param entity the relationship entity
+     * @return the key
+     */
+    public static RelationshipDegreeKey ofTarget(RelationshipEntity entity) {
+
+        return of(entity.getTenantId(), Endpoint.TARGET, entity.getTargetType(), entity.getTargetId(), entity.getRelationshipType());
+    }
+
+    /**
+     * Gets by how much the degrees change if relationships are created or deleted.
+     *
+     * @param entities the created or deleted relationship entities
+     * @param delta {@code 1} for created and {@code -1} for deleted relationships
+     * @return the change of each affected degree, in key order
+     */
+    public static Map<RelationshipDegreeKey, Long> deltas(Collection<RelationshipEntity> entities, long delta) {
+
+        Map<RelationshipDegreeKey, Long> deltas = new TreeMap<>();
+        for (RelationshipEntity entity : entities) {
+            deltas.merge(ofSource(entity), delta, Long::sum);
+            deltas.merge(ofTarget(entity), delta, Long::sum);
+        }
+        return deltas;
+    }
+
+    @Override
+    public int compareTo(RelationshipDegreeKey other) {
+
+        return ORDER.compare(this, other);
+    }
+
+    /**
+     * The end of a relationship that an entity is at.
+     */
+    public enum Endpoint {
+        SOURCE,
+        TARGET
+    }
+}
@@ -12,6 +12,7 @@ import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -35,11 +36,20 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @AllArgsConstructor
 @EntityListeners({ AuditingEntityListener.class })
 @Table(name = "relationship", indexes = {
-    @Index(columnList = "tenantId, sourceType, sourceId", name = "source_index"),
-    @Index(columnList = "tenantId, targetType, targetId", name = "target_index")
+    @Index(columnList = "tenantId, sourceType, sourceId, relationshipType, created, id", name = "source_type_index"),
+    @Index(columnList = "tenantId, targetType, targetId, relationshipType, created, id, sourceId", name = "target_type_index"),
+    @Index(columnList = "tenantId, sourceType, sourceId, created, id", name = "source_created_index"),
+    @Index(columnList = "tenantId, targetType, targetId, created, id", name = "target_created_index"),
+    @Index(columnList = "sourceType, sourceId, relationshipType, created, id", name = "source_type_all_tenants_index"),
+    @Index(columnList = "targetType, targetId, relationshipType, created, id", name = "target_type_all_tenants_index")
+}, uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "tenantId", "sourceType", "sourceId", "relationshipType", "targetType", "targetId" },
+                      name = RelationshipEntity.UNIQUE_CONSTRAINT_NAME)
 })
 public class RelationshipEntity implements Serializable {
 
+    public static final String UNIQUE_CONSTRAINT_NAME = "relationship_unique";
+
     private static final int UUID_LENGTH = 16;
     private static final int SOURCE_TARGET_TYPE_LENGTH = 255;
     private static final int RELATIONSHIP_TYPE_LENGTH = 255;
@@ -56,8 +66,8 @@ public class RelationshipEntity implements Serializable {
      */
 
     @Id
-    @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = "net.smartcosmos.dao.relationships.domain.TimeOrderedUuidGenerator")
     @Type(type = "uuid-binary")
     @Column(name = "id", length = UUID_LENGTH)
     private UUID id;
@@ -0,0 +1,38 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The natural key of a {@link RelationshipEntity}, i.e. the tenant plus the (source, relationship type, target) tuple that identifies a
+ * relationship independently of its system-assigned ID.
+ */
+@Value
+@AllArgsConstructor(staticName = "of")
+public class RelationshipKey {
+
+    private UUID tenantId;
+    private String sourceType;
+    private UUID sourceId;
+    private String relationshipType;
+    private String targetType;
+    private UUID targetId;
+
+    /**
+     * Gets the natural key of a relationship entity.
+     *
+     * @param entity the relationship entity
+     * @return the key
+     */
+    public static RelationshipKey of(RelationshipEntity entity) {
+
+        return of(entity.getTenantId(),
+                  entity.getSourceType(),
+                  entity.getSourceId(),
+                  entity.getRelationshipType(),
+                  entity.getTargetType(),
+                  entity.getTargetId());
+    }
+}
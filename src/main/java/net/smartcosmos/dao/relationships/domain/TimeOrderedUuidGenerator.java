@@ -0,0 +1,27 @@
+package net.smartcosmos.dao.relationships.domain;
+
+import java.io.Serializable;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+/**
+ * Hibernate identifier generator of time-ordered UUIDs.
+ * <p>
+ * Unlike the random UUIDs of the {@code uuid2} generator, the generated IDs increase monotonically, so inserts append to the end of the
+ * primary key index instead of splitting pages all over it.
+ *
+ * @see UuidUtil#getNewUuid()
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    public static final String NAME = "time-ordered-uuid";
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) {
+
+        return UuidUtil.getNewUuid();
+    }
+}
@@ -0,0 +1,316 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.stereotype.Service;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.DataSourcePoolUtil;
+import net.smartcosmos.dao.relationships.util.MetricsUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Asynchronous facade of {@link RelationshipPersistenceService}, so that independent lookups can overlap.
+ * <p>
+ * The calls run on a dedicated executor with as many threads as the JDBC connection pool has connections, unless configured otherwise,
+ * and a bounded queue. If the queue is full, the returned future fails with a {@link RejectedExecutionException}.
+ * <p>
+ * Unless metrics are disabled, the queue depth is registered as the gauge {@value #QUEUE_DEPTH} and the rejected calls are counted as
+ * {@value #REJECTIONS}, in the same meter registry as the metrics of the DAO calls.
+ */
+@Slf4j
+@Service
+public class AsyncRelationshipPersistenceService {
+
+    public static final String QUEUE_DEPTH = "relationships.dao.async.queue.depth";
+    public static final String REJECTIONS = "relationships.dao.async.rejections";
+
+    private final RelationshipPersistenceService relationshipPersistenceService;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @Autowired
+    public AsyncRelationshipPersistenceService(
+        RelationshipPersistenceService relationshipPersistenceService,
+        RelationshipPersistenceProperties properties,
+        ObjectProvider<DataSource> dataSource,
+        ObjectProvider<List<DataSourcePoolMetadataProvider>> poolMetadataProviders,
+        ObjectProvider<MeterRegistry> meterRegistry) {
+
+        this.relationshipPersistenceService = relationshipPersistenceService;
+
+        RelationshipPersistenceProperties.Async config = properties.getAsync();
+        int threads = config.getThreads() > 0
+                      ? config.getThreads()
+                      : DataSourcePoolUtil.getMaximumPoolSize(dataSource.getIfAvailable(), poolMetadataProviders.getIfAvailable());
+
+        executor = new ThreadPoolExecutor(threads,
+                                          threads,
+                                          0L,
+                                          TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                                          new DaoThreadFactory(),
+                                          (runnable, rejectingExecutor) -> {
+                                              rejectedCount.incrementAndGet();
+                                              throw new RejectedExecutionException("Relationship DAO queue is full");
+                                          });
+        log.info("Running asynchronous relationship DAO calls on {} threads", threads);
+
+        if (properties.getMetrics()
+            .isEnabled()) {
+            MeterRegistry registry = MetricsUtil.getRegistry(meterRegistry.getIfAvailable());
+            Gauge.builder(QUEUE_DEPTH, this, AsyncRelationshipPersistenceService::getQueueDepth)
+                .description("Number of asynchronous relationship DAO calls that wait for a thread")
+                .register(registry);
+            FunctionCounter.builder(REJECTIONS, rejectedCount, AtomicLong::get)
+                .description("Number of asynchronous relationship DAO calls that were rejected because the queue was full")
+                .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        executor.shutdown();
+    }
+
+    /**
+     * Runs any call of {@link RelationshipPersistenceService} asynchronously.
+     *
+     * @param call the call
+     * @param <T> the result type
+     * @return the future result
+     */
+    public <T> CompletableFuture<T> submit(Function<RelationshipPersistenceService, T> call) {
+
+        try {
+            return CompletableFuture.supplyAsync(() -> call.apply(relationshipPersistenceService), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * @see RelationshipPersistenceService#create(String, RelationshipCreate)
+     */
+    public CompletableFuture<Optional<RelationshipResponse>> create(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return submit(dao -> dao.create(tenantUrn, createRelationship));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#createOrGet(String, RelationshipCreate)
+     */
+    public CompletableFuture<RelationshipCreateResult> createOrGet(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return submit(dao -> dao.createOrGet(tenantUrn, createRelationship));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#createAll(String, List)
+     */
+    public CompletableFuture<List<RelationshipCreateResult>> createAll(String tenantUrn, List<RelationshipCreate> createRelationships) {
+
+        return submit(dao -> dao.createAll(tenantUrn, createRelationships));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#delete(String, String)
+     */
+    public CompletableFuture<List<RelationshipResponse>> delete(String tenantUrn, String urn) {
+
+        return submit(dao -> dao.delete(tenantUrn, urn));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findByUrn(String, String)
+     */
+    public CompletableFuture<Optional<RelationshipResponse>> findByUrn(String tenantUrn, String urn) {
+
+        return submit(dao -> dao.findByUrn(tenantUrn, urn));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findSpecific(String, String, String, String, String, String)
+     */
+    public CompletableFuture<Optional<RelationshipResponse>> findSpecific(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType) {
+
+        return submit(dao -> dao.findSpecific(tenantUrn, sourceType, sourceUrn, targetType, targetUrn, relationshipType));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findBetweenEntities(String, String, String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public CompletableFuture<Page<RelationshipResponse>> findBetweenEntities(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return submit(dao -> dao.findBetweenEntities(tenantUrn, sourceType, sourceUrn, targetType, targetUrn, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findByTypeForSource(String, String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public CompletableFuture<Page<RelationshipResponse>> findByTypeForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String relationshipType,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return submit(dao -> dao.findByTypeForSource(tenantUrn, sourceType, sourceUrn, relationshipType, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findByTypeForTarget(String, String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public CompletableFuture<Page<RelationshipResponse>> findByTypeForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return submit(dao -> dao.findByTypeForTarget(tenantUrn, targetType, targetUrn, relationshipType, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findAllForSource(String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public CompletableFuture<Page<RelationshipResponse>> findAllForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return submit(dao -> dao.findAllForSource(tenantUrn, sourceType, sourceUrn, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findAllForTarget(String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public CompletableFuture<Page<RelationshipResponse>> findAllForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return submit(dao -> dao.findAllForTarget(tenantUrn, targetType, targetUrn, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * Gets the executor of the calls, e.g. to run other asynchronous or reactive facades on the same bounded set of threads.
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+
+        return executor;
+    }
+
+    /**
+     * Gets the number of threads of the executor.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Gets the number of calls that are running.
+     *
+     * @return the number of active threads
+     */
+    public int getActiveCount() {
+
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Gets the number of calls that wait for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+
+        return executor.getQueue()
+            .size();
+    }
+
+    /**
+     * Gets the number of calls that were rejected because the queue was full.
+     *
+     * @return the number of rejected calls
+     */
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+    private static class DaoThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "relationship-dao-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
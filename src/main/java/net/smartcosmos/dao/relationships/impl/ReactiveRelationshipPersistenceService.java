@@ -0,0 +1,273 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.stereotype.Service;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.DataSourcePoolUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Reactive facade of {@link RelationshipPersistenceService}, returning {@link Mono}s and {@link Flux}es.
+ * <p>
+ * The database is still accessed through blocking JDBC calls, but they run on the bounded executor of
+ * {@link AsyncRelationshipPersistenceService}, so they never block the threads of the subscriber. Nothing happens until a publisher is
+ * subscribed to. The relationships of a source or target are published from a database cursor as they are requested, so a slow subscriber
+ * holds back the fetching instead of receiving whole pages.
+ * <p>
+ * An open cursor keeps its JDBC connection until the publisher is done, without occupying a thread in between. So the number of open
+ * cursors is bounded separately, to half the JDBC connection pool unless configured otherwise, which leaves connections to the other calls.
+ * A cursor beyond that fails with a {@link RejectedExecutionException}.
+ */
+@Slf4j
+@Service
+public class ReactiveRelationshipPersistenceService {
+
+    private final RelationshipPersistenceService relationshipPersistenceService;
+    private final Scheduler scheduler;
+    private final Semaphore cursorPermits;
+
+    @Autowired
+    public ReactiveRelationshipPersistenceService(
+        RelationshipPersistenceService relationshipPersistenceService,
+        AsyncRelationshipPersistenceService asyncRelationshipPersistenceService,
+        RelationshipPersistenceProperties properties,
+        ObjectProvider<DataSource> dataSource,
+        ObjectProvider<List<DataSourcePoolMetadataProvider>> poolMetadataProviders) {
+
+        this.relationshipPersistenceService = relationshipPersistenceService;
+        this.scheduler = Schedulers.fromExecutor(asyncRelationshipPersistenceService.getExecutor());
+
+        int configuredCursors = properties.getReactive()
+            .getMaxOpenCursors();
+        int maxOpenCursors = configuredCursors > 0
+                             ? configuredCursors
+                             : Math.max(1,
+                                        DataSourcePoolUtil.getMaximumPoolSize(dataSource.getIfAvailable(),
+                                                                              poolMetadataProviders.getIfAvailable()) / 2);
+        cursorPermits = new Semaphore(maxOpenCursors);
+        log.info("Publishing relationships from up to {} open database cursors", maxOpenCursors);
+    }
+
+    /**
+     * Create a relationship.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createRelationship the relationship to create
+     * @return the created relationship, or an empty {@code Mono} if it already exists
+     * @see RelationshipPersistenceService#create(String, RelationshipCreate)
+     */
+    public Mono<RelationshipResponse> create(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return call(dao -> dao.create(tenantUrn, createRelationship)).flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * @see RelationshipPersistenceService#createOrGet(String, RelationshipCreate)
+     */
+    public Mono<RelationshipCreateResult> createOrGet(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return call(dao -> dao.createOrGet(tenantUrn, createRelationship));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#createAll(String, List)
+     */
+    public Flux<RelationshipCreateResult> createAll(String tenantUrn, List<RelationshipCreate> createRelationships) {
+
+        return call(dao -> dao.createAll(tenantUrn, createRelationships)).flatMapIterable(Function.identity());
+    }
+
+    /**
+     * @see RelationshipPersistenceService#delete(String, String)
+     */
+    public Flux<RelationshipResponse> delete(String tenantUrn, String urn) {
+
+        return call(dao -> dao.delete(tenantUrn, urn)).flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Find a relationship by its URN.
+     *
+     * @param tenantUrn the tenant URN
+     * @param urn the relationship's system-assigned URN
+     * @return the relationship, or an empty {@code Mono} if it doesn't exist
+     */
+    public Mono<RelationshipResponse> findByUrn(String tenantUrn, String urn) {
+
+        return call(dao -> dao.findByUrn(tenantUrn, urn)).flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Find a relationship by its source, target and relationship type.
+     *
+     * @return the relationship, or an empty {@code Mono} if it doesn't exist
+     * @see RelationshipPersistenceService#findSpecific(String, String, String, String, String, String)
+     */
+    public Mono<RelationshipResponse> findSpecific(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType) {
+
+        return call(dao -> dao.findSpecific(tenantUrn, sourceType, sourceUrn, targetType, targetUrn, relationshipType)).flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findAllForSource(String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public Mono<Page<RelationshipResponse>> findAllForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return call(dao -> dao.findAllForSource(tenantUrn, sourceType, sourceUrn, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * @see RelationshipPersistenceService#findAllForTarget(String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public Mono<Page<RelationshipResponse>> findAllForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        return call(dao -> dao.findAllForTarget(tenantUrn, targetType, targetUrn, page, size, sortOrder, sortBy));
+    }
+
+    /**
+     * Publish all relationships with a particular source, ordered by creation date.
+     * <p>
+     * The relationships are read from a database cursor as the subscriber requests them. The cursor and its connection are released when
+     * the publisher completes, fails or is cancelled. If too many cursors are open already, the publisher fails with a
+     * {@link RejectedExecutionException}.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @return the relationships
+     * @see RelationshipPersistenceService#streamAllForSource(String, String, String)
+     */
+    public Flux<RelationshipResponse> findAllForSource(String tenantUrn, String sourceType, String sourceUrn) {
+
+        return stream(dao -> dao.streamAllForSource(tenantUrn, sourceType, sourceUrn));
+    }
+
+    /**
+     * Publish all relationships with a particular target, ordered by creation date.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @return the relationships
+     * @see #findAllForSource(String, String, String)
+     */
+    public Flux<RelationshipResponse> findAllForTarget(String tenantUrn, String targetType, String targetUrn) {
+
+        return stream(dao -> dao.streamAllForTarget(tenantUrn, targetType, targetUrn));
+    }
+
+    /**
+     * Gets the number of database cursors that can still be opened.
+     *
+     * @return the available cursors
+     */
+    public int getAvailableCursors() {
+
+        return cursorPermits.availablePermits();
+    }
+
+    private <T> Mono<T> call(Function<RelationshipPersistenceService, T> call) {
+
+        return Mono.fromCallable(() -> call.apply(relationshipPersistenceService))
+            .subscribeOn(scheduler);
+    }
+
+    /**
+     * Publishes a stream with {@link Flux#generate}, which never runs the generator twice at the same time and closes the stream on the
+     * thread that generates, unless no generation is in progress when the subscription is cancelled. So the cursor is never closed while
+     * another thread reads it. Requests are moved to the scheduler, so the cursor is only read on the DAO threads.
+     */
+    private Flux<RelationshipResponse> stream(Function<RelationshipPersistenceService, Stream<RelationshipResponse>> query) {
+
+        return Flux.<RelationshipResponse, Cursor>generate(() -> open(query), (cursor, sink) -> {
+            if (cursor.iterator.hasNext()) {
+                sink.next(cursor.iterator.next());
+            } else {
+                sink.complete();
+            }
+            return cursor;
+        }, Cursor::close)
+            .subscribeOn(scheduler);
+    }
+
+    /**
+     * Opens a cursor with a permit, which the cursor releases when it is closed.
+     */
+    private Cursor open(Function<RelationshipPersistenceService, Stream<RelationshipResponse>> query) {
+
+        if (!cursorPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many open relationship cursors");
+        }
+        try {
+            return new Cursor(query.apply(relationshipPersistenceService));
+        } catch (RuntimeException e) {
+            cursorPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * A stream and the iterator that reads it.
+     */
+    private class Cursor {
+
+        private final Stream<RelationshipResponse> stream;
+        private final Iterator<RelationshipResponse> iterator;
+
+        Cursor(Stream<RelationshipResponse> stream) {
+
+            this.stream = stream;
+            this.iterator = stream.iterator();
+        }
+
+        void close() {
+
+            try {
+                stream.close();
+            } finally {
+                cursorPermits.release();
+            }
+        }
+    }
+}
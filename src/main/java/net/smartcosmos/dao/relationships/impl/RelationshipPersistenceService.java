@@ -1,8 +1,20 @@
 package net.smartcosmos.dao.relationships.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import javax.validation.ConstraintViolationException;
 
 import lombok.extern.slf4j.Slf4j;
@@ -10,15 +22,35 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
 
+import net.smartcosmos.dao.relationships.PageMode;
+import net.smartcosmos.dao.relationships.ReadEngine;
 import net.smartcosmos.dao.relationships.RelationshipDao;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
 import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.cache.AdjacencyPageCache;
+import net.smartcosmos.dao.relationships.cache.RelationshipCache;
+import net.smartcosmos.dao.relationships.converter.RelationshipEntityToRelationshipResponseConverter;
+import net.smartcosmos.dao.relationships.converter.SpringDataPageToRelationshipResponsePageConverter;
+import net.smartcosmos.dao.relationships.domain.CursorPage;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+import net.smartcosmos.dao.relationships.repository.RelationshipDegreeRepository;
+import net.smartcosmos.dao.relationships.repository.RelationshipJdbcRepository;
 import net.smartcosmos.dao.relationships.repository.RelationshipRepository;
+import net.smartcosmos.dao.relationships.util.CursorUtil;
 import net.smartcosmos.dao.relationships.util.PageableUtil;
 import net.smartcosmos.dao.relationships.util.RelationshipPersistenceUtil;
 import net.smartcosmos.dao.relationships.util.SearchSpecifications;
@@ -27,55 +59,139 @@ import net.smartcosmos.dto.relationships.Page;
 import net.smartcosmos.dto.relationships.RelationshipCreate;
 import net.smartcosmos.dto.relationships.RelationshipResponse;
 
+import static net.smartcosmos.dao.relationships.converter.RelationshipEntityToRelationshipResponseConverter.toResponse;
+import static net.smartcosmos.dao.relationships.converter.RelationshipEntityToRelationshipResponseConverter.toResponses;
+
 @Slf4j
 @Service
 public class RelationshipPersistenceService implements RelationshipDao {
 
     private final RelationshipRepository relationshipRepository;
+    private final RelationshipDegreeRepository relationshipDegreeRepository;
     private final ConversionService conversionService;
+    private final RelationshipPersistenceProperties properties;
+    private final RelationshipCache relationshipCache;
+    private final AdjacencyPageCache adjacencyPageCache;
+    private final RelationshipJdbcRepository relationshipJdbcRepository;
     private final SearchSpecifications<RelationshipEntity> searchSpecifications = new SearchSpecifications<>();
 
     @Autowired
     public RelationshipPersistenceService(
         RelationshipRepository RelationshipRepository,
-        ConversionService conversionService) {
+        RelationshipDegreeRepository relationshipDegreeRepository,
+        ConversionService conversionService,
+        RelationshipPersistenceProperties properties,
+        RelationshipCache relationshipCache,
+        AdjacencyPageCache adjacencyPageCache,
+        RelationshipJdbcRepository relationshipJdbcRepository) {
 
         this.relationshipRepository = RelationshipRepository;
+        this.relationshipDegreeRepository = relationshipDegreeRepository;
         this.conversionService = conversionService;
+        this.properties = properties;
+        this.relationshipCache = relationshipCache;
+        this.adjacencyPageCache = adjacencyPageCache;
+        this.relationshipJdbcRepository = relationshipJdbcRepository;
     }
 
     /**
      * Create a relationship.
+     * <p>
+     * The relationship is inserted right away. If it already exists, the insert fails on the unique constraint over the relationship's
+     * natural key, so there's no separate lookup and concurrent calls can't create the same relationship twice.
      *
      * @param tenantUrn the tenant URN
      * @param createRelationship the relationship to create
-     * @return
+     * @return the created relationship, or {@code Optional.empty()} if it already exists
      */
     @Override
     public Optional<RelationshipResponse> create(String tenantUrn, RelationshipCreate createRelationship) {
 
-        // If the requested object already exists, return Optional.empty()
-        Optional<RelationshipResponse> alreadyExists = findSpecific(
-            tenantUrn,
-            createRelationship.getSource()
-                .getType(),
-            createRelationship.getSource()
-                .getUrn(),
-            createRelationship.getTarget()
-                .getType(),
-            createRelationship.getTarget()
-                .getUrn(),
-            createRelationship.getRelationshipType());
-
-        if (alreadyExists.isPresent()) {
-            return Optional.empty();
+        RelationshipEntity entity = toEntity(UuidUtil.getUuidFromUrn(tenantUrn), createRelationship);
+
+        return persist(entity).map(RelationshipEntityToRelationshipResponseConverter::toResponse);
+    }
+
+    /**
+     * Create a relationship, or get it if it already exists.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createRelationship the relationship to create
+     * @return the result, telling whether the relationship was created or already existed
+     */
+    public RelationshipCreateResult createOrGet(String tenantUrn, RelationshipCreate createRelationship) {
+
+        RelationshipEntity entity = toEntity(UuidUtil.getUuidFromUrn(tenantUrn), createRelationship);
+
+        Optional<RelationshipEntity> created = persist(entity);
+
+        // the insert only fails if the relationship exists, so the lookup is only needed in that case
+        Optional<RelationshipEntity> relationship = created.isPresent() ? created : relationshipRepository
+            .findByTenantIdAndSourceTypeAndSourceIdAndRelationshipTypeAndTargetTypeAndTargetId(
+                entity.getTenantId(),
+                entity.getSourceType(),
+                entity.getSourceId(),
+                entity.getRelationshipType(),
+                entity.getTargetType(),
+                entity.getTargetId());
+
+        return RelationshipCreateResult.builder()
+            .created(created.isPresent())
+            .relationship(relationship.map(RelationshipEntityToRelationshipResponseConverter::toResponse)
+                              .orElse(null))
+            .build();
+    }
+
+    /**
+     * Create a batch of relationships in a single transaction.
+     * <p>
+     * Duplicates within the batch are only created once, and existing relationships are looked up with set-based queries instead of one
+     * query per relationship. The remaining relationships are inserted using JDBC statement batching, if {@code hibernate.jdbc.batch_size}
+     * is configured. If a concurrent call creates one of the relationships in the meantime, the unique constraint fails the whole batch.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createRelationships the relationships to create
+     * @return the results in the order of the input, telling whether each relationship was created or already existed
+     */
+    @Transactional
+    public List<RelationshipCreateResult> createAll(String tenantUrn, List<RelationshipCreate> createRelationships) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+
+        List<RelationshipKey> keys = new ArrayList<>(createRelationships.size());
+        Map<RelationshipKey, RelationshipEntity> pending = new LinkedHashMap<>();
+        for (RelationshipCreate createRelationship : createRelationships) {
+            RelationshipEntity entity = toEntity(tenantId, createRelationship);
+            RelationshipKey key = RelationshipKey.of(entity);
+            keys.add(key);
+            pending.putIfAbsent(key, entity);
+        }
+
+        Map<RelationshipKey, RelationshipResponse> responses = new HashMap<>();
+        for (RelationshipEntity entity : relationshipRepository.findAllByKeys(tenantId, pending.keySet())) {
+            RelationshipKey key = RelationshipKey.of(entity);
+            pending.remove(key);
+            responses.put(key, toResponse(entity));
         }
 
-        RelationshipEntity entity = conversionService.convert(createRelationship, RelationshipEntity.class);
-        entity.setTenantId(UuidUtil.getUuidFromUrn(tenantUrn));
-        entity = persist(entity);
+        Set<RelationshipKey> created = new HashSet<>();
+        for (RelationshipEntity entity : relationshipRepository.insertAll(pending.values())) {
+            invalidate(entity);
+            RelationshipKey key = RelationshipKey.of(entity);
+            created.add(key);
+            responses.put(key, toResponse(entity));
+        }
+
+        List<RelationshipCreateResult> results = new ArrayList<>(keys.size());
+        for (RelationshipKey key : keys) {
+            results.add(RelationshipCreateResult.builder()
+                            // only the first occurrence of a duplicate in the batch reports that it was created
+                            .created(created.remove(key))
+                            .relationship(responses.get(key))
+                            .build());
+        }
 
-        return Optional.ofNullable(conversionService.convert(entity, RelationshipResponse.class));
+        return results;
     }
 
     /**
@@ -86,9 +202,15 @@ public class RelationshipPersistenceService implements RelationshipDao {
      * @return
      */
     @Override
+    @Transactional
     public List<RelationshipResponse> delete(String tenantUrn, String urn) {
 
-        return convertList(relationshipRepository.deleteByTenantIdAndId(UuidUtil.getUuidFromUrn(tenantUrn), UuidUtil.getUuidFromUrn(urn)));
+        List<RelationshipEntity> deleted = relationshipRepository.deleteByTenantIdAndId(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                                      UuidUtil.getUuidFromUrn(urn));
+        relationshipDegreeRepository.add(RelationshipDegreeKey.deltas(deleted, -1));
+        deleted.forEach(this::invalidate);
+
+        return toResponses(deleted);
     }
 
     /**
@@ -101,14 +223,22 @@ public class RelationshipPersistenceService implements RelationshipDao {
     @Override
     public Optional<RelationshipResponse> findByUrn(String tenantUrn, String urn) {
 
-        Optional<RelationshipEntity> entity = relationshipRepository.findByTenantIdAndId(UuidUtil.getUuidFromUrn(tenantUrn),
-                                                                                         UuidUtil.getUuidFromUrn(urn));
-        if (entity.isPresent()) {
-            final RelationshipResponse response = conversionService.convert(entity.get(), RelationshipResponse.class);
-            return Optional.ofNullable(response);
-        }
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        UUID id = UuidUtil.getUuidFromUrn(urn);
+
+        return relationshipCache.get(tenantId, id, () -> {
+            if (isJdbcReadEngine()) {
+                return relationshipJdbcRepository.findOne(RelationshipJdbcRepository.criteria("tenantId", tenantId, "id", id));
+            }
 
-        return Optional.empty();
+            Optional<RelationshipEntity> entity = relationshipRepository.findByTenantIdAndId(tenantId, id);
+            if (entity.isPresent()) {
+                final RelationshipResponse response = toResponse(entity.get());
+                return Optional.ofNullable(response);
+            }
+
+            return Optional.empty();
+        });
     }
 
     /**
@@ -131,21 +261,93 @@ public class RelationshipPersistenceService implements RelationshipDao {
         String targetUrn,
         String relationshipType) {
 
-        Optional<RelationshipEntity> entity = relationshipRepository
-            .findByTenantIdAndSourceTypeAndSourceIdAndRelationshipTypeAndTargetTypeAndTargetId(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                sourceType,
-                UuidUtil.getUuidFromUrn(sourceUrn),
-                relationshipType,
-                targetType,
-                UuidUtil.getUuidFromUrn(targetUrn));
-
-        if (entity.isPresent()) {
-            final RelationshipResponse response = conversionService.convert(entity.get(), RelationshipResponse.class);
-            return Optional.ofNullable(response);
+        RelationshipKey key = RelationshipKey.of(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                 sourceType,
+                                                 UuidUtil.getUuidFromUrn(sourceUrn),
+                                                 relationshipType,
+                                                 targetType,
+                                                 UuidUtil.getUuidFromUrn(targetUrn));
+
+        return relationshipCache.get(key, () -> {
+            if (isJdbcReadEngine()) {
+                return relationshipJdbcRepository.findByKey(key);
+            }
+
+            Optional<RelationshipEntity> entity = relationshipRepository
+                .findByTenantIdAndSourceTypeAndSourceIdAndRelationshipTypeAndTargetTypeAndTargetId(
+                    key.getTenantId(),
+                    key.getSourceType(),
+                    key.getSourceId(),
+                    key.getRelationshipType(),
+                    key.getTargetType(),
+                    key.getTargetId());
+
+            if (entity.isPresent()) {
+                final RelationshipResponse response = toResponse(entity.get());
+                return Optional.ofNullable(response);
+            }
+
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Check whether a relationship exists.
+     * <p>
+     * Unlike {@link #findSpecific(String, String, String, String, String, String)}, the relationship is neither loaded nor converted, and
+     * the query is answered from the unique index over the relationship's natural key.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @return {@code true} if the relationship exists
+     */
+    public boolean exists(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType) {
+
+        RelationshipKey key = RelationshipKey.of(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                 sourceType,
+                                                 UuidUtil.getUuidFromUrn(sourceUrn),
+                                                 relationshipType,
+                                                 targetType,
+                                                 UuidUtil.getUuidFromUrn(targetUrn));
+
+        return !relationshipRepository.findExistingKeys(key.getTenantId(), Collections.singleton(key))
+            .isEmpty();
+    }
+
+    /**
+     * Check which of a batch of relationships exist, with set-based queries instead of one query per relationship.
+     *
+     * @param tenantUrn the tenant URN
+     * @param relationships the relationships to look for
+     * @return the bits of the existing relationships are set, at the same index as in the input
+     * @see #exists(String, String, String, String, String, String)
+     */
+    public BitSet existsAll(String tenantUrn, List<RelationshipCreate> relationships) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+
+        List<RelationshipKey> keys = new ArrayList<>(relationships.size());
+        for (RelationshipCreate relationship : relationships) {
+            keys.add(RelationshipKey.of(toEntity(tenantId, relationship)));
         }
 
-        return Optional.empty();
+        Set<RelationshipKey> existing = relationshipRepository.findExistingKeys(tenantId, new HashSet<>(keys));
+
+        BitSet result = new BitSet(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            result.set(i, existing.contains(keys.get(i)));
+        }
+        return result;
     }
 
     /**
@@ -173,19 +375,51 @@ public class RelationshipPersistenceService implements RelationshipDao {
         SortOrder sortOrder,
         String sortBy) {
 
-        Pageable pageable = PageableUtil.buildPageable(page, size, sortOrder, sortBy);
-        org.springframework.data.domain.Page<RelationshipEntity> entityPage =
-            relationshipRepository.findByTenantIdAndSourceTypeAndSourceIdAndTargetTypeAndTargetId(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                sourceType,
-                UuidUtil.getUuidFromUrn(sourceUrn),
-                targetType,
-                UuidUtil.getUuidFromUrn(targetUrn),
-                pageable);
+        return findBetweenEntities(tenantUrn, sourceType, sourceUrn, targetType, targetUrn, page, size, sortOrder, sortBy, PageMode.PAGE);
+    }
+
+    /**
+     * Find all relationships between a source and a target.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @param sortBy name of the field to sort by
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return
+     */
+    public Page<RelationshipResponse> findBetweenEntities(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy,
+        PageMode pageMode) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        UUID sourceId = UuidUtil.getUuidFromUrn(sourceUrn);
+        UUID targetId = UuidUtil.getUuidFromUrn(targetUrn);
 
-        return conversionService.convert(entityPage,
-                                         RelationshipPersistenceUtil.emptyPage()
-                                             .getClass());
+        return findPage(pageMode,
+                        PageableUtil.buildPageable(page, size, sortOrder, sortBy),
+                        RelationshipJdbcRepository.criteria("tenantId", tenantId,
+                                                            "sourceType", sourceType,
+                                                            "sourceId", sourceId,
+                                                            "targetType", targetType,
+                                                            "targetId", targetId),
+                        pageable -> relationshipRepository.findByTenantIdAndSourceTypeAndSourceIdAndTargetTypeAndTargetId(
+                            tenantId, sourceType, sourceId, targetType, targetId, pageable),
+                        pageable -> relationshipRepository.findSliceByTenantIdAndSourceTypeAndSourceIdAndTargetTypeAndTargetId(
+                            tenantId, sourceType, sourceId, targetType, targetId, pageable));
     }
 
     /**
@@ -212,25 +446,62 @@ public class RelationshipPersistenceService implements RelationshipDao {
         SortOrder sortOrder,
         String sortBy) {
 
-        org.springframework.data.domain.Page<RelationshipEntity> entityPage;
-        if (StringUtils.isBlank(tenantUrn)) {
-            entityPage = relationshipRepository.findBySourceTypeAndSourceIdAndRelationshipType(
-                sourceType,
-                UuidUtil.getUuidFromUrn(sourceUrn),
-                relationshipType,
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
-        } else {
-            entityPage = relationshipRepository.findByTenantIdAndSourceTypeAndSourceIdAndRelationshipType(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                sourceType,
-                UuidUtil.getUuidFromUrn(sourceUrn),
-                relationshipType,
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
-        }
+        return findByTypeForSource(tenantUrn, sourceType, sourceUrn, relationshipType, page, size, sortOrder, sortBy, PageMode.PAGE);
+    }
 
-        return conversionService.convert(entityPage,
-                                         RelationshipPersistenceUtil.emptyPage()
-                                             .getClass());
+    /**
+     * Find all relationships of a particular relationshipType with a particular source.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @param sortBy name of the field to sort by
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return
+     */
+    public Page<RelationshipResponse> findByTypeForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String relationshipType,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy,
+        PageMode pageMode) {
+
+        UUID sourceId = UuidUtil.getUuidFromUrn(sourceUrn);
+        UUID tenantId = StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn);
+        Pageable pageRequest = PageableUtil.buildPageable(page, size, sortOrder, sortBy);
+
+        return adjacencyPageCache.get(sourceType, sourceId, Arrays.asList("findByTypeForSource", tenantId, relationshipType, pageRequest, pageMode), () -> {
+            if (tenantId == null) {
+                return findPage(pageMode,
+                                pageRequest,
+                                RelationshipJdbcRepository.criteria("sourceType", sourceType,
+                                                                    "sourceId", sourceId,
+                                                                    "relationshipType", relationshipType),
+                                pageable -> relationshipRepository.findBySourceTypeAndSourceIdAndRelationshipType(
+                                    sourceType, sourceId, relationshipType, pageable),
+                                pageable -> relationshipRepository.findSliceBySourceTypeAndSourceIdAndRelationshipType(
+                                    sourceType, sourceId, relationshipType, pageable));
+            }
+
+            return findPage(pageMode,
+                            pageRequest,
+                            RelationshipJdbcRepository.criteria("tenantId", tenantId,
+                                                                "sourceType", sourceType,
+                                                                "sourceId", sourceId,
+                                                                "relationshipType", relationshipType),
+                            pageable -> relationshipRepository.findByTenantIdAndSourceTypeAndSourceIdAndRelationshipType(
+                                tenantId, sourceType, sourceId, relationshipType, pageable),
+                            pageable -> relationshipRepository.findSliceByTenantIdAndSourceTypeAndSourceIdAndRelationshipType(
+                                tenantId, sourceType, sourceId, relationshipType, pageable));
+        });
     }
 
     /**
@@ -257,25 +528,62 @@ public class RelationshipPersistenceService implements RelationshipDao {
         SortOrder sortOrder,
         String sortBy) {
 
-        org.springframework.data.domain.Page<RelationshipEntity> entityPage;
-        if (StringUtils.isBlank(tenantUrn)) {
-            entityPage = relationshipRepository.findByTargetTypeAndTargetIdAndRelationshipType(
-                targetType,
-                UuidUtil.getUuidFromUrn(targetUrn),
-                relationshipType,
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
-        } else {
-            entityPage = relationshipRepository.findByTenantIdAndTargetTypeAndTargetIdAndRelationshipType(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                targetType,
-                UuidUtil.getUuidFromUrn(targetUrn),
-                relationshipType,
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
-        }
+        return findByTypeForTarget(tenantUrn, targetType, targetUrn, relationshipType, page, size, sortOrder, sortBy, PageMode.PAGE);
+    }
+
+    /**
+     * Find all relationships of a particular relationshipType with a particular target.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder
+     * @param sortBy
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return
+     */
+    public Page<RelationshipResponse> findByTypeForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy,
+        PageMode pageMode) {
 
-        return conversionService.convert(entityPage,
-                                         RelationshipPersistenceUtil.emptyPage()
-                                             .getClass());
+        UUID targetId = UuidUtil.getUuidFromUrn(targetUrn);
+        UUID tenantId = StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn);
+        Pageable pageRequest = PageableUtil.buildPageable(page, size, sortOrder, sortBy);
+
+        return adjacencyPageCache.get(targetType, targetId, Arrays.asList("findByTypeForTarget", tenantId, relationshipType, pageRequest, pageMode), () -> {
+            if (tenantId == null) {
+                return findPage(pageMode,
+                                pageRequest,
+                                RelationshipJdbcRepository.criteria("targetType", targetType,
+                                                                    "targetId", targetId,
+                                                                    "relationshipType", relationshipType),
+                                pageable -> relationshipRepository.findByTargetTypeAndTargetIdAndRelationshipType(
+                                    targetType, targetId, relationshipType, pageable),
+                                pageable -> relationshipRepository.findSliceByTargetTypeAndTargetIdAndRelationshipType(
+                                    targetType, targetId, relationshipType, pageable));
+            }
+
+            return findPage(pageMode,
+                            pageRequest,
+                            RelationshipJdbcRepository.criteria("tenantId", tenantId,
+                                                                "targetType", targetType,
+                                                                "targetId", targetId,
+                                                                "relationshipType", relationshipType),
+                            pageable -> relationshipRepository.findByTenantIdAndTargetTypeAndTargetIdAndRelationshipType(
+                                tenantId, targetType, targetId, relationshipType, pageable),
+                            pageable -> relationshipRepository.findSliceByTenantIdAndTargetTypeAndTargetIdAndRelationshipType(
+                                tenantId, targetType, targetId, relationshipType, pageable));
+        });
     }
 
     /**
@@ -300,16 +608,42 @@ public class RelationshipPersistenceService implements RelationshipDao {
         SortOrder sortOrder,
         String sortBy) {
 
-        org.springframework.data.domain.Page<RelationshipEntity> entityPage =
-            relationshipRepository.findByTenantIdAndSourceTypeAndSourceId(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                sourceType,
-                UuidUtil.getUuidFromUrn(sourceUrn),
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
+        return findAllForSource(tenantUrn, sourceType, sourceUrn, page, size, sortOrder, sortBy, PageMode.PAGE);
+    }
 
-        return conversionService.convert(entityPage,
-                                         RelationshipPersistenceUtil.emptyPage()
-                                             .getClass());
+    /**
+     * Find all relationships with a particular source.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder
+     * @param sortBy
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return
+     */
+    public Page<RelationshipResponse> findAllForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy,
+        PageMode pageMode) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        UUID sourceId = UuidUtil.getUuidFromUrn(sourceUrn);
+        Pageable pageRequest = PageableUtil.buildPageable(page, size, sortOrder, sortBy);
+
+        return adjacencyPageCache.get(sourceType, sourceId, Arrays.asList("findAllForSource", tenantId, pageRequest, pageMode), () -> findPage(
+            pageMode,
+            pageRequest,
+            RelationshipJdbcRepository.criteria("tenantId", tenantId, "sourceType", sourceType, "sourceId", sourceId),
+            pageable -> relationshipRepository.findByTenantIdAndSourceTypeAndSourceId(tenantId, sourceType, sourceId, pageable),
+            pageable -> relationshipRepository.findSliceByTenantIdAndSourceTypeAndSourceId(tenantId, sourceType, sourceId, pageable)));
     }
 
     /**
@@ -334,30 +668,443 @@ public class RelationshipPersistenceService implements RelationshipDao {
         SortOrder sortOrder,
         String sortBy) {
 
-        org.springframework.data.domain.Page<RelationshipEntity> entityPage =
-            relationshipRepository.findByTenantIdAndTargetTypeAndTargetId(
-                UuidUtil.getUuidFromUrn(tenantUrn),
-                targetType,
-                UuidUtil.getUuidFromUrn(targetUrn),
-                PageableUtil.buildPageable(page, size, sortOrder, sortBy));
+        return findAllForTarget(tenantUrn, targetType, targetUrn, page, size, sortOrder, sortBy, PageMode.PAGE);
+    }
+
+    /**
+     * Find all relationships with a particular target.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder
+     * @param sortBy
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return
+     */
+    public Page<RelationshipResponse> findAllForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy,
+        PageMode pageMode) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        UUID targetId = UuidUtil.getUuidFromUrn(targetUrn);
+        Pageable pageRequest = PageableUtil.buildPageable(page, size, sortOrder, sortBy);
+
+        return adjacencyPageCache.get(targetType, targetId, Arrays.asList("findAllForTarget", tenantId, pageRequest, pageMode), () -> findPage(
+            pageMode,
+            pageRequest,
+            RelationshipJdbcRepository.criteria("tenantId", tenantId, "targetType", targetType, "targetId", targetId),
+            pageable -> relationshipRepository.findByTenantIdAndTargetTypeAndTargetId(tenantId, targetType, targetId, pageable),
+            pageable -> relationshipRepository.findSliceByTenantIdAndTargetTypeAndTargetId(tenantId, targetType, targetId, pageable)));
+    }
+
+    /**
+     * Find the relationships of several sources at once.
+     * <p>
+     * Use this instead of calling {@link #findAllForSource(String, String, String, Integer, Integer, SortOrder, String)} for each source,
+     * e.g. to render a list of things with their relationships. The sources are looked up with one {@code IN}-list query per chunk of
+     * sources, and the relationships of each source are ordered by creation date.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrns the source entities' system-assigned URNs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per source, or {@code null} for the default page size
+     * @return the relationships of each source, in the order of the source URNs, with an empty list for sources without relationships
+     */
+    public Map<String, List<RelationshipResponse>> findAllForSources(
+        String tenantUrn,
+        String sourceType,
+        Collection<String> sourceUrns,
+        String relationshipType,
+        Integer limit) {
+
+        int maxResults = PageableUtil.getPageSize(limit);
+        Map<UUID, String> urnsById = getUrnsById(sourceUrns);
+
+        if (isJdbcReadEngine()) {
+            return toResponsesByUrn(urnsById,
+                                    relationshipJdbcRepository.findForSources(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                              sourceType,
+                                                                              urnsById.keySet(),
+                                                                              relationshipType,
+                                                                              maxResults),
+                                    Function.identity());
+        }
+
+        return toResponsesByUrn(urnsById,
+                                relationshipRepository.findForSources(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                      sourceType,
+                                                                      urnsById.keySet(),
+                                                                      relationshipType,
+                                                                      maxResults),
+                                RelationshipEntityToRelationshipResponseConverter::toResponses);
+    }
+
+    /**
+     * Find the relationships of several targets at once.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrns the target entities' system-assigned URNs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per target, or {@code null} for the default page size
+     * @return the relationships of each target, in the order of the target URNs, with an empty list for targets without relationships
+     * @see #findAllForSources(String, String, Collection, String, Integer)
+     */
+    public Map<String, List<RelationshipResponse>> findAllForTargets(
+        String tenantUrn,
+        String targetType,
+        Collection<String> targetUrns,
+        String relationshipType,
+        Integer limit) {
+
+        int maxResults = PageableUtil.getPageSize(limit);
+        Map<UUID, String> urnsById = getUrnsById(targetUrns);
+
+        if (isJdbcReadEngine()) {
+            return toResponsesByUrn(urnsById,
+                                    relationshipJdbcRepository.findForTargets(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                              targetType,
+                                                                              urnsById.keySet(),
+                                                                              relationshipType,
+                                                                              maxResults),
+                                    Function.identity());
+        }
+
+        return toResponsesByUrn(urnsById,
+                                relationshipRepository.findForTargets(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                      targetType,
+                                                                      urnsById.keySet(),
+                                                                      relationshipType,
+                                                                      maxResults),
+                                RelationshipEntityToRelationshipResponseConverter::toResponses);
+    }
+
+    /**
+     * Find the IDs of the targets of all relationships with a particular source, without loading the relationships.
+     * <p>
+     * Each ID takes two elements of the returned array, its most significant bits followed by its least significant bits, so the
+     * {@code i}-th target ID is {@code new UUID(ids[2 * i], ids[2 * i + 1])}, and an ID takes 16 bytes instead of a whole
+     * {@link RelationshipResponse}. A target appears once per relationship, in no particular order. Only the target IDs are selected, and
+     * always with plain JDBC, whatever the configured read engine.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @return the packed target IDs
+     */
+    public long[] findTargetIdsForSource(String tenantUrn, String sourceType, String sourceUrn, String relationshipType) {
+
+        return relationshipJdbcRepository.findTargetIds(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                        sourceType,
+                                                        UuidUtil.getUuidFromUrn(sourceUrn),
+                                                        relationshipType);
+    }
+
+    /**
+     * Find the IDs of the sources of all relationships with a particular target, without loading the relationships.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @return the packed source IDs
+     * @see #findTargetIdsForSource(String, String, String, String)
+     */
+    public long[] findSourceIdsForTarget(String tenantUrn, String targetType, String targetUrn, String relationshipType) {
+
+        return relationshipJdbcRepository.findSourceIds(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                        targetType,
+                                                        UuidUtil.getUuidFromUrn(targetUrn),
+                                                        relationshipType);
+    }
+
+    /**
+     * Count the relationships with a particular source.
+     * <p>
+     * The count is read from counters that are maintained when relationships are created or deleted, so it costs the same for an entity
+     * with millions of relationships as for one with a single relationship.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @return the number of relationships
+     */
+    public long countForSource(String tenantUrn, String sourceType, String sourceUrn) {
+
+        return relationshipDegreeRepository.sum(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                RelationshipDegreeKey.Endpoint.SOURCE,
+                                                sourceType,
+                                                UuidUtil.getUuidFromUrn(sourceUrn));
+    }
+
+    /**
+     * Count the relationships of a particular relationship type with a particular source.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @return the number of relationships
+     * @see #countForSource(String, String, String)
+     */
+    public long countForSource(String tenantUrn, String sourceType, String sourceUrn, String relationshipType) {
+
+        return relationshipDegreeRepository.get(RelationshipDegreeKey.of(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                        RelationshipDegreeKey.Endpoint.SOURCE,
+                                                                        sourceType,
+                                                                        UuidUtil.getUuidFromUrn(sourceUrn),
+                                                                        relationshipType));
+    }
+
+    /**
+     * Count the relationships with a particular target.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @return the number of relationships
+     * @see #countForSource(String, String, String)
+     */
+    public long countForTarget(String tenantUrn, String targetType, String targetUrn) {
+
+        return relationshipDegreeRepository.sum(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                RelationshipDegreeKey.Endpoint.TARGET,
+                                                targetType,
+                                                UuidUtil.getUuidFromUrn(targetUrn));
+    }
+
+    /**
+     * Count the relationships of a particular relationship type with a particular target.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @return the number of relationships
+     * @see #countForSource(String, String, String)
+     */
+    public long countForTarget(String tenantUrn, String targetType, String targetUrn, String relationshipType) {
+
+        return relationshipDegreeRepository.get(RelationshipDegreeKey.of(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                        RelationshipDegreeKey.Endpoint.TARGET,
+                                                                        targetType,
+                                                                        UuidUtil.getUuidFromUrn(targetUrn),
+                                                                        relationshipType));
+    }
+
+    /**
+     * Find all relationships with a particular source, one page after the other.
+     * <p>
+     * Unlike {@link #findAllForSource(String, String, String, Integer, Integer, SortOrder, String)}, the query continues after the last
+     * relationship of the previous page instead of skipping all previous rows, so deep pages are as fast as the first one and don't
+     * shift when relationships are created in between. The results are sorted by creation date.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param cursor the continuation token of the previous page, or {@code null} for the first page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @return
+     */
+    public CursorPage<RelationshipResponse> findAllForSourceAfter(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String cursor,
+        Integer size,
+        SortOrder sortOrder) {
 
-        return conversionService.convert(entityPage,
-                                         RelationshipPersistenceUtil.emptyPage()
-                                             .getClass());
+        return findByTypeForSourceAfter(tenantUrn, sourceType, sourceUrn, null, cursor, size, sortOrder);
+    }
+
+    /**
+     * Find all relationships with a particular target, one page after the other.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param cursor the continuation token of the previous page, or {@code null} for the first page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @return
+     * @see #findAllForSourceAfter(String, String, String, String, Integer, SortOrder)
+     */
+    public CursorPage<RelationshipResponse> findAllForTargetAfter(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        String cursor,
+        Integer size,
+        SortOrder sortOrder) {
+
+        return findByTypeForTargetAfter(tenantUrn, targetType, targetUrn, null, cursor, size, sortOrder);
+    }
+
+    /**
+     * Find all relationships of a particular relationshipType with a particular source, one page after the other.
+     *
+     * @param tenantUrn the tenant URN, or a blank value to find the relationships of all tenants
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @param cursor the continuation token of the previous page, or {@code null} for the first page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @return
+     * @see #findAllForSourceAfter(String, String, String, String, Integer, SortOrder)
+     */
+    public CursorPage<RelationshipResponse> findByTypeForSourceAfter(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String relationshipType,
+        String cursor,
+        Integer size,
+        SortOrder sortOrder) {
+
+        int pageSize = PageableUtil.getPageSize(size);
+        if (isJdbcReadEngine()) {
+            return relationshipJdbcRepository.findForSourceAfter(StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                 sourceType,
+                                                                 UuidUtil.getUuidFromUrn(sourceUrn),
+                                                                 relationshipType,
+                                                                 CursorUtil.decode(cursor),
+                                                                 getSortDirection(sortOrder),
+                                                                 pageSize);
+        }
+
+        List<RelationshipEntity> entities = relationshipRepository.findForSourceAfter(
+            StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn),
+            sourceType,
+            UuidUtil.getUuidFromUrn(sourceUrn),
+            relationshipType,
+            CursorUtil.decode(cursor),
+            getSortDirection(sortOrder),
+            pageSize + 1);
+
+        return toCursorPage(entities, pageSize);
+    }
+
+    /**
+     * Find all relationships of a particular relationshipType with a particular target, one page after the other.
+     *
+     * @param tenantUrn the tenant URN, or a blank value to find the relationships of all tenants
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipType the relationship type
+     * @param cursor the continuation token of the previous page, or {@code null} for the first page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @return
+     * @see #findAllForSourceAfter(String, String, String, String, Integer, SortOrder)
+     */
+    public CursorPage<RelationshipResponse> findByTypeForTargetAfter(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType,
+        String cursor,
+        Integer size,
+        SortOrder sortOrder) {
+
+        int pageSize = PageableUtil.getPageSize(size);
+        if (isJdbcReadEngine()) {
+            return relationshipJdbcRepository.findForTargetAfter(StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn),
+                                                                 targetType,
+                                                                 UuidUtil.getUuidFromUrn(targetUrn),
+                                                                 relationshipType,
+                                                                 CursorUtil.decode(cursor),
+                                                                 getSortDirection(sortOrder),
+                                                                 pageSize);
+        }
+
+        List<RelationshipEntity> entities = relationshipRepository.findForTargetAfter(
+            StringUtils.isBlank(tenantUrn) ? null : UuidUtil.getUuidFromUrn(tenantUrn),
+            targetType,
+            UuidUtil.getUuidFromUrn(targetUrn),
+            relationshipType,
+            CursorUtil.decode(cursor),
+            getSortDirection(sortOrder),
+            pageSize + 1);
+
+        return toCursorPage(entities, pageSize);
+    }
+
+    /**
+     * Stream all relationships with a particular source, ordered by creation date.
+     * <p>
+     * Use this instead of {@link #findAllForSource(String, String, String, Integer, Integer, SortOrder, String)} to walk through all
+     * relationships of a source. The relationships are read with a single query and fetched from the database in chunks of the configured
+     * {@code smartcosmos.dao.relationships.stream-fetch-size}, and memory usage doesn't grow with the number of relationships. The stream
+     * holds a database connection until it is closed, so it must be used in a try-with-resources block.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @return the stream of relationships
+     */
+    public Stream<RelationshipResponse> streamAllForSource(String tenantUrn, String sourceType, String sourceUrn) {
+
+        return relationshipRepository.streamForSource(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                      sourceType,
+                                                      UuidUtil.getUuidFromUrn(sourceUrn),
+                                                      null,
+                                                      properties.getStreamFetchSize())
+            .map(RelationshipEntityToRelationshipResponseConverter::toResponse);
+    }
+
+    /**
+     * Stream all relationships with a particular target, ordered by creation date.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @return the stream of relationships
+     * @see #streamAllForSource(String, String, String)
+     */
+    public Stream<RelationshipResponse> streamAllForTarget(String tenantUrn, String targetType, String targetUrn) {
+
+        return relationshipRepository.streamForTarget(UuidUtil.getUuidFromUrn(tenantUrn),
+                                                      targetType,
+                                                      UuidUtil.getUuidFromUrn(targetUrn),
+                                                      null,
+                                                      properties.getStreamFetchSize())
+            .map(RelationshipEntityToRelationshipResponseConverter::toResponse);
     }
 
     /**
      * Saves an object entity in an {@link RelationshipRepository}.
      *
      * @param relationshipEntity the object entity to persist
-     * @return the persisted object entity
+     * @return the persisted object entity, or {@code Optional.empty()} if the relationship already exists
      * @throws ConstraintViolationException if the transaction fails due to violated constraints
      * @throws TransactionException         if the transaction fails because of something else
      */
-    private RelationshipEntity persist(RelationshipEntity relationshipEntity) throws ConstraintViolationException, TransactionException {
+    private Optional<RelationshipEntity> persist(RelationshipEntity relationshipEntity) throws ConstraintViolationException, TransactionException {
 
         try {
-            return relationshipRepository.save(relationshipEntity);
+            // inserted like a batch, so that the degree counters are incremented in the same transaction
+            RelationshipEntity created = relationshipRepository.insertAll(Collections.singletonList(relationshipEntity))
+                .get(0);
+            invalidate(created);
+            return Optional.of(created);
+        } catch (DataIntegrityViolationException e) {
+            if (RelationshipPersistenceUtil.isDuplicateRelationship(e)) {
+                return Optional.empty();
+            }
+            throw e;
         } catch (TransactionException e) {
 
             // we expect constraint violations to be the root cause for exceptions here,
@@ -371,15 +1118,120 @@ public class RelationshipPersistenceService implements RelationshipDao {
     }
 
     /**
-     * Converts a list of RelationshipEntity to a list of RelationshipResonse.
+     * Removes a created or deleted relationship from the caches, including the cached pages of its source and target.
      *
-     * @param entityList
-     * @return
+     * @param relationshipEntity the created or deleted relationship
+     */
+    private void invalidate(RelationshipEntity relationshipEntity) {
+
+        relationshipCache.invalidate(relationshipEntity);
+        adjacencyPageCache.invalidate(relationshipEntity);
+    }
+
+    /**
+     * Converts a RelationshipCreate to a new RelationshipEntity of a tenant.
+     *
+     * @param tenantId the tenant ID
+     * @param createRelationship the relationship to create
+     * @return the entity
+     * @throws IllegalArgumentException if the source or target URN is invalid
      */
-    private List<RelationshipResponse> convertList(List<RelationshipEntity> entityList) {
+    private RelationshipEntity toEntity(UUID tenantId, RelationshipCreate createRelationship) throws IllegalArgumentException {
+
+        RelationshipEntity entity;
+        try {
+            entity = conversionService.convert(createRelationship, RelationshipEntity.class);
+        } catch (ConversionFailedException e) {
+            // the URNs are only parsed during conversion, so we unwrap invalid URN failures for the caller
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw e;
+        }
+        entity.setTenantId(tenantId);
+
+        return entity;
+    }
+
+    private Map<UUID, String> getUrnsById(Collection<String> urns) {
+
+        Map<UUID, String> urnsById = new LinkedHashMap<>();
+        for (String urn : urns) {
+            urnsById.putIfAbsent(UuidUtil.getUuidFromUrn(urn), urn);
+        }
+        return urnsById;
+    }
+
+    private <T> Map<String, List<RelationshipResponse>> toResponsesByUrn(
+        Map<UUID, String> urnsById,
+        Map<UUID, List<T>> relationships,
+        Function<List<T>, List<RelationshipResponse>> converter) {
+
+        Map<String, List<RelationshipResponse>> responses = new LinkedHashMap<>();
+        urnsById.forEach((id, urn) -> responses.put(urn, converter.apply(relationships.getOrDefault(id, Collections.emptyList()))));
+        return responses;
+    }
+
+    /**
+     * Runs a paged query, either as a page with a count of all results or as a slice without.
+     * <p>
+     * With the JDBC read engine, the JPA queries aren't used, but the relationships that match the criteria are read with plain JDBC.
+     *
+     * @param pageMode the page mode, {@code PAGE} if {@code null}
+     * @param pageable the page request
+     * @param criteria the criteria of the query, for the JDBC read engine
+     * @param pageQuery the query that returns a page
+     * @param sliceQuery the query that returns a slice
+     * @return the converted page
+     */
+    private Page<RelationshipResponse> findPage(
+        PageMode pageMode,
+        Pageable pageable,
+        Map<String, Object> criteria,
+        Function<Pageable, org.springframework.data.domain.Page<RelationshipEntity>> pageQuery,
+        Function<Pageable, Slice<RelationshipEntity>> sliceQuery) {
+
+        if (isJdbcReadEngine()) {
+            Slice<RelationshipResponse> relationships = relationshipJdbcRepository.findPage(criteria, pageable, pageMode);
+            return Page.<RelationshipResponse>builder()
+                .data(relationships.getContent())
+                .page(RelationshipPersistenceUtil.getPageInformation(relationships))
+                .build();
+        }
+
+        Slice<RelationshipEntity> entities = pageMode == PageMode.SLICE ? sliceQuery.apply(pageable) : pageQuery.apply(pageable);
+
+        return SpringDataPageToRelationshipResponsePageConverter.toPage(entities);
+    }
+
+    private boolean isJdbcReadEngine() {
+
+        return properties.getReadEngine() == ReadEngine.JDBC;
+    }
+
+    private Sort.Direction getSortDirection(SortOrder sortOrder) {
+
+        return sortOrder != null ? RelationshipPersistenceUtil.getSortDirection(sortOrder) : Sort.DEFAULT_DIRECTION;
+    }
+
+    /**
+     * Converts the result of a seek query, which fetches one relationship more than the page size to find out if there is a next page.
+     *
+     * @param entities the result of the query
+     * @param size the page size
+     * @return the page
+     */
+    private CursorPage<RelationshipResponse> toCursorPage(List<RelationshipEntity> entities, int size) {
+
+        String nextCursor = null;
+        if (entities.size() > size) {
+            entities = entities.subList(0, size);
+            nextCursor = CursorUtil.encode(RelationshipCursor.of(entities.get(size - 1)));
+        }
 
-        return entityList.stream()
-            .map(o -> conversionService.convert(o, RelationshipResponse.class))
-            .collect(Collectors.toList());
+        return CursorPage.<RelationshipResponse>builder()
+            .data(toResponses(entities))
+            .nextCursor(nextCursor)
+            .build();
     }
 }
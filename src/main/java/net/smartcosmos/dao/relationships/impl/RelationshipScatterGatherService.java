@@ -0,0 +1,294 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.stereotype.Service;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.util.DataSourcePoolUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Runs several calls of {@link RelationshipPersistenceService} concurrently and returns their results together, so the latency of the
+ * whole is close to that of the slowest call.
+ * <p>
+ * Each call runs on its own virtual thread if the JVM supports them (Java 21 and later), and on a platform thread otherwise. A semaphore
+ * that is shared by all callers bounds the number of calls running at the same time to the size of the JDBC connection pool, unless
+ * configured otherwise. The caller waits for a permit before starting each call, so there are never more threads than permits.
+ */
+@Slf4j
+@Service
+public class RelationshipScatterGatherService {
+
+    private final RelationshipPersistenceService relationshipPersistenceService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    @Autowired
+    public RelationshipScatterGatherService(
+        RelationshipPersistenceService relationshipPersistenceService,
+        RelationshipPersistenceProperties properties,
+        ObjectProvider<DataSource> dataSource,
+        ObjectProvider<List<DataSourcePoolMetadataProvider>> poolMetadataProviders) {
+
+        this.relationshipPersistenceService = relationshipPersistenceService;
+
+        int configuredConcurrency = properties.getScatterGather()
+            .getMaxConcurrency();
+        maxConcurrency = configuredConcurrency > 0
+                         ? configuredConcurrency
+                         : DataSourcePoolUtil.getMaximumPoolSize(dataSource.getIfAvailable(), poolMetadataProviders.getIfAvailable());
+        permits = new Semaphore(maxConcurrency, true);
+
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        executor = virtualThreadExecutor != null ? virtualThreadExecutor : Executors.newCachedThreadPool(new ScatterGatherThreadFactory());
+        log.info("Running up to {} scatter-gather relationship calls on {} threads",
+                 maxConcurrency,
+                 virtualThreadExecutor != null ? "virtual" : "platform");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        executor.shutdown();
+    }
+
+    /**
+     * Runs calls of {@link RelationshipPersistenceService} concurrently and waits for all of them.
+     * <p>
+     * If a call fails, the calls that didn't start yet are cancelled, and its exception is thrown once the running calls are done.
+     *
+     * @param calls the calls
+     * @param <T> the result type
+     * @return the results in the order of the calls
+     * @throws IllegalStateException if the calling thread is interrupted while waiting
+     */
+    public <T> List<T> gather(List<Function<RelationshipPersistenceService, T>> calls) throws IllegalStateException {
+
+        List<PermitCall<T>> permitCalls = new ArrayList<>(calls.size());
+        List<Future<T>> futures = new ArrayList<>(calls.size());
+        try {
+            for (Function<RelationshipPersistenceService, T> call : calls) {
+                permits.acquire();
+                PermitCall<T> permitCall = new PermitCall<>(call);
+                try {
+                    futures.add(executor.submit(permitCall));
+                } catch (RuntimeException e) {
+                    permitCall.releaseUnlessStarted();
+                    throw e;
+                }
+                permitCalls.add(permitCall);
+            }
+
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            throw new IllegalStateException("Interrupted while waiting for relationship calls", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            // only cancels calls that are still waiting, since running JDBC calls don't react to interrupts anyway
+            futures.forEach(future -> future.cancel(false));
+            // a call that was cancelled before it started never releases its permit itself
+            permitCalls.forEach(PermitCall::releaseUnlessStarted);
+        }
+    }
+
+    /**
+     * Find the relationships of several relationship types with a particular source at once.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source entity type
+     * @param sourceUrn the source entity's system-assigned URN
+     * @param relationshipTypes the relationship types
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @param sortBy name of the field to sort by
+     * @return the page of each relationship type, in the order of the relationship types
+     * @see RelationshipPersistenceService#findByTypeForSource(String, String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public Map<String, Page<RelationshipResponse>> findByTypesForSource(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        List<String> relationshipTypes,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        List<Function<RelationshipPersistenceService, Page<RelationshipResponse>>> calls = new ArrayList<>(relationshipTypes.size());
+        for (String relationshipType : relationshipTypes) {
+            calls.add(dao -> dao.findByTypeForSource(tenantUrn, sourceType, sourceUrn, relationshipType, page, size, sortOrder, sortBy));
+        }
+
+        return toMap(relationshipTypes, gather(calls));
+    }
+
+    /**
+     * Find the relationships of several relationship types with a particular target at once.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target entity type
+     * @param targetUrn the target entity's system-assigned URN
+     * @param relationshipTypes the relationship types
+     * @param page the number of the results page
+     * @param size the size of a results page
+     * @param sortOrder order to sort the result, can be {@code ASC} or {@code DESC}
+     * @param sortBy name of the field to sort by
+     * @return the page of each relationship type, in the order of the relationship types
+     * @see RelationshipPersistenceService#findByTypeForTarget(String, String, String, String, Integer, Integer, SortOrder, String)
+     */
+    public Map<String, Page<RelationshipResponse>> findByTypesForTarget(
+        String tenantUrn,
+        String targetType,
+        String targetUrn,
+        List<String> relationshipTypes,
+        Integer page,
+        Integer size,
+        SortOrder sortOrder,
+        String sortBy) {
+
+        List<Function<RelationshipPersistenceService, Page<RelationshipResponse>>> calls = new ArrayList<>(relationshipTypes.size());
+        for (String relationshipType : relationshipTypes) {
+            calls.add(dao -> dao.findByTypeForTarget(tenantUrn, targetType, targetUrn, relationshipType, page, size, sortOrder, sortBy));
+        }
+
+        return toMap(relationshipTypes, gather(calls));
+    }
+
+    /**
+     * Gets the maximum number of calls that run at the same time.
+     *
+     * @return the maximum concurrency
+     */
+    public int getMaxConcurrency() {
+
+        return maxConcurrency;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, without depending on Java 21 at compile time.
+     *
+     * @return the executor, or {@code null} if the JVM doesn't support virtual threads
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // e.g. Java 19 and 20 without --enable-preview
+            log.debug("Virtual threads are not available", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the number of calls that may still start right now.
+     *
+     * @return the available permits
+     */
+    int getAvailablePermits() {
+
+        return permits.availablePermits();
+    }
+
+    private static <K, V> Map<K, V> toMap(List<K> keys, List<V> values) {
+
+        Map<K, V> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), values.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * Runs a call with a permit that was acquired for it, and releases the permit exactly once, either when the call is done or, if it never
+     * started, when it is given up.
+     */
+    private class PermitCall<T> implements Callable<T> {
+
+        private final Function<RelationshipPersistenceService, T> call;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PermitCall(Function<RelationshipPersistenceService, T> call) {
+
+            this.call = call;
+        }
+
+        @Override
+        public T call() throws Exception {
+
+            if (!claimed.compareAndSet(false, true)) {
+                // given up before it started, the permit is already released
+                return null;
+            }
+            try {
+                return call.apply(relationshipPersistenceService);
+            } finally {
+                permits.release();
+            }
+        }
+
+        void releaseUnlessStarted() {
+
+            if (claimed.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private static class ScatterGatherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "relationship-scatter-gather-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.MetricsUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+
+/**
+ * Write-behind facade of {@link RelationshipPersistenceService} for high-rate creation of relationships.
+ * <p>
+ * If enabled, creates are buffered and acknowledged with a future that completes once the relationship is written. A background thread
+ * writes the buffer in batches of {@link RelationshipPersistenceService#createAll(String, List)}, as soon as a batch is full or the flush
+ * interval elapsed. Creates of a relationship that is already buffered are coalesced with it. If the buffer is full, a create waits for
+ * space up to the offer timeout and is then rejected with a {@link RejectedExecutionException}. The buffer is flushed on shutdown.
+ * <p>
+ * Relationships that are buffered are lost if the process dies, so callers must be able to repeat creates that weren't acknowledged yet.
+ * If disabled, creates are written right away.
+ * <p>
+ * Unless metrics are disabled, the writing of each batch is timed as {@value #FLUSH} and the number of buffered creates is registered as
+ * the gauge {@value #BUFFER_DEPTH}, in the same meter registry as the metrics of the DAO calls.
+ */
+@Slf4j
+@Service
+public class WriteBehindRelationshipPersistenceService {
+
+    public static final String FLUSH = "relationships.dao.writebehind.flush";
+    public static final String BUFFER_DEPTH = "relationships.dao.writebehind.buffer.depth";
+
+    private final RelationshipPersistenceService relationshipPersistenceService;
+    private final RelationshipPersistenceProperties.WriteBehind config;
+
+    private final Queue<PendingCreate> buffer = new ConcurrentLinkedQueue<>();
+    private final Map<List<String>, PendingCreate> buffered = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Semaphore capacity;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushTimeNanos = new AtomicLong();
+    private final AtomicLong maxFlushTimeNanos = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final Timer flushTimer;
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public WriteBehindRelationshipPersistenceService(
+        RelationshipPersistenceService relationshipPersistenceService,
+        RelationshipPersistenceProperties properties,
+        ObjectProvider<MeterRegistry> meterRegistry) {
+
+        this.relationshipPersistenceService = relationshipPersistenceService;
+        this.config = properties.getWriteBehind();
+        this.capacity = new Semaphore(config.getCapacity());
+
+        if (properties.getMetrics()
+            .isEnabled()) {
+            MeterRegistry registry = MetricsUtil.getRegistry(meterRegistry.getIfAvailable());
+            flushTimer = Timer.builder(FLUSH)
+                .description("Time to write a batch of buffered relationship creates")
+                .publishPercentileHistogram()
+                .register(registry);
+            Gauge.builder(BUFFER_DEPTH, depth, AtomicInteger::get)
+                .description("Number of buffered relationship creates")
+                .register(registry);
+        } else {
+            flushTimer = null;
+        }
+
+        if (config.isEnabled()) {
+            flusher = new Thread(this::flushContinuously, "relationship-write-behind");
+            flusher.setDaemon(true);
+            flusher.start();
+            log.info("Buffering up to {} relationship creates, flushed in batches of {} or every {} ms",
+                     config.getCapacity(),
+                     config.getBatchSize(),
+                     config.getFlushIntervalMillis());
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Flushes the buffer and stops the background thread. Creates after shutdown are rejected.
+     */
+    @PreDestroy
+    public void shutdown() {
+
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Create a relationship, or get it if it already exists.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createRelationship the relationship to create
+     * @return the future result, which completes once the relationship is written, telling whether the relationship was created or already
+     * existed; coalesced creates of the same relationship tell that it already existed
+     * @see RelationshipPersistenceService#createOrGet(String, RelationshipCreate)
+     */
+    public CompletableFuture<RelationshipCreateResult> create(String tenantUrn, RelationshipCreate createRelationship) {
+
+        if (!config.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(relationshipPersistenceService.createOrGet(tenantUrn, createRelationship));
+            } catch (RuntimeException e) {
+                return failed(e);
+            }
+        }
+        if (!running) {
+            return failed(new RejectedExecutionException("Relationship write-behind buffer is shut down"));
+        }
+
+        List<String> key = getKey(tenantUrn, createRelationship);
+        PendingCreate existing = buffered.get(key);
+        if (existing != null) {
+            return coalesce(existing);
+        }
+
+        try {
+            if (!capacity.tryAcquire(config.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                rejectedCount.incrementAndGet();
+                return failed(new RejectedExecutionException("Relationship write-behind buffer is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            return failed(e);
+        }
+
+        PendingCreate pending = new PendingCreate(key, tenantUrn, createRelationship);
+        existing = buffered.putIfAbsent(key, pending);
+        if (existing != null) {
+            capacity.release();
+            return coalesce(existing);
+        }
+
+        buffer.offer(pending);
+        if (depth.incrementAndGet() >= config.getBatchSize()) {
+            LockSupport.unpark(flusher);
+        }
+        if (!running) {
+            // shut down in the meantime, so the final flush may have missed it
+            flush();
+        }
+        return pending.future;
+    }
+
+    /**
+     * Writes all buffered creates, and waits until they are written.
+     */
+    public void flush() {
+
+        flushLock.lock();
+        try {
+            while (depth.get() > 0) {
+                writeBatch();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of buffered creates.
+     *
+     * @return the buffer depth
+     */
+    public int getDepth() {
+
+        return depth.get();
+    }
+
+    /**
+     * Gets the number of batches that were written.
+     *
+     * @return the number of flushes
+     */
+    public long getFlushCount() {
+
+        return flushCount.get();
+    }
+
+    /**
+     * Gets the total time spent writing batches.
+     *
+     * @return the flush time in nanoseconds
+     */
+    public long getFlushTimeNanos() {
+
+        return flushTimeNanos.get();
+    }
+
+    /**
+     * Gets the longest time spent writing a batch.
+     *
+     * @return the maximum flush time in nanoseconds
+     */
+    public long getMaxFlushTimeNanos() {
+
+        return maxFlushTimeNanos.get();
+    }
+
+    /**
+     * Gets the number of buffered creates that were written, including those that failed.
+     *
+     * @return the number of written creates
+     */
+    public long getWrittenCount() {
+
+        return writtenCount.get();
+    }
+
+    /**
+     * Gets the number of creates that were coalesced with a buffered create of the same relationship.
+     *
+     * @return the number of coalesced creates
+     */
+    public long getCoalescedCount() {
+
+        return coalescedCount.get();
+    }
+
+    /**
+     * Gets the number of creates that were rejected because the buffer was full.
+     *
+     * @return the number of rejected creates
+     */
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+    private void flushContinuously() {
+
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        while (running) {
+            if (depth.get() < config.getBatchSize()) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Flushing buffered relationship creates failed", e);
+            }
+        }
+    }
+
+    /**
+     * Writes up to a batch of buffered creates, one transaction per tenant. If a transaction fails, e.g. because one of the relationships
+     * is invalid, the creates of that tenant are written one by one, so only the invalid creates fail.
+     */
+    private void writeBatch() {
+
+        Map<String, List<PendingCreate>> batch = new LinkedHashMap<>();
+        for (int i = 0; i < config.getBatchSize(); i++) {
+            PendingCreate pending = buffer.poll();
+            if (pending == null) {
+                break;
+            }
+            depth.decrementAndGet();
+            batch.computeIfAbsent(pending.tenantUrn, tenantUrn -> new ArrayList<>())
+                .add(pending);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // the futures are completed after the flush is recorded, so that callers see the statistics of the flush that wrote their creates
+        List<Runnable> completions = new ArrayList<>();
+        long start = System.nanoTime();
+        for (Map.Entry<String, List<PendingCreate>> entry : batch.entrySet()) {
+            List<PendingCreate> creates = entry.getValue();
+            List<RelationshipCreateResult> results = null;
+            try {
+                List<RelationshipCreate> relationships = new ArrayList<>(creates.size());
+                creates.forEach(pending -> relationships.add(pending.createRelationship));
+                results = relationshipPersistenceService.createAll(entry.getKey(), relationships);
+            } catch (RuntimeException e) {
+                log.debug("Writing a batch of {} relationships failed, writing them one by one", creates.size(), e);
+            }
+
+            for (int i = 0; i < creates.size(); i++) {
+                PendingCreate pending = creates.get(i);
+                if (results != null) {
+                    RelationshipCreateResult result = results.get(i);
+                    completions.add(() -> complete(pending, result, null));
+                } else {
+                    try {
+                        RelationshipCreateResult result = relationshipPersistenceService.createOrGet(pending.tenantUrn,
+                                                                                                     pending.createRelationship);
+                        completions.add(() -> complete(pending, result, null));
+                    } catch (RuntimeException e) {
+                        completions.add(() -> complete(pending, null, e));
+                    }
+                }
+            }
+        }
+
+        long time = System.nanoTime() - start;
+        flushCount.incrementAndGet();
+        flushTimeNanos.addAndGet(time);
+        maxFlushTimeNanos.accumulateAndGet(time, Math::max);
+        if (flushTimer != null) {
+            flushTimer.record(time, TimeUnit.NANOSECONDS);
+        }
+
+        completions.forEach(Runnable::run);
+    }
+
+    private void complete(PendingCreate pending, RelationshipCreateResult result, Throwable failure) {
+
+        // removed first, so that a create of the same relationship after the completion isn't coalesced with it anymore
+        buffered.remove(pending.key, pending);
+        capacity.release();
+        writtenCount.incrementAndGet();
+
+        if (failure != null) {
+            pending.future.completeExceptionally(failure);
+        } else {
+            pending.future.complete(result);
+        }
+    }
+
+    private CompletableFuture<RelationshipCreateResult> coalesce(PendingCreate pending) {
+
+        coalescedCount.incrementAndGet();
+        return pending.future.thenApply(result -> RelationshipCreateResult.builder()
+            .created(false)
+            .relationship(result.getRelationship())
+            .build());
+    }
+
+    private static List<String> getKey(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return Arrays.asList(tenantUrn,
+                             createRelationship.getSource() != null ? createRelationship.getSource()
+                                 .getType() : null,
+                             createRelationship.getSource() != null ? createRelationship.getSource()
+                                 .getUrn() : null,
+                             createRelationship.getRelationshipType(),
+                             createRelationship.getTarget() != null ? createRelationship.getTarget()
+                                 .getType() : null,
+                             createRelationship.getTarget() != null ? createRelationship.getTarget()
+                                 .getUrn() : null);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    private static class PendingCreate {
+
+        private final List<String> key;
+        private final String tenantUrn;
+        private final RelationshipCreate createRelationship;
+        private final CompletableFuture<RelationshipCreateResult> future = new CompletableFuture<>();
+
+        PendingCreate(List<String> key, String tenantUrn, RelationshipCreate createRelationship) {
+
+            this.key = key;
+            this.tenantUrn = tenantUrn;
+            this.createRelationship = createRelationship;
+        }
+    }
+}
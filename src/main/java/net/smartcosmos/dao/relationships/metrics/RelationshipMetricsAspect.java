@@ -0,0 +1,244 @@
+package net.smartcosmos.dao.relationships.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.CursorPage;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.MetricsUtil;
+import net.smartcosmos.dao.relationships.util.PageableUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Records Micrometer metrics of every call of {@code RelationshipPersistenceService}, in the meter registry of the application, or else in
+ * the global registry.
+ * <ul>
+ * <li>{@value #CALLS} times the calls with percentile histograms, tagged with the simple name of a thrown exception as {@code exception}</li>
+ * <li>{@value #OUTCOMES} counts the created, duplicate and deleted relationships by {@code outcome}</li>
+ * <li>{@value #RETURNED} summarizes the number of relationships returned by the finders</li>
+ * <li>{@value #OFFSET} summarizes the offset of the requested pages</li>
+ * </ul>
+ * All metrics are tagged with the method name as {@code operation}, and with the relationship type as {@code relationshipType}, taken from a
+ * parameter of that name, a {@link RelationshipCreate} argument or the created relationship, or {@code none}. The tenant URN is only added
+ * as {@code tenant} if configured. Streams are timed until they are returned, not until they are consumed.
+ * <p>
+ * If configured, Hibernate statistics are collected and exported as well, tagged with {@code entityManagerFactory}.
+ */
+@Aspect
+@Component
+public class RelationshipMetricsAspect {
+
+    public static final String CALLS = "relationships.dao.calls";
+    public static final String OUTCOMES = "relationships.dao.outcomes";
+    public static final String RETURNED = "relationships.dao.returned";
+    public static final String OFFSET = "relationships.dao.offset";
+
+    static final String NONE = "none";
+
+    private final RelationshipPersistenceProperties.Metrics config;
+    private final MeterRegistry registry;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final Map<Method, Parameters> parameters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RelationshipMetricsAspect(
+        RelationshipPersistenceProperties properties,
+        ObjectProvider<MeterRegistry> registry,
+        ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+
+        this.config = properties.getMetrics();
+        this.registry = MetricsUtil.getRegistry(registry.getIfAvailable());
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void bindHibernateStatistics() {
+
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (!config.isEnabled() || !config.isHibernateStatistics() || factory == null) {
+            return;
+        }
+
+        factory.unwrap(SessionFactory.class)
+            .getStatistics()
+            .setStatisticsEnabled(true);
+        HibernateMetrics.monitor(registry, factory, "entityManagerFactory", Tags.empty());
+    }
+
+    @Around("execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        if (!config.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Parameters parameters = this.parameters.computeIfAbsent(signature.getMethod(), method -> new Parameters(signature.getParameterNames()));
+        Object[] args = joinPoint.getArgs();
+        String operation = signature.getName();
+        String relationshipType = parameters.getRelationshipType(args);
+        Tags tags = Tags.of("operation", operation);
+        if (config.isTenantTag()) {
+            tags = tags.and("tenant", args.length > 0 && args[0] instanceof String ? (String) args[0] : NONE);
+        }
+
+        String exception = NONE;
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            record(operation, tags, relationshipType, parameters, args, result);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass()
+                .getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder(CALLS)
+                .tags(tags)
+                .tag("relationshipType", relationshipType)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void record(String operation, Tags tags, String relationshipType, Parameters parameters, Object[] args, Object result) {
+
+        Tags typeTags = tags.and("relationshipType", relationshipType);
+
+        if (operation.startsWith("create")) {
+            if (result instanceof Optional) {
+                count(typeTags, ((Optional<?>) result).isPresent() ? "created" : "duplicate");
+            } else if (result instanceof RelationshipCreateResult) {
+                countCreateResult(tags, relationshipType, (RelationshipCreateResult) result);
+            } else if (result instanceof Collection) {
+                for (Object createResult : (Collection<?>) result) {
+                    countCreateResult(tags, relationshipType, (RelationshipCreateResult) createResult);
+                }
+            }
+        } else if (operation.equals("delete") && result instanceof List) {
+            for (Object deleted : (List<?>) result) {
+                count(tags.and("relationshipType", getRelationshipType((RelationshipResponse) deleted, relationshipType)), "deleted");
+            }
+        } else if (operation.startsWith("find")) {
+            DistributionSummary.builder(RETURNED)
+                .tags(typeTags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(countReturned(result));
+
+            if (parameters.page >= 0 && parameters.size >= 0) {
+                Integer page = (Integer) args[parameters.page];
+                long offset = (page != null ? page - 1L : 0L) * PageableUtil.getPageSize((Integer) args[parameters.size]);
+                DistributionSummary.builder(OFFSET)
+                    .tags(typeTags)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(offset);
+            }
+        }
+    }
+
+    private void countCreateResult(Tags tags, String relationshipType, RelationshipCreateResult result) {
+
+        count(tags.and("relationshipType", getRelationshipType(result.getRelationship(), relationshipType)),
+              result.isCreated() ? "created" : "duplicate");
+    }
+
+    private void count(Tags tags, String outcome) {
+
+        registry.counter(OUTCOMES, tags.and("outcome", outcome))
+            .increment();
+    }
+
+    private static String getRelationshipType(RelationshipResponse relationship, String fallback) {
+
+        return relationship != null && relationship.getRelationshipType() != null ? relationship.getRelationshipType() : fallback;
+    }
+
+    private static int countReturned(Object result) {
+
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Page) {
+            return ((Page<?>) result).getData()
+                .size();
+        }
+        if (result instanceof CursorPage) {
+            return ((CursorPage<?>) result).getData()
+                .size();
+        }
+        if (result instanceof long[]) {
+            // packed IDs take two elements each
+            return ((long[]) result).length / 2;
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).values()
+                .stream()
+                .mapToInt(relationships -> ((Collection<?>) relationships).size())
+                .sum();
+        }
+        return result instanceof Collection ? ((Collection<?>) result).size() : 0;
+    }
+
+    /**
+     * Positions of the parameters of a method that the metrics are taken from, or {@code -1} if the method doesn't have them.
+     */
+    private static class Parameters {
+
+        private final int relationshipType;
+        private final int page;
+        private final int size;
+
+        Parameters(String[] names) {
+
+            List<String> list = names != null ? Arrays.asList(names) : null;
+            relationshipType = list != null ? list.indexOf("relationshipType") : -1;
+            page = list != null ? list.indexOf("page") : -1;
+            size = list != null ? list.indexOf("size") : -1;
+        }
+
+        String getRelationshipType(Object[] args) {
+
+            Object type = null;
+            if (relationshipType >= 0) {
+                type = args[relationshipType];
+            } else {
+                for (Object arg : args) {
+                    if (arg instanceof RelationshipCreate) {
+                        type = ((RelationshipCreate) arg).getRelationshipType();
+                    }
+                }
+            }
+            return type != null ? type.toString() : NONE;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.smartcosmos.dao.relationships.r2dbc;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+
+/**
+ * Creates the {@link R2dbcRelationshipPersistenceService} if an R2DBC URL is configured.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "smartcosmos.dao.relationships.r2dbc", name = "url")
+public class R2dbcRelationshipPersistenceConfig {
+
+    @Bean
+    public R2dbcRelationshipPersistenceService r2dbcRelationshipPersistenceService(RelationshipPersistenceProperties properties) {
+
+        RelationshipPersistenceProperties.R2dbc config = properties.getR2dbc();
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(config.getUrl())
+            .mutate();
+        if (config.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, config.getUsername());
+        }
+        if (config.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, config.getPassword());
+        }
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+        log.info("Serving non-blocking relationship calls through R2DBC driver {}", connectionFactory.getMetadata()
+            .getName());
+        return new R2dbcRelationshipPersistenceService(connectionFactory);
+    }
+}
@@ -0,0 +1,397 @@
+package net.smartcosmos.dao.relationships.r2dbc;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import net.smartcosmos.dao.relationships.converter.RelationshipCreateToRelationshipEntityConverter;
+import net.smartcosmos.dao.relationships.converter.RelationshipEntityToRelationshipResponseConverter;
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.util.RelationshipPersistenceUtil;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Non-blocking relationship DAO on R2DBC, which returns publishers instead of blocking a thread until the database replies.
+ * <p>
+ * It reads and writes the same {@code relationship} and {@code relationship_degree} tables as {@code RelationshipPersistenceService}, with
+ * the column names of the database migrations, and has the same URN semantics, so both can be used side by side. Relationships that are
+ * created or deleted here aren't evicted from the caches of {@code RelationshipPersistenceService}, though.
+ * <p>
+ * Each subscription takes a connection from the connection factory, and closes it when the publisher completes, fails or is cancelled. The
+ * relationships of a source or target are only fetched as the subscriber requests them, as far as the driver supports backpressure.
+ * Creates and deletes maintain the degree counters in the same transaction, with one upsert per counter in key order, like
+ * {@code RelationshipRepositoryImpl}.
+ */
+public class R2dbcRelationshipPersistenceService {
+
+    private static final String H2 = "H2";
+
+    private static final String COLUMNS = "id, tenantId, sourceType, sourceId, relationshipType, targetType, targetId";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM relationship WHERE tenantId = ? AND ";
+    private static final String ORDER_BY_CREATED = " ORDER BY created ASC, id ASC";
+    private static final String INSERT = "INSERT INTO relationship (" + COLUMNS + ", created, lastModified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM relationship WHERE tenantId = ? AND id = ?";
+
+    private static final String DEGREE_KEY = "tenantId, endpoint, endpointType, endpointId, relationshipType";
+    private static final String DEGREE_WHERE = " WHERE tenantId = ? AND endpoint = ? AND endpointType = ? AND endpointId = ? AND relationshipType = ?";
+    private static final String MERGE_DEGREE = "MERGE INTO relationship_degree (" + DEGREE_KEY + ", relationshipCount) KEY (" + DEGREE_KEY
+                                               + ") VALUES (?, ?, ?, ?, ?, COALESCE((SELECT relationshipCount FROM relationship_degree"
+                                               + DEGREE_WHERE + "), 0) + ?)";
+    private static final String UPSERT_DEGREE = "INSERT INTO relationship_degree (" + DEGREE_KEY + ", relationshipCount) VALUES (?, ?, ?, ?, ?, ?)"
+                                                + " ON DUPLICATE KEY UPDATE relationshipCount = relationshipCount + ?";
+    private static final String SUBTRACT_DEGREE = "UPDATE relationship_degree SET relationshipCount = relationshipCount + ?" + DEGREE_WHERE;
+    private static final String SUM_DEGREES = "SELECT SUM(relationshipCount) FROM relationship_degree"
+                                              + " WHERE tenantId = ? AND endpoint = ? AND endpointType = ? AND endpointId = ?";
+
+    private final ConnectionFactory connectionFactory;
+    private final boolean merge;
+
+    public R2dbcRelationshipPersistenceService(ConnectionFactory connectionFactory) {
+
+        this.connectionFactory = connectionFactory;
+        this.merge = H2.equals(connectionFactory.getMetadata()
+                                   .getName());
+    }
+
+    /**
+     * Creates a relationship.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createRelationship the relationship to create
+     * @return the created relationship, or an empty publisher if the relationship already exists
+     */
+    public Mono<RelationshipResponse> create(String tenantUrn, RelationshipCreate createRelationship) {
+
+        return Mono.fromCallable(() -> newEntity(UuidUtil.getUuidFromUrn(tenantUrn), createRelationship))
+            .flatMap(entity -> inTransaction(connection -> insert(connection, entity)
+                .thenMany(addDegrees(connection, RelationshipDegreeKey.deltas(singletonList(entity), 1)))
+                .thenMany(Mono.just(entity))).singleOrEmpty())
+            .map(RelationshipEntityToRelationshipResponseConverter::toResponse)
+            .onErrorResume(R2dbcRelationshipPersistenceService::isDuplicateRelationship, e -> Mono.empty());
+    }
+
+    /**
+     * Deletes a relationship.
+     *
+     * @param tenantUrn the tenant URN
+     * @param urn the relationship URN
+     * @return the deleted relationship, or an empty publisher if there is none
+     */
+    public Flux<RelationshipResponse> delete(String tenantUrn, String urn) {
+
+        return Flux.defer(() -> {
+            byte[] tenantId = id(tenantUrn);
+            byte[] id = id(urn);
+
+            return inTransaction(connection -> query(connection, SELECT + "id = ?", tenantId, id).collectList()
+                .flatMapMany(entities -> execute(connection, DELETE, tenantId, id)
+                    // a concurrent delete of the same relationship waits for our lock and then deletes nothing
+                    .filter(deleted -> deleted > 0)
+                    .flatMapMany(deleted -> subtractDegrees(connection, RelationshipDegreeKey.deltas(entities, -1))
+                        .thenMany(Flux.fromIterable(entities)))));
+        })
+            .map(RelationshipEntityToRelationshipResponseConverter::toResponse);
+    }
+
+    /**
+     * Finds a relationship by its URN.
+     *
+     * @param tenantUrn the tenant URN
+     * @param urn the relationship URN
+     * @return the relationship, or an empty publisher if there is none
+     */
+    public Mono<RelationshipResponse> findByUrn(String tenantUrn, String urn) {
+
+        return find(SELECT + "id = ?", () -> new Object[] { id(tenantUrn), id(urn) }).singleOrEmpty();
+    }
+
+    /**
+     * Finds a relationship by its natural key.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source type
+     * @param sourceUrn the source URN
+     * @param targetType the target type
+     * @param targetUrn the target URN
+     * @param relationshipType the relationship type
+     * @return the relationship, or an empty publisher if there is none
+     */
+    public Mono<RelationshipResponse> findSpecific(
+        String tenantUrn,
+        String sourceType,
+        String sourceUrn,
+        String targetType,
+        String targetUrn,
+        String relationshipType) {
+
+        return find(SELECT + "sourceType = ? AND sourceId = ? AND relationshipType = ? AND targetType = ? AND targetId = ?",
+                    () -> new Object[] { id(tenantUrn), sourceType, id(sourceUrn), relationshipType, targetType, id(targetUrn) })
+            .singleOrEmpty();
+    }
+
+    /**
+     * Finds the relationships of a source, oldest first.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source type
+     * @param sourceUrn the source URN
+     * @return the relationships
+     */
+    public Flux<RelationshipResponse> findAllForSource(String tenantUrn, String sourceType, String sourceUrn) {
+
+        return find(SELECT + "sourceType = ? AND sourceId = ?" + ORDER_BY_CREATED, () -> new Object[] { id(tenantUrn), sourceType, id(sourceUrn) });
+    }
+
+    /**
+     * Finds the relationships of a target, oldest first.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target type
+     * @param targetUrn the target URN
+     * @return the relationships
+     */
+    public Flux<RelationshipResponse> findAllForTarget(String tenantUrn, String targetType, String targetUrn) {
+
+        return find(SELECT + "targetType = ? AND targetId = ?" + ORDER_BY_CREATED, () -> new Object[] { id(tenantUrn), targetType, id(targetUrn) });
+    }
+
+    /**
+     * Finds the relationships of a relationship type of a source, oldest first.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source type
+     * @param sourceUrn the source URN
+     * @param relationshipType the relationship type
+     * @return the relationships
+     */
+    public Flux<RelationshipResponse> findByTypeForSource(String tenantUrn, String sourceType, String sourceUrn, String relationshipType) {
+
+        return find(SELECT + "sourceType = ? AND sourceId = ? AND relationshipType = ?" + ORDER_BY_CREATED,
+                    () -> new Object[] { id(tenantUrn), sourceType, id(sourceUrn), relationshipType });
+    }
+
+    /**
+     * Finds the relationships of a relationship type of a target, oldest first.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target type
+     * @param targetUrn the target URN
+     * @param relationshipType the relationship type
+     * @return the relationships
+     */
+    public Flux<RelationshipResponse> findByTypeForTarget(String tenantUrn, String targetType, String targetUrn, String relationshipType) {
+
+        return find(SELECT + "targetType = ? AND targetId = ? AND relationshipType = ?" + ORDER_BY_CREATED,
+                    () -> new Object[] { id(tenantUrn), targetType, id(targetUrn), relationshipType });
+    }
+
+    /**
+     * Counts the relationships of a source, read from the degree counters.
+     *
+     * @param tenantUrn the tenant URN
+     * @param sourceType the source type
+     * @param sourceUrn the source URN
+     * @return the number of relationships
+     */
+    public Mono<Long> countForSource(String tenantUrn, String sourceType, String sourceUrn) {
+
+        return count(tenantUrn, RelationshipDegreeKey.Endpoint.SOURCE, sourceType, sourceUrn);
+    }
+
+    /**
+     * Counts the relationships of a target, read from the degree counters.
+     *
+     * @param tenantUrn the tenant URN
+     * @param targetType the target type
+     * @param targetUrn the target URN
+     * @return the number of relationships
+     */
+    public Mono<Long> countForTarget(String tenantUrn, String targetType, String targetUrn) {
+
+        return count(tenantUrn, RelationshipDegreeKey.Endpoint.TARGET, targetType, targetUrn);
+    }
+
+    /**
+     * Runs a query on a connection of its own. The values are computed on subscription, before the connection is opened, so malformed URNs
+     * are published as errors.
+     */
+    private Flux<RelationshipResponse> find(String sql, Supplier<Object[]> values) {
+
+        return Flux.defer(() -> {
+            Object[] boundValues = values.get();
+            return Flux.usingWhen(connectionFactory.create(), connection -> query(connection, sql, boundValues), Connection::close);
+        })
+            .map(RelationshipEntityToRelationshipResponseConverter::toResponse);
+    }
+
+    private Mono<Long> count(String tenantUrn, RelationshipDegreeKey.Endpoint endpoint, String endpointType, String endpointUrn) {
+
+        return Flux.defer(() -> {
+            byte[] tenantId = id(tenantUrn);
+            byte[] endpointId = id(endpointUrn);
+
+            return Flux.usingWhen(connectionFactory.create(),
+                                  connection -> Flux.from(bind(connection.createStatement(SUM_DEGREES),
+                                                               tenantId,
+                                                               endpoint.name(),
+                                                               endpointType,
+                                                               endpointId).execute())
+                                      // SUM() is a decimal on some databases, and null if there are no counters
+                                      .concatMap(result -> result.map((row, metadata) -> toLong(row.get(0)))),
+                                  Connection::close);
+        })
+            .single(0L);
+    }
+
+    /**
+     * Runs work in a transaction on a connection of its own. Its results are only published once the transaction is committed, and the
+     * transaction is rolled back if the work fails or the subscriber cancels.
+     */
+    private <T> Flux<T> inTransaction(Function<Connection, Publisher<T>> work) {
+
+        return Flux.usingWhen(connectionFactory.create(),
+                              connection -> Mono.from(connection.beginTransaction())
+                                  .thenMany(work.apply(connection))
+                                  .collectList()
+                                  .flatMapMany(results -> Mono.from(connection.commitTransaction())
+                                      .thenMany(Flux.fromIterable(results))),
+                              Connection::close,
+                              (connection, error) -> rollbackAndClose(connection),
+                              R2dbcRelationshipPersistenceService::rollbackAndClose);
+    }
+
+    private static Publisher<Void> rollbackAndClose(Connection connection) {
+
+        return Flux.concatDelayError(connection.rollbackTransaction(), connection.close());
+    }
+
+    private static Mono<Integer> insert(Connection connection, RelationshipEntity entity) {
+
+        // with the millisecond precision of the dates that JPA auditing sets
+        LocalDateTime now = LocalDateTime.now()
+            .truncatedTo(ChronoUnit.MILLIS);
+
+        return execute(connection,
+                       INSERT,
+                       UuidUtil.getBytesFromUuid(entity.getId()),
+                       UuidUtil.getBytesFromUuid(entity.getTenantId()),
+                       entity.getSourceType(),
+                       UuidUtil.getBytesFromUuid(entity.getSourceId()),
+                       entity.getRelationshipType(),
+                       entity.getTargetType(),
+                       UuidUtil.getBytesFromUuid(entity.getTargetId()),
+                       now,
+                       now);
+    }
+
+    private Flux<Integer> addDegrees(Connection connection, Map<RelationshipDegreeKey, Long> deltas) {
+
+        // the counters are upserted in key order, so concurrent transactions lock them in the same order and can't deadlock
+        return Flux.fromIterable(deltas.entrySet())
+            .concatMap(delta -> {
+                RelationshipDegreeKey key = delta.getKey();
+                Object[] keyValues = degreeKeyValues(key);
+                if (merge) {
+                    return execute(connection, MERGE_DEGREE, concat(keyValues, concat(keyValues, delta.getValue())));
+                }
+                return execute(connection, UPSERT_DEGREE, concat(keyValues, delta.getValue(), delta.getValue()));
+            });
+    }
+
+    private Flux<Integer> subtractDegrees(Connection connection, Map<RelationshipDegreeKey, Long> deltas) {
+
+        // the counters of a deleted relationship exist, so they are updated in key order without an upsert
+        return Flux.fromIterable(deltas.entrySet())
+            .concatMap(delta -> execute(connection, SUBTRACT_DEGREE, concat(new Object[] { delta.getValue() }, degreeKeyValues(delta.getKey()))));
+    }
+
+    private static Object[] degreeKeyValues(RelationshipDegreeKey key) {
+
+        return new Object[] { UuidUtil.getBytesFromUuid(key.getTenantId()), key.getEndpoint()
+            .name(), key.getEndpointType(), UuidUtil.getBytesFromUuid(key.getEndpointId()), key.getRelationshipType() };
+    }
+
+    private static Object[] concat(Object[] first, Object... second) {
+
+        Object[] values = new Object[first.length + second.length];
+        System.arraycopy(first, 0, values, 0, first.length);
+        System.arraycopy(second, 0, values, first.length, second.length);
+        return values;
+    }
+
+    private static Flux<RelationshipEntity> query(Connection connection, String sql, Object... values) {
+
+        return Flux.from(bind(connection.createStatement(sql), values).execute())
+            .concatMap(result -> result.map((row, metadata) -> toEntity(row)));
+    }
+
+    private static Mono<Integer> execute(Connection connection, String sql, Object... values) {
+
+        return Flux.from(bind(connection.createStatement(sql), values).execute())
+            .concatMap(Result::getRowsUpdated)
+            .reduce(0, Integer::sum);
+    }
+
+    private static Statement bind(Statement statement, Object... values) {
+
+        for (int i = 0; i < values.length; i++) {
+            statement.bind(i, values[i]);
+        }
+        return statement;
+    }
+
+    private static long toLong(Object sum) {
+
+        return sum != null ? ((Number) sum).longValue() : 0L;
+    }
+
+    private static byte[] id(String urn) {
+
+        return UuidUtil.getBytesFromUuid(UuidUtil.getUuidFromUrn(urn));
+    }
+
+    private static RelationshipEntity toEntity(Row row) {
+
+        return RelationshipEntity.builder()
+            .id(UuidUtil.getUuidFromBytes(row.get(0, byte[].class)))
+            .tenantId(UuidUtil.getUuidFromBytes(row.get(1, byte[].class)))
+            .sourceType(row.get(2, String.class))
+            .sourceId(UuidUtil.getUuidFromBytes(row.get(3, byte[].class)))
+            .relationshipType(row.get(4, String.class))
+            .targetType(row.get(5, String.class))
+            .targetId(UuidUtil.getUuidFromBytes(row.get(6, byte[].class)))
+            .build();
+    }
+
+    private static RelationshipEntity newEntity(UUID tenantId, RelationshipCreate createRelationship) {
+
+        RelationshipEntity entity = RelationshipCreateToRelationshipEntityConverter.toEntity(createRelationship);
+        entity.setId(UuidUtil.getNewUuid());
+        entity.setTenantId(tenantId);
+        return entity;
+    }
+
+    private static boolean isDuplicateRelationship(Throwable e) {
+
+        return e instanceof R2dbcException
+               && RelationshipPersistenceUtil.isDuplicateRelationship(((R2dbcException) e).getSqlState(), ((R2dbcException) e).getErrorCode());
+    }
+}
@@ -0,0 +1,11 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
+
+public interface RelationshipDegreeRepository extends
+                                              JpaRepository<RelationshipDegreeEntity, RelationshipDegreeKey>,
+                                              RelationshipDegreeRepositoryCustom {
+}
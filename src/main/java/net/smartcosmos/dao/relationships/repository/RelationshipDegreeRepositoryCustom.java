@@ -0,0 +1,48 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.util.Map;
+import java.util.UUID;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
+
+public interface RelationshipDegreeRepositoryCustom {
+
+    /**
+     * Adds to counters in the current transaction, and creates those that don't exist yet with the amount to add.
+     * <p>
+     * Each counter is updated or created with a single upsert, {@code INSERT ... ON DUPLICATE KEY UPDATE} on MariaDB and {@code MERGE} on H2,
+     * so a counter that a concurrent transaction creates at the same time is updated instead of failing, and no further connection or
+     * transaction is needed. The counters are upserted in key order, so concurrent transactions lock them in the same order and can't
+     * deadlock.
+     *
+     * @param deltas the amount to add to each counter
+     */
+    void upsert(Map<RelationshipDegreeKey, Long> deltas);
+
+    /**
+     * Adds to existing counters in the current transaction. The counters are updated in key order, so concurrent transactions lock them in
+     * the same order and can't deadlock.
+     *
+     * @param deltas the amount to add to each counter
+     */
+    void add(Map<RelationshipDegreeKey, Long> deltas);
+
+    /**
+     * Sums the counters of all relationship types of an entity.
+     *
+     * @param tenantId the tenant ID
+     * @param endpoint the end of the relationships the entity is at
+     * @param endpointType the entity type
+     * @param endpointId the entity ID
+     * @return the number of relationships
+     */
+    long sum(UUID tenantId, RelationshipDegreeKey.Endpoint endpoint, String endpointType, UUID endpointId);
+
+    /**
+     * Gets a single counter, without loading it as an entity.
+     *
+     * @param key the key of the counter
+     * @return the number of relationships, or {@code 0} if the counter doesn't exist
+     */
+    long get(RelationshipDegreeKey key);
+}
@@ -0,0 +1,140 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.ComponentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+/**
+ * Custom {@link RelationshipDegreeRepository} methods that can't be expressed as derived queries.
+ */
+public class RelationshipDegreeRepositoryImpl implements RelationshipDegreeRepositoryCustom {
+
+    private static final String KEY_CONDITION = "d.id.tenantId = :tenantId AND d.id.endpoint = :endpoint AND d.id.endpointType = :endpointType "
+                                                + "AND d.id.endpointId = :endpointId";
+
+    private static final String[] KEY_PROPERTIES = { "tenantId", "endpoint", "endpointType", "endpointId", "relationshipType" };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private String upsert;
+
+    @Autowired
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getClassMetadata(RelationshipDegreeEntity.class);
+
+        // the column names follow the configured naming strategy, so they are taken from the mapping
+        String[] keyProperties = ((ComponentType) persister.getIdentifierType()).getPropertyNames();
+        String[] keyColumnNames = persister.getIdentifierColumnNames();
+        Map<String, String> keyColumns = new LinkedHashMap<>();
+        for (String property : KEY_PROPERTIES) {
+            keyColumns.put(property, keyColumnNames[Arrays.asList(keyProperties)
+                .indexOf(property)]);
+        }
+        String table = persister.getTableName();
+        String count = persister.getPropertyColumnNames("relationshipCount")[0];
+        String columns = String.join(", ", keyColumns.values()) + ", " + count;
+        String keyValues = Arrays.stream(KEY_PROPERTIES)
+            .map(property -> ":" + property)
+            .collect(Collectors.joining(", "));
+
+        if (sessionFactory.getDialect() instanceof H2Dialect) {
+            String keyCondition = keyColumns.entrySet()
+                .stream()
+                .map(column -> column.getValue() + " = :" + column.getKey())
+                .collect(Collectors.joining(" AND "));
+            upsert = "MERGE INTO " + table + " (" + columns + ") KEY (" + String.join(", ", keyColumns.values()) + ") VALUES (" + keyValues
+                     + ", COALESCE((SELECT " + count + " FROM " + table + " WHERE " + keyCondition + "), 0) + :delta)";
+        } else {
+            upsert = "INSERT INTO " + table + " (" + columns + ") VALUES (" + keyValues + ", :delta) ON DUPLICATE KEY UPDATE " + count + " = "
+                     + count + " + :delta";
+        }
+    }
+
+    @Override
+    @Transactional
+    public void upsert(Map<RelationshipDegreeKey, Long> deltas) {
+
+        for (RelationshipDegreeKey key : new TreeSet<>(deltas.keySet())) {
+            entityManager.createNativeQuery(upsert)
+                .setParameter("tenantId", UuidUtil.getBytesFromUuid(key.getTenantId()))
+                .setParameter("endpoint", key.getEndpoint()
+                    .name())
+                .setParameter("endpointType", key.getEndpointType())
+                .setParameter("endpointId", UuidUtil.getBytesFromUuid(key.getEndpointId()))
+                .setParameter("relationshipType", key.getRelationshipType())
+                .setParameter("delta", deltas.get(key))
+                .executeUpdate();
+        }
+    }
+
+    @Override
+    @Transactional
+    public void add(Map<RelationshipDegreeKey, Long> deltas) {
+
+        for (RelationshipDegreeKey key : new TreeSet<>(deltas.keySet())) {
+            long delta = deltas.get(key);
+            if (delta != 0) {
+                entityManager
+                    .createQuery("UPDATE relationship_degree d SET d.relationshipCount = d.relationshipCount + :delta WHERE " + KEY_CONDITION
+                                 + " AND d.id.relationshipType = :relationshipType")
+                    .setParameter("delta", delta)
+                    .setParameter("tenantId", key.getTenantId())
+                    .setParameter("endpoint", key.getEndpoint())
+                    .setParameter("endpointType", key.getEndpointType())
+                    .setParameter("endpointId", key.getEndpointId())
+                    .setParameter("relationshipType", key.getRelationshipType())
+                    .executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long sum(UUID tenantId, RelationshipDegreeKey.Endpoint endpoint, String endpointType, UUID endpointId) {
+
+        return entityManager.createQuery("SELECT COALESCE(SUM(d.relationshipCount), 0) FROM relationship_degree d WHERE " + KEY_CONDITION,
+                                         Long.class)
+            .setParameter("tenantId", tenantId)
+            .setParameter("endpoint", endpoint)
+            .setParameter("endpointType", endpointType)
+            .setParameter("endpointId", endpointId)
+            .getSingleResult();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long get(RelationshipDegreeKey key) {
+
+        List<Long> counts = entityManager.createQuery("SELECT d.relationshipCount FROM relationship_degree d WHERE " + KEY_CONDITION
+                                                      + " AND d.id.relationshipType = :relationshipType", Long.class)
+            .setParameter("tenantId", key.getTenantId())
+            .setParameter("endpoint", key.getEndpoint())
+            .setParameter("endpointType", key.getEndpointType())
+            .setParameter("endpointId", key.getEndpointId())
+            .setParameter("relationshipType", key.getRelationshipType())
+            .getResultList();
+
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+}
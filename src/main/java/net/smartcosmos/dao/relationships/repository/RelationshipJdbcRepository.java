@@ -0,0 +1,537 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.apache.commons.collections4.ListUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import net.smartcosmos.dao.relationships.PageMode;
+import net.smartcosmos.dao.relationships.domain.CursorPage;
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+import net.smartcosmos.dao.relationships.util.CursorUtil;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipReference;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+/**
+ * Reads relationships with plain JDBC queries, as an alternative to the finders of {@link RelationshipRepository}.
+ * <p>
+ * Each row is mapped straight to a {@link RelationshipResponse} in one pass over the result set, without entities, a persistence context
+ * or the conversion service, and the {@code uuid-binary} columns are decoded from their 16 bytes. The table and column names are taken from
+ * the Hibernate mapping of {@link RelationshipEntity}, so the SQL follows the configured naming strategy. The queries match those of the
+ * JPA finders, including their sort orders, so both return the same results.
+ * <p>
+ * The ID finders select nothing but the ID column of the other endpoint, and return the IDs packed into a {@code long[]}.
+ */
+@Repository
+public class RelationshipJdbcRepository {
+
+    private static final String[] PROPERTIES = { "id", "tenantId", "sourceType", "sourceId", "relationshipType", "targetType", "targetId",
+                                                 "created", "lastModified" };
+
+    // positions of the selected columns in the result set
+    private static final int ID = 1;
+    private static final int TENANT_ID = 2;
+    private static final int SOURCE_TYPE = 3;
+    private static final int SOURCE_ID = 4;
+    private static final int RELATIONSHIP_TYPE = 5;
+    private static final int TARGET_TYPE = 6;
+    private static final int TARGET_ID = 7;
+    private static final int CREATED = 8;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, String> columns = new HashMap<>();
+    private final String table;
+    private final String select;
+    private final String count;
+
+    @Autowired
+    public RelationshipJdbcRepository(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactory.class)
+            .getClassMetadata(RelationshipEntity.class);
+        for (String property : PROPERTIES) {
+            columns.put(property, persister.getPropertyColumnNames(property)[0]);
+        }
+        this.table = persister.getTableName();
+
+        // the selected columns are in the order of their positions
+        this.select = "SELECT " + Arrays.stream(PROPERTIES, ID - 1, CREATED)
+            .map(columns::get)
+            .collect(Collectors.joining(", ")) + " FROM " + table + " WHERE ";
+        this.count = "SELECT COUNT(*) FROM " + table + " WHERE ";
+    }
+
+    /**
+     * Builds the criteria of a query from pairs of an entity property and its value, in this order.
+     *
+     * @param propertiesAndValues the properties and values, a {@code null} value only matches {@code NULL}
+     * @return the criteria
+     */
+    public static Map<String, Object> criteria(Object... propertiesAndValues) {
+
+        Map<String, Object> criteria = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < propertiesAndValues.length; i += 2) {
+            criteria.put((String) propertiesAndValues[i], propertiesAndValues[i + 1]);
+        }
+        return criteria;
+    }
+
+    /**
+     * Finds the single relationship that matches the criteria.
+     *
+     * @param criteria the criteria, see {@link #criteria(Object...)}
+     * @return the relationship, or {@code Optional.empty()} if there is none
+     */
+    public Optional<RelationshipResponse> findOne(Map<String, Object> criteria) {
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = select + where(criteria, parameters);
+
+        return jdbcTemplate.query(sql, parameters, (rs, row) -> toResponse(rs))
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Finds the relationship with a natural key.
+     *
+     * @param key the key
+     * @return the relationship, or {@code Optional.empty()} if there is none
+     */
+    public Optional<RelationshipResponse> findByKey(RelationshipKey key) {
+
+        return findOne(criteria("tenantId", key.getTenantId(),
+                                "sourceType", key.getSourceType(),
+                                "sourceId", key.getSourceId(),
+                                "relationshipType", key.getRelationshipType(),
+                                "targetType", key.getTargetType(),
+                                "targetId", key.getTargetId()));
+    }
+
+    /**
+     * Finds a page of the relationships that match the criteria, like a Spring Data finder with a {@link Pageable} parameter.
+     *
+     * @param criteria the criteria, see {@link #criteria(Object...)}
+     * @param pageable the page request
+     * @param pageMode {@code SLICE} to skip counting all matching relationships
+     * @return a {@link org.springframework.data.domain.Page} of relationships, or a {@link Slice} without a count
+     */
+    public Slice<RelationshipResponse> findPage(Map<String, Object> criteria, Pageable pageable, PageMode pageMode) {
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String where = where(criteria, parameters);
+        String query = select + where + orderBy(pageable.getSort()) + " LIMIT :limit OFFSET :offset";
+        parameters.addValue("offset", pageable.getOffset());
+
+        if (pageMode == PageMode.SLICE) {
+            // one relationship more than the page size tells if there is a next page
+            parameters.addValue("limit", pageable.getPageSize() + 1);
+            List<RelationshipResponse> content = jdbcTemplate.query(query, parameters, (rs, row) -> toResponse(rs));
+            boolean hasNext = content.size() > pageable.getPageSize();
+
+            return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+        }
+
+        long total = jdbcTemplate.queryForObject(count + where, parameters, Long.class);
+        parameters.addValue("limit", pageable.getPageSize());
+        List<RelationshipResponse> content = total > pageable.getOffset()
+                                             ? jdbcTemplate.query(query, parameters, (rs, row) -> toResponse(rs))
+                                             : Collections.emptyList();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Finds relationships of a source after a cursor, see {@link RelationshipRepositoryCustom#findForSourceAfter}.
+     *
+     * @param tenantId the tenant ID, or {@code null} to find the relationships of all tenants
+     * @param sourceType the source type
+     * @param sourceId the source ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param cursor the position of the last relationship of the previous page, or {@code null} to start at the first relationship
+     * @param direction the direction to sort by creation date and ID
+     * @param size the page size
+     * @return the page
+     */
+    public CursorPage<RelationshipResponse> findForSourceAfter(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int size) {
+
+        return findAfter(criteria("sourceType", sourceType, "sourceId", sourceId), tenantId, relationshipType, cursor, direction, size);
+    }
+
+    /**
+     * Finds relationships of a target after a cursor, see {@link RelationshipRepositoryCustom#findForTargetAfter}.
+     *
+     * @param tenantId the tenant ID, or {@code null} to find the relationships of all tenants
+     * @param targetType the target type
+     * @param targetId the target ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param cursor the position of the last relationship of the previous page, or {@code null} to start at the first relationship
+     * @param direction the direction to sort by creation date and ID
+     * @param size the page size
+     * @return the page
+     */
+    public CursorPage<RelationshipResponse> findForTargetAfter(
+        UUID tenantId,
+        String targetType,
+        UUID targetId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int size) {
+
+        return findAfter(criteria("targetType", targetType, "targetId", targetId), tenantId, relationshipType, cursor, direction, size);
+    }
+
+    private CursorPage<RelationshipResponse> findAfter(
+        Map<String, Object> criteria,
+        UUID tenantId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int size) {
+
+        if (tenantId != null) {
+            criteria.put("tenantId", tenantId);
+        }
+        if (relationshipType != null) {
+            criteria.put("relationshipType", relationshipType);
+        }
+
+        boolean descending = direction == Sort.Direction.DESC;
+        String comparison = descending ? " < " : " > ";
+        String order = descending ? " DESC" : " ASC";
+        String created = columns.get("created");
+        String id = columns.get("id");
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(select).append(where(criteria, parameters));
+        if (cursor != null) {
+            sql.append(" AND (")
+                .append(created)
+                .append(comparison)
+                .append(":created OR (")
+                .append(created)
+                .append(" = :created AND ")
+                .append(id)
+                .append(comparison)
+                .append(":cursorId))");
+            parameters.addValue("created", new Timestamp(cursor.getCreated()))
+                .addValue("cursorId", UuidUtil.getBytesFromUuid(cursor.getId()));
+        }
+        sql.append(" ORDER BY ")
+            .append(created)
+            .append(order)
+            .append(", ")
+            .append(id)
+            .append(order)
+            .append(" LIMIT :limit");
+        parameters.addValue("limit", size + 1);
+
+        // fetches one relationship more than the page size, to find out if there is a next page
+        return jdbcTemplate.query(sql.toString(), parameters, rs -> {
+            List<RelationshipResponse> data = new ArrayList<>(size);
+            RelationshipCursor last = null;
+            while (rs.next()) {
+                if (data.size() == size) {
+                    return CursorPage.<RelationshipResponse>builder()
+                        .data(data)
+                        .nextCursor(CursorUtil.encode(last))
+                        .build();
+                }
+                data.add(toResponse(rs));
+                last = RelationshipCursor.of(rs.getTimestamp(CREATED)
+                                                 .getTime(), getUuid(rs, ID));
+            }
+            return CursorPage.<RelationshipResponse>builder()
+                .data(data)
+                .build();
+        });
+    }
+
+    /**
+     * Finds the relationships of several sources, see {@link RelationshipRepositoryCustom#findForSources}.
+     *
+     * @param tenantId the tenant ID
+     * @param sourceType the source type
+     * @param sourceIds the source IDs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per source
+     * @return the relationships by source ID, in the order of the source IDs and without sources that have no relationships
+     */
+    public Map<UUID, List<RelationshipResponse>> findForSources(
+        UUID tenantId,
+        String sourceType,
+        Collection<UUID> sourceIds,
+        String relationshipType,
+        int limit) {
+
+        return findForEndpoints("sourceType", sourceType, "sourceId", SOURCE_ID, sourceIds, tenantId, relationshipType, limit);
+    }
+
+    /**
+     * Finds the relationships of several targets, see {@link RelationshipRepositoryCustom#findForTargets}.
+     *
+     * @param tenantId the tenant ID
+     * @param targetType the target type
+     * @param targetIds the target IDs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per target
+     * @return the relationships by target ID, in the order of the target IDs and without targets that have no relationships
+     */
+    public Map<UUID, List<RelationshipResponse>> findForTargets(
+        UUID tenantId,
+        String targetType,
+        Collection<UUID> targetIds,
+        String relationshipType,
+        int limit) {
+
+        return findForEndpoints("targetType", targetType, "targetId", TARGET_ID, targetIds, tenantId, relationshipType, limit);
+    }
+
+    private Map<UUID, List<RelationshipResponse>> findForEndpoints(
+        String typeProperty,
+        String type,
+        String idProperty,
+        int idPosition,
+        Collection<UUID> ids,
+        UUID tenantId,
+        String relationshipType,
+        int limit) {
+
+        Map<String, Object> criteria = criteria("tenantId", tenantId, typeProperty, type);
+        if (relationshipType != null) {
+            criteria.put("relationshipType", relationshipType);
+        }
+        String idColumn = columns.get(idProperty);
+
+        // one subquery per endpoint, like the JPA finder, so each reads at most the limit from the created index of its endpoint; the chunk is
+        // padded like an IN list, and the relationships that the repeated last endpoint returns again are skipped
+        Map<UUID, List<RelationshipResponse>> found = new HashMap<>();
+        List<UUID> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (List<UUID> chunk : ListUtils.partition(distinctIds, RelationshipRepositoryImpl.ENDPOINT_CHUNK_SIZE)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+            String subquery = "(" + select + where(criteria, parameters) + " AND " + idColumn + " = :id%d ORDER BY " + columns.get("created")
+                              + " ASC, " + columns.get("id") + " ASC LIMIT :limit)";
+            List<UUID> paddedChunk = RelationshipRepositoryImpl.padToPowerOfTwo(chunk);
+            StringBuilder sql = new StringBuilder();
+            for (int i = 0; i < paddedChunk.size(); i++) {
+                sql.append(i > 0 ? " UNION ALL " : "")
+                    .append(String.format(subquery, i));
+                parameters.addValue("id" + i, UuidUtil.getBytesFromUuid(paddedChunk.get(i)));
+            }
+
+            Set<UUID> seen = new HashSet<>();
+            jdbcTemplate.query(sql.toString(), parameters, rs -> {
+                if (seen.add(getUuid(rs, ID))) {
+                    found.computeIfAbsent(getUuid(rs, idPosition), id -> new ArrayList<>())
+                        .add(toResponse(rs));
+                }
+            });
+        }
+
+        Map<UUID, List<RelationshipResponse>> result = new LinkedHashMap<>();
+        for (UUID id : distinctIds) {
+            if (found.containsKey(id)) {
+                result.put(id, found.get(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the IDs of the targets of a source's relationships, without mapping the relationships.
+     * <p>
+     * Only the target ID column is selected. The unique index over the natural key of a relationship starts with the criteria and includes
+     * the target ID, so the database can answer the query from that index alone.
+     *
+     * @param tenantId the tenant ID
+     * @param sourceType the source type
+     * @param sourceId the source ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @return the target IDs, packed as described in {@link PackedUuids}
+     */
+    public long[] findTargetIds(UUID tenantId, String sourceType, UUID sourceId, String relationshipType) {
+
+        return findIds("targetId", criteria("tenantId", tenantId, "sourceType", sourceType, "sourceId", sourceId), relationshipType);
+    }
+
+    /**
+     * Finds the IDs of the sources of a target's relationships, without mapping the relationships.
+     * <p>
+     * Only the source ID column is selected. The unique index over the natural key includes the source ID too, but starts with the source
+     * columns, so it can't find the relationships of a target. The index of the relationship type of a target starts with the criteria and
+     * ends with the source ID, so the database can answer the query from that index alone.
+     *
+     * @param tenantId the tenant ID
+     * @param targetType the target type
+     * @param targetId the target ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @return the source IDs, packed as described in {@link PackedUuids}
+     */
+    public long[] findSourceIds(UUID tenantId, String targetType, UUID targetId, String relationshipType) {
+
+        return findIds("sourceId", criteria("tenantId", tenantId, "targetType", targetType, "targetId", targetId), relationshipType);
+    }
+
+    private long[] findIds(String idProperty, Map<String, Object> criteria, String relationshipType) {
+
+        if (relationshipType != null) {
+            criteria.put("relationshipType", relationshipType);
+        }
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = "SELECT " + columns.get(idProperty) + " FROM " + table + " WHERE " + where(criteria, parameters);
+
+        PackedUuids ids = new PackedUuids();
+        jdbcTemplate.query(sql, parameters, ids);
+        return ids.toArray();
+    }
+
+    private String where(Map<String, Object> criteria, MapSqlParameterSource parameters) {
+
+        StringBuilder where = new StringBuilder();
+        for (Map.Entry<String, Object> criterion : criteria.entrySet()) {
+            if (where.length() > 0) {
+                where.append(" AND ");
+            }
+            String property = criterion.getKey();
+            Object value = criterion.getValue();
+            where.append(getColumn(property));
+            if (value == null) {
+                where.append(" IS NULL");
+            } else {
+                where.append(" = :")
+                    .append(property);
+                parameters.addValue(property, value instanceof UUID ? UuidUtil.getBytesFromUuid((UUID) value) : value);
+            }
+        }
+        return where.toString();
+    }
+
+    private String orderBy(Sort sort) {
+
+        if (sort == null) {
+            return "";
+        }
+
+        StringBuilder orderBy = new StringBuilder();
+        for (Sort.Order order : sort) {
+            orderBy.append(orderBy.length() > 0 ? ", " : " ORDER BY ")
+                .append(getColumn(order.getProperty()))
+                .append(order.isAscending() ? " ASC" : " DESC");
+        }
+        return orderBy.toString();
+    }
+
+    private String getColumn(String property) {
+
+        String column = columns.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException(String.format("No property '%s' found for type '%s'", property, RelationshipEntity.class));
+        }
+        return column;
+    }
+
+    /**
+     * Maps the current row of a result set to a response, like {@code RelationshipEntityToRelationshipResponseConverter}.
+     */
+    private static RelationshipResponse toResponse(ResultSet rs) throws SQLException {
+
+        String tenantUrn = UuidUtil.getTenantUrnFromUuid(getUuid(rs, TENANT_ID));
+
+        RelationshipReference source = RelationshipReference.builder()
+            .urn(UuidUtil.getThingUrnFromUuid(getUuid(rs, SOURCE_ID)))
+            .type(rs.getString(SOURCE_TYPE))
+            .tenantUrn(tenantUrn)
+            .build();
+
+        RelationshipReference target = RelationshipReference.builder()
+            .urn(UuidUtil.getThingUrnFromUuid(getUuid(rs, TARGET_ID)))
+            .type(rs.getString(TARGET_TYPE))
+            .tenantUrn(tenantUrn)
+            .build();
+
+        return RelationshipResponse.builder()
+            .urn(UuidUtil.getRelationshipUrnFromUuid(getUuid(rs, ID)))
+            .source(source)
+            .target(target)
+            .relationshipType(rs.getString(RELATIONSHIP_TYPE))
+            .tenantUrn(tenantUrn)
+            .build();
+    }
+
+    private static UUID getUuid(ResultSet rs, int column) throws SQLException {
+
+        return UuidUtil.getUuidFromBytes(rs.getBytes(column));
+    }
+
+    /**
+     * Collects the {@code uuid-binary} values of the first column of a result set into a {@code long[]}, in which each UUID takes two
+     * elements, its most significant bits followed by its least significant bits. So the {@code i}-th UUID is
+     * {@code new UUID(ids[2 * i], ids[2 * i + 1])}, and each UUID takes 16 bytes.
+     */
+    static class PackedUuids implements RowCallbackHandler {
+
+        private long[] bits = new long[64];
+        private int length;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+
+            byte[] bytes = rs.getBytes(1);
+            if (length + 2 > bits.length) {
+                bits = Arrays.copyOf(bits, bits.length * 2);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            bits[length++] = buffer.getLong();
+            bits[length++] = buffer.getLong();
+        }
+
+        long[] toArray() {
+
+            return Arrays.copyOf(bits, length);
+        }
+    }
+}
@@ -3,26 +3,40 @@ package net.smartcosmos.dao.relationships.repository;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
 import org.springframework.transaction.annotation.Transactional;
 
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
 
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Repository of relationships.
+ * <p>
+ * The finders run in the read-only transactions of Spring Data and load their relationships read-only, so Hibernate neither keeps
+ * snapshots of them for dirty checking nor flushes before or after the queries.
+ */
 public interface RelationshipRepository extends
                                         JpaRepository<RelationshipEntity, UUID>,
                                         QueryByExampleExecutor<RelationshipEntity>,
                                         JpaSpecificationExecutor<RelationshipEntity>,
-                                        PagingAndSortingRepository<RelationshipEntity, UUID> {
+                                        PagingAndSortingRepository<RelationshipEntity, UUID>,
+                                        RelationshipRepositoryCustom {
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Optional<RelationshipEntity> findByTenantIdAndId(
         UUID accountId, UUID id);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Optional<RelationshipEntity> findByTenantIdAndSourceTypeAndSourceIdAndRelationshipTypeAndTargetTypeAndTargetId(
         UUID tenantId,
         String sourceType,
@@ -31,6 +45,7 @@ public interface RelationshipRepository extends
         String targetType,
         UUID targetId);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTenantIdAndSourceTypeAndSourceIdAndRelationshipType(
         UUID tenantId,
         String sourceType,
@@ -38,12 +53,29 @@ public interface RelationshipRepository extends
         String relationshipType,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTenantIdAndSourceTypeAndSourceIdAndRelationshipType(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        String relationshipType,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findBySourceTypeAndSourceIdAndRelationshipType(
         String sourceType,
         UUID sourceId,
         String relationshipType,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceBySourceTypeAndSourceIdAndRelationshipType(
+        String sourceType,
+        UUID sourceId,
+        String relationshipType,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTenantIdAndTargetTypeAndTargetIdAndRelationshipType(
         UUID tenantId,
         String targetType,
@@ -51,12 +83,29 @@ public interface RelationshipRepository extends
         String relationshipType,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTenantIdAndTargetTypeAndTargetIdAndRelationshipType(
+        UUID tenantId,
+        String targetType,
+        UUID targetId,
+        String relationshipType,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTargetTypeAndTargetIdAndRelationshipType(
         String targetType,
         UUID targetId,
         String relationshipType,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTargetTypeAndTargetIdAndRelationshipType(
+        String targetType,
+        UUID targetId,
+        String relationshipType,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTenantIdAndSourceTypeAndSourceIdAndTargetTypeAndTargetId(
         UUID tenantId,
         String sourceType,
@@ -65,18 +114,43 @@ public interface RelationshipRepository extends
         UUID targetId,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTenantIdAndSourceTypeAndSourceIdAndTargetTypeAndTargetId(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        String targetType,
+        UUID targetId,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTenantIdAndSourceTypeAndSourceId(
         UUID tenantId,
         String sourceType,
         UUID sourceId,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTenantIdAndSourceTypeAndSourceId(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     Page<RelationshipEntity> findByTenantIdAndTargetTypeAndTargetId(
         UUID tenantId,
         String targetType,
         UUID targetId,
         Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    Slice<RelationshipEntity> findSliceByTenantIdAndTargetTypeAndTargetId(
+        UUID tenantId,
+        String targetType,
+        UUID targetId,
+        Pageable pageable);
+
     @Transactional
     List<RelationshipEntity> deleteByTenantIdAndId(UUID accountId, UUID id);
 }
@@ -0,0 +1,156 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+
+public interface RelationshipRepositoryCustom {
+
+    /**
+     * Finds all relationships of a tenant that match any of the given keys, using set-based queries instead of one lookup per key.
+     *
+     * @param tenantId the tenant ID
+     * @param keys the relationship keys to look for
+     * @return the matching relationships
+     */
+    List<RelationshipEntity> findAllByKeys(UUID tenantId, Collection<RelationshipKey> keys);
+
+    /**
+     * Finds which of the given keys exist for a tenant, without loading the relationships.
+     *
+     * @param tenantId the tenant ID
+     * @param keys the relationship keys to look for
+     * @return the existing keys
+     * @see #findAllByKeys(UUID, Collection)
+     */
+    Set<RelationshipKey> findExistingKeys(UUID tenantId, Collection<RelationshipKey> keys);
+
+    /**
+     * Inserts a collection of new relationship entities in a single transaction, flushing them in JDBC batches. The degree counters of their
+     * sources and targets are incremented in the same transaction.
+     *
+     * @param entities the entities to insert
+     * @return the inserted entities
+     */
+    List<RelationshipEntity> insertAll(Collection<RelationshipEntity> entities);
+
+    /**
+     * Finds the relationships of a source that come after a cursor in the order of creation date and ID, using a seek query instead of an
+     * offset.
+     *
+     * @param tenantId the tenant ID, or {@code null} to find the relationships of all tenants
+     * @param sourceType the source entity type
+     * @param sourceId the source entity ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param cursor the position of the last relationship of the previous page, or {@code null} to start at the first relationship
+     * @param direction the sort direction
+     * @param limit the maximum number of relationships to return
+     * @return the relationships
+     */
+    List<RelationshipEntity> findForSourceAfter(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int limit);
+
+    /**
+     * Finds the relationships of a target that come after a cursor in the order of creation date and ID, using a seek query instead of an
+     * offset.
+     *
+     * @param tenantId the tenant ID, or {@code null} to find the relationships of all tenants
+     * @param targetType the target entity type
+     * @param targetId the target entity ID
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param cursor the position of the last relationship of the previous page, or {@code null} to start at the first relationship
+     * @param direction the sort direction
+     * @param limit the maximum number of relationships to return
+     * @return the relationships
+     */
+    List<RelationshipEntity> findForTargetAfter(
+        UUID tenantId,
+        String targetType,
+        UUID targetId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int limit);
+
+    /**
+     * Streams the relationships of a source, ordered by creation date and ID.
+     * <p>
+     * The relationships are read with a forward-only cursor from a stateless session, so they are never added to a persistence context and
+     * the memory usage doesn't grow with the number of relationships. The stream holds a database connection until it is closed, so it must
+     * be used in a try-with-resources block.
+     *
+     * @param tenantId the tenant ID
+     * @param sourceType the source entity type
+     * @param sourceId the source entity ID
+     * @param relationshipType the relationship type, or {@code null} to stream relationships of all types
+     * @param fetchSize the number of rows the JDBC driver fetches at once
+     * @return the stream of detached relationships
+     */
+    Stream<RelationshipEntity> streamForSource(UUID tenantId, String sourceType, UUID sourceId, String relationshipType, int fetchSize);
+
+    /**
+     * Streams the relationships of a target, ordered by creation date and ID.
+     *
+     * @param tenantId the tenant ID
+     * @param targetType the target entity type
+     * @param targetId the target entity ID
+     * @param relationshipType the relationship type, or {@code null} to stream relationships of all types
+     * @param fetchSize the number of rows the JDBC driver fetches at once
+     * @return the stream of detached relationships
+     * @see #streamForSource(UUID, String, UUID, String, int)
+     */
+    Stream<RelationshipEntity> streamForTarget(UUID tenantId, String targetType, UUID targetId, String relationshipType, int fetchSize);
+
+    /**
+     * Finds the relationships of several sources at once, with one query per chunk of sources instead of one query per source.
+     * <p>
+     * The relationships of each source are ordered by creation date and ID, and cut off after the limit within the query, so a source with
+     * many relationships costs no more rows than the limit.
+     *
+     * @param tenantId the tenant ID
+     * @param sourceType the source entity type
+     * @param sourceIds the source entity IDs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per source
+     * @return the relationships of each source that has any, in the order of the source IDs
+     */
+    Map<UUID, List<RelationshipEntity>> findForSources(
+        UUID tenantId,
+        String sourceType,
+        Collection<UUID> sourceIds,
+        String relationshipType,
+        int limit);
+
+    /**
+     * Finds the relationships of several targets at once, with one query per chunk of targets instead of one query per target.
+     *
+     * @param tenantId the tenant ID
+     * @param targetType the target entity type
+     * @param targetIds the target entity IDs
+     * @param relationshipType the relationship type, or {@code null} to find relationships of all types
+     * @param limit the maximum number of relationships per target
+     * @return the relationships of each target that has any, in the order of the target IDs
+     * @see #findForSources(UUID, String, Collection, String, int)
+     */
+    Map<UUID, List<RelationshipEntity>> findForTargets(
+        UUID tenantId,
+        String targetType,
+        Collection<UUID> targetIds,
+        String relationshipType,
+        int limit);
+}
@@ -0,0 +1,506 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+import net.smartcosmos.dao.relationships.domain.RelationshipDegreeKey;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Custom {@link RelationshipRepository} methods that can't be expressed as derived queries.
+ */
+public class RelationshipRepositoryImpl implements RelationshipRepositoryCustom {
+
+    static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+    static final int DEFAULT_BATCH_SIZE = 50;
+    static final int IN_LIST_CHUNK_SIZE = 500;
+    static final int ENDPOINT_CHUNK_SIZE = 128;
+
+    private static final String KEY_CHUNK_CONDITION = "r.tenantId = :tenantId AND r.sourceType = :sourceType AND r.sourceId IN :sourceIds "
+                                                      + "AND r.targetId IN :targetIds";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RelationshipDegreeRepository relationshipDegreeRepository;
+
+    /**
+     * Looks up each key with a subquery of its own on the columns of the unique constraint, and concatenates the subqueries of a chunk of
+     * keys with {@code UNION ALL}, so that each subquery is a lookup in the unique index. A condition on {@code IN} lists of the source and
+     * target IDs reads more rows, since H2 only uses an index for an {@code IN} list on its first column and so reads all relationships of
+     * the tenant and source type. JPQL has no {@code UNION}, so this is a native query whose table and column names are taken from the
+     * mapping.
+     * <p>
+     * Each chunk is padded to a power of two like an {@code IN} list. The subquery of the repeated last key returns the same relationship
+     * again, which is skipped.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<RelationshipEntity> findAllByKeys(UUID tenantId, Collection<RelationshipKey> keys) {
+
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactory.class)
+            .getClassMetadata(RelationshipEntity.class);
+        String subquery = "SELECT * FROM " + persister.getTableName() + " WHERE " + column(persister, "tenantId") + " = :tenantId AND "
+                          + column(persister, "sourceType") + " = :sourceType%1$d AND " + column(persister, "sourceId") + " = :sourceId%1$d AND "
+                          + column(persister, "relationshipType") + " = :relationshipType%1$d AND " + column(persister, "targetType")
+                          + " = :targetType%1$d AND " + column(persister, "targetId") + " = :targetId%1$d";
+
+        List<RelationshipEntity> result = new ArrayList<>();
+        Set<UUID> seen = new HashSet<>();
+        List<RelationshipKey> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        for (List<RelationshipKey> chunk : ListUtils.partition(distinctKeys, ENDPOINT_CHUNK_SIZE)) {
+            List<RelationshipKey> paddedChunk = padToPowerOfTwo(chunk);
+            StringBuilder sql = new StringBuilder();
+            for (int i = 0; i < paddedChunk.size(); i++) {
+                sql.append(i > 0 ? " UNION ALL " : "")
+                    .append(String.format(subquery, i));
+            }
+
+            javax.persistence.Query query = entityManager.createNativeQuery(sql.toString(), RelationshipEntity.class)
+                .setParameter("tenantId", UuidUtil.getBytesFromUuid(tenantId))
+                .setHint(HINT_READONLY, true);
+            for (int i = 0; i < paddedChunk.size(); i++) {
+                RelationshipKey key = paddedChunk.get(i);
+                query.setParameter("sourceType" + i, key.getSourceType())
+                    .setParameter("sourceId" + i, UuidUtil.getBytesFromUuid(key.getSourceId()))
+                    .setParameter("relationshipType" + i, key.getRelationshipType())
+                    .setParameter("targetType" + i, key.getTargetType())
+                    .setParameter("targetId" + i, UuidUtil.getBytesFromUuid(key.getTargetId()));
+            }
+
+            for (Object row : query.getResultList()) {
+                RelationshipEntity entity = (RelationshipEntity) row;
+                if (seen.add(entity.getId())) {
+                    result.add(entity);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<RelationshipKey> findExistingKeys(UUID tenantId, Collection<RelationshipKey> keys) {
+
+        Set<RelationshipKey> result = new HashSet<>();
+        forEachKeyChunk(keys, (sourceType, chunk) -> {
+            Set<RelationshipKey> requested = new HashSet<>(chunk);
+            // only the columns of the unique constraint are selected, so the database doesn't need to read the table rows
+            setKeyParameters(entityManager.createQuery("SELECT r.sourceId, r.relationshipType, r.targetType, r.targetId FROM relationship r "
+                                                       + "WHERE " + KEY_CHUNK_CONDITION, Object[].class),
+                             tenantId,
+                             sourceType,
+                             chunk)
+                .getResultList()
+                .stream()
+                .map(row -> RelationshipKey.of(tenantId, sourceType, (UUID) row[0], (String) row[1], (String) row[2], (UUID) row[3]))
+                .filter(requested::contains)
+                .forEach(result::add);
+        });
+
+        return result;
+    }
+
+    /**
+     * Splits keys into chunks of the same source type, whose source and target IDs fit into {@code IN} lists.
+     */
+    private static void forEachKeyChunk(Collection<RelationshipKey> keys, BiConsumer<String, List<RelationshipKey>> action) {
+
+        Map<String, List<RelationshipKey>> keysBySourceType = keys.stream()
+            .filter(key -> key.getSourceType() != null)
+            .collect(groupingBy(RelationshipKey::getSourceType, LinkedHashMap::new, toList()));
+
+        for (Map.Entry<String, List<RelationshipKey>> entry : keysBySourceType.entrySet()) {
+            for (List<RelationshipKey> chunk : ListUtils.partition(entry.getValue(), IN_LIST_CHUNK_SIZE)) {
+                action.accept(entry.getKey(), chunk);
+            }
+        }
+    }
+
+    private static <T> TypedQuery<T> setKeyParameters(TypedQuery<T> query, UUID tenantId, String sourceType, List<RelationshipKey> chunk) {
+
+        Set<UUID> sourceIds = new LinkedHashSet<>();
+        Set<UUID> targetIds = new LinkedHashSet<>();
+        for (RelationshipKey key : chunk) {
+            sourceIds.add(key.getSourceId());
+            targetIds.add(key.getTargetId());
+        }
+
+        return query.setParameter("tenantId", tenantId)
+            .setParameter("sourceType", sourceType)
+            .setParameter("sourceIds", padToPowerOfTwo(new ArrayList<>(sourceIds)))
+            .setParameter("targetIds", padToPowerOfTwo(new ArrayList<>(targetIds)));
+    }
+
+    @Override
+    @Transactional
+    public List<RelationshipEntity> insertAll(Collection<RelationshipEntity> entities) {
+
+        int batchSize = getBatchSize();
+        List<RelationshipEntity> result = new ArrayList<>(entities.size());
+
+        for (RelationshipEntity entity : entities) {
+            entityManager.persist(entity);
+            result.add(entity);
+
+            // flush each JDBC batch and detach it, so that the persistence context doesn't grow with the input
+            if (result.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        relationshipDegreeRepository.upsert(RelationshipDegreeKey.deltas(result, 1));
+
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RelationshipEntity> findForSourceAfter(
+        UUID tenantId,
+        String sourceType,
+        UUID sourceId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int limit) {
+
+        return findAfter("sourceType", sourceType, "sourceId", sourceId, tenantId, relationshipType, cursor, direction, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RelationshipEntity> findForTargetAfter(
+        UUID tenantId,
+        String targetType,
+        UUID targetId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int limit) {
+
+        return findAfter("targetType", targetType, "targetId", targetId, tenantId, relationshipType, cursor, direction, limit);
+    }
+
+    /**
+     * Runs a seek query, i.e. {@code WHERE (created, id) > (:created, :id) ORDER BY created, id}, so that the database can start reading
+     * at the cursor instead of skipping all previous rows. JPQL has no row value comparison, so the condition is spelled out.
+     */
+    private List<RelationshipEntity> findAfter(
+        String typeField,
+        String type,
+        String idField,
+        UUID id,
+        UUID tenantId,
+        String relationshipType,
+        RelationshipCursor cursor,
+        Sort.Direction direction,
+        int limit) {
+
+        boolean descending = direction == Sort.Direction.DESC;
+        String comparison = descending ? "<" : ">";
+        String order = descending ? "DESC" : "ASC";
+
+        StringBuilder jpql = new StringBuilder("SELECT r FROM relationship r WHERE ");
+        if (tenantId != null) {
+            jpql.append("r.tenantId = :tenantId AND ");
+        }
+        jpql.append("r.")
+            .append(typeField)
+            .append(" = :type AND r.")
+            .append(idField)
+            .append(" = :id");
+        if (relationshipType != null) {
+            jpql.append(" AND r.relationshipType = :relationshipType");
+        }
+        if (cursor != null) {
+            jpql.append(" AND (r.created ")
+                .append(comparison)
+                .append(" :created OR (r.created = :created AND r.id ")
+                .append(comparison)
+                .append(" :cursorId))");
+        }
+        jpql.append(" ORDER BY r.created ")
+            .append(order)
+            .append(", r.id ")
+            .append(order);
+
+        TypedQuery<RelationshipEntity> query = entityManager.createQuery(jpql.toString(), RelationshipEntity.class)
+            .setParameter("type", type)
+            .setParameter("id", id)
+            .setMaxResults(limit)
+            .setHint(HINT_READONLY, true);
+        if (tenantId != null) {
+            query.setParameter("tenantId", tenantId);
+        }
+        if (relationshipType != null) {
+            query.setParameter("relationshipType", relationshipType);
+        }
+        if (cursor != null) {
+            query.setParameter("created", new Date(cursor.getCreated()), TemporalType.TIMESTAMP)
+                .setParameter("cursorId", cursor.getId());
+        }
+
+        return query.getResultList();
+    }
+
+    @Override
+    public Stream<RelationshipEntity> streamForSource(UUID tenantId, String sourceType, UUID sourceId, String relationshipType, int fetchSize) {
+
+        return stream("sourceType", sourceType, "sourceId", sourceId, tenantId, relationshipType, fetchSize);
+    }
+
+    @Override
+    public Stream<RelationshipEntity> streamForTarget(UUID tenantId, String targetType, UUID targetId, String relationshipType, int fetchSize) {
+
+        return stream("targetType", targetType, "targetId", targetId, tenantId, relationshipType, fetchSize);
+    }
+
+    private Stream<RelationshipEntity> stream(
+        String typeField,
+        String type,
+        String idField,
+        UUID id,
+        UUID tenantId,
+        String relationshipType,
+        int fetchSize) {
+
+        String hql = "SELECT r FROM relationship r WHERE r.tenantId = :tenantId AND r." + typeField + " = :type AND r." + idField + " = :id"
+                     + (relationshipType != null ? " AND r.relationshipType = :relationshipType" : "")
+                     + " ORDER BY r.created ASC, r.id ASC";
+
+        StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class)
+            .openStatelessSession();
+        try {
+            Query query = session.createQuery(hql)
+                .setParameter("tenantId", tenantId)
+                .setParameter("type", type)
+                .setParameter("id", id)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+            if (relationshipType != null) {
+                query.setParameter("relationshipType", relationshipType);
+            }
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            return StreamSupport.stream(new ScrollableResultsSpliterator(results), false)
+                .onClose(() -> {
+                    try {
+                        results.close();
+                    } finally {
+                        session.close();
+                    }
+                });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, List<RelationshipEntity>> findForSources(
+        UUID tenantId,
+        String sourceType,
+        Collection<UUID> sourceIds,
+        String relationshipType,
+        int limit) {
+
+        return findForEndpoints("sourceType", sourceType, "sourceId", sourceIds, tenantId, relationshipType, limit, RelationshipEntity::getSourceId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, List<RelationshipEntity>> findForTargets(
+        UUID tenantId,
+        String targetType,
+        Collection<UUID> targetIds,
+        String relationshipType,
+        int limit) {
+
+        return findForEndpoints("targetType", targetType, "targetId", targetIds, tenantId, relationshipType, limit, RelationshipEntity::getTargetId);
+    }
+
+    /**
+     * Reads the relationships of each endpoint with a subquery of its own, {@code (SELECT ... WHERE <endpoint> = :id ORDER BY created, id
+     * LIMIT :limit)}, and concatenates the subqueries of a chunk of endpoints with {@code UNION ALL}. Each subquery reads at most the limit
+     * from the created index of the endpoint, so an endpoint with many relationships costs no more rows than any other. JPQL has neither
+     * {@code UNION} nor a limit on subqueries, so this is a native query whose table and column names are taken from the mapping.
+     * <p>
+     * Each chunk is padded to a power of two like an {@code IN} list, so only a few statements are ever prepared. The subqueries of the
+     * repeated last endpoint return the same relationships again, which are skipped.
+     */
+    private Map<UUID, List<RelationshipEntity>> findForEndpoints(
+        String typeProperty,
+        String type,
+        String idProperty,
+        Collection<UUID> ids,
+        UUID tenantId,
+        String relationshipType,
+        int limit,
+        Function<RelationshipEntity, UUID> endpointId) {
+
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactory.class)
+            .getClassMetadata(RelationshipEntity.class);
+        String subquery = "(SELECT * FROM " + persister.getTableName() + " WHERE " + column(persister, "tenantId") + " = :tenantId AND "
+                          + column(persister, typeProperty) + " = :type AND " + column(persister, idProperty) + " = :id%d"
+                          + (relationshipType != null ? " AND " + column(persister, "relationshipType") + " = :relationshipType" : "")
+                          + " ORDER BY " + column(persister, "created") + " ASC, " + column(persister, "id") + " ASC LIMIT :limit)";
+
+        Map<UUID, List<RelationshipEntity>> found = new HashMap<>();
+        List<UUID> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (List<UUID> chunk : ListUtils.partition(distinctIds, ENDPOINT_CHUNK_SIZE)) {
+            List<UUID> paddedChunk = padToPowerOfTwo(chunk);
+            StringBuilder sql = new StringBuilder();
+            for (int i = 0; i < paddedChunk.size(); i++) {
+                sql.append(i > 0 ? " UNION ALL " : "")
+                    .append(String.format(subquery, i));
+            }
+
+            javax.persistence.Query query = entityManager.createNativeQuery(sql.toString(), RelationshipEntity.class)
+                .setParameter("tenantId", UuidUtil.getBytesFromUuid(tenantId))
+                .setParameter("type", type)
+                .setParameter("limit", limit)
+                .setHint(HINT_READONLY, true);
+            for (int i = 0; i < paddedChunk.size(); i++) {
+                query.setParameter("id" + i, UuidUtil.getBytesFromUuid(paddedChunk.get(i)));
+            }
+            if (relationshipType != null) {
+                query.setParameter("relationshipType", relationshipType);
+            }
+
+            Set<UUID> seen = new HashSet<>();
+            for (Object result : query.getResultList()) {
+                RelationshipEntity entity = (RelationshipEntity) result;
+                if (seen.add(entity.getId())) {
+                    found.computeIfAbsent(endpointId.apply(entity), id -> new ArrayList<>())
+                        .add(entity);
+                }
+            }
+        }
+
+        Map<UUID, List<RelationshipEntity>> result = new LinkedHashMap<>();
+        for (UUID id : distinctIds) {
+            if (found.containsKey(id)) {
+                result.put(id, found.get(id));
+            }
+        }
+        return result;
+    }
+
+    private static String column(AbstractEntityPersister persister, String property) {
+
+        return persister.getPropertyColumnNames(property)[0];
+    }
+
+    /**
+     * Pads an {@code IN} list to the next power of two by repeating its last value, so that lists of similar length produce the same SQL
+     * statement. Otherwise each length is a statement of its own, and the statement caches of Hibernate, the JDBC driver and the database
+     * hardly ever hit.
+     *
+     * @param values the values of the {@code IN} list
+     * @param <T> the value type
+     * @return the padded values
+     */
+    static <T> List<T> padToPowerOfTwo(List<T> values) {
+
+        if (values.isEmpty()) {
+            return values;
+        }
+        int size = Integer.highestOneBit(values.size());
+        if (size < values.size()) {
+            size <<= 1;
+        }
+
+        List<T> padded = new ArrayList<>(size);
+        padded.addAll(values);
+        T last = values.get(values.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    private int getBatchSize() {
+
+        Object batchSize = entityManager.getEntityManagerFactory()
+            .getProperties()
+            .get(BATCH_SIZE_PROPERTY);
+
+        int value = NumberUtils.toInt(batchSize != null ? batchSize.toString() : null, DEFAULT_BATCH_SIZE);
+        return value > 0 ? value : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Iterates over scrollable results of a query that selects a single entity.
+     */
+    private static class ScrollableResultsSpliterator extends Spliterators.AbstractSpliterator<RelationshipEntity> {
+
+        private final ScrollableResults results;
+
+        ScrollableResultsSpliterator(ScrollableResults results) {
+
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.results = results;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super RelationshipEntity> action) {
+
+            if (!results.next()) {
+                return false;
+            }
+            action.accept((RelationshipEntity) results.get(0));
+            return true;
+        }
+    }
+}
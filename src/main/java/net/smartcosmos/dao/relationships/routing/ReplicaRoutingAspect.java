@@ -0,0 +1,94 @@
+package net.smartcosmos.dao.relationships.routing;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+
+/**
+ * Routes the finders of {@code RelationshipPersistenceService} to the read replicas, and everything else to the primary data source.
+ * <p>
+ * Finders are the methods whose names start with {@code find}, {@code count}, {@code exists} or {@code stream}. A finder uses the primary
+ * data source anyway if its tenant, the first argument, created or deleted relationships within the read-your-writes window, so the tenant
+ * sees its own writes even if the replicas lag behind. Without read replicas, all calls go to the primary data source right away.
+ */
+@Aspect
+@Component
+public class ReplicaRoutingAspect {
+
+    private final boolean enabled;
+    private final Cache<Object, Boolean> recentlyWritingTenants;
+
+    @Autowired
+    public ReplicaRoutingAspect(RelationshipPersistenceProperties properties) {
+
+        RelationshipPersistenceProperties.Replicas config = properties.getReplicas();
+        enabled = !config.getUrls()
+            .isEmpty();
+        recentlyWritingTenants = enabled && config.getReadYourWritesMillis() > 0
+                                 ? Caffeine.newBuilder()
+                                     .expireAfterWrite(config.getReadYourWritesMillis(), TimeUnit.MILLISECONDS)
+                                     .build()
+                                 : null;
+    }
+
+    @Pointcut("execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.find*(..))"
+              + " || execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.count*(..))"
+              + " || execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.exists*(..))"
+              + " || execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.stream*(..))")
+    void finder() {}
+
+    @Pointcut("execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.create*(..))"
+              + " || execution(public * net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService.delete(..))")
+    void write() {}
+
+    @Around("finder()")
+    public Object routeFinder(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+
+        boolean useReplica = recentlyWritingTenants == null || recentlyWritingTenants.getIfPresent(getTenant(joinPoint)) == null;
+        boolean previous = ReplicaRoutingDataSource.useReplica(useReplica);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingDataSource.useReplica(previous);
+        }
+    }
+
+    @Around("write()")
+    public Object routeWrite(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+
+        boolean previous = ReplicaRoutingDataSource.useReplica(false);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingDataSource.useReplica(previous);
+            if (recentlyWritingTenants != null) {
+                // the window starts once the write is committed, or failed part way through
+                recentlyWritingTenants.put(getTenant(joinPoint), Boolean.TRUE);
+            }
+        }
+    }
+
+    private static Object getTenant(ProceedingJoinPoint joinPoint) {
+
+        Object[] args = joinPoint.getArgs();
+        return args.length > 0 && args[0] != null ? args[0] : "";
+    }
+}
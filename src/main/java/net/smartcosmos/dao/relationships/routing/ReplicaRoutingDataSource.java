@@ -0,0 +1,196 @@
+package net.smartcosmos.dao.relationships.routing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.util.ReflectionUtils;
+
+import net.smartcosmos.dao.relationships.ReplicaBalancing;
+
+/**
+ * Data source that hands out connections of the primary data source, or of one of the read replicas while the current thread
+ * {@linkplain #useReplica(boolean) uses the replicas}.
+ * <p>
+ * A connection of a replica is only taken when a transaction or query starts, so the route only needs to be set around calls that start
+ * their own transaction. Calls within a transaction that already holds a connection keep using it. If no connection can be taken from the
+ * chosen replica, the connection is taken from the primary data source instead.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<Boolean> USE_REPLICA = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReplicaBalancing balancing;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicInteger[] openConnections;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaBalancing balancing) {
+
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one read replica is required");
+        }
+
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.balancing = balancing;
+        this.openConnections = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < openConnections.length; i++) {
+            openConnections[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Sets whether the current thread takes its connections from the read replicas.
+     *
+     * @param useReplica {@code true} to use the read replicas, {@code false} to use the primary data source
+     * @return the previous setting, to be restored afterwards
+     */
+    public static boolean useReplica(boolean useReplica) {
+
+        boolean previous = isUsingReplica();
+        if (useReplica) {
+            USE_REPLICA.set(Boolean.TRUE);
+        } else {
+            USE_REPLICA.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Gets whether the current thread takes its connections from the read replicas.
+     *
+     * @return {@code true} if the read replicas are used
+     */
+    public static boolean isUsingReplica() {
+
+        return USE_REPLICA.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        if (!isUsingReplica()) {
+            return connect(primary, username, password);
+        }
+
+        int index = selectReplica();
+        Connection connection;
+        try {
+            connection = connect(replicas.get(index), username, password);
+        } catch (SQLException e) {
+            log.warn("Getting a connection of read replica {} failed, using the primary data source", index, e);
+            return connect(primary, username, password);
+        }
+
+        return balancing == ReplicaBalancing.LEAST_LOADED ? track(connection, openConnections[index]) : connection;
+    }
+
+    /**
+     * Gets the primary data source, which all connections use outside of finders.
+     *
+     * @return the primary data source
+     */
+    public DataSource getPrimary() {
+
+        return primary;
+    }
+
+    /**
+     * Gets the read replicas.
+     *
+     * @return the data sources of the read replicas
+     */
+    public List<DataSource> getReplicas() {
+
+        return replicas;
+    }
+
+    /**
+     * Closes the primary data source and the read replicas, if they are connection pools that can be closed.
+     */
+    public void close() {
+
+        close(primary);
+        replicas.forEach(ReplicaRoutingDataSource::close);
+    }
+
+    private int selectReplica() {
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        if (balancing != ReplicaBalancing.LEAST_LOADED) {
+            return start;
+        }
+
+        int selected = start;
+        for (int i = 1; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (openConnections[index].get() < openConnections[selected].get()) {
+                selected = index;
+            }
+        }
+        return selected;
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+
+        return username != null ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    /**
+     * Counts a connection as open until it is closed.
+     */
+    private static Connection track(Connection connection, AtomicInteger openConnections) {
+
+        openConnections.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ReplicaRoutingDataSource.class.getClassLoader(), new Class<?>[] { Connection.class },
+                                                   (proxy, method, args) -> {
+                                                       switch (method.getName()) {
+                                                           case "equals":
+                                                               return proxy == args[0];
+                                                           case "hashCode":
+                                                               return System.identityHashCode(proxy);
+                                                           case "close":
+                                                               if (closed.compareAndSet(false, true)) {
+                                                                   openConnections.decrementAndGet();
+                                                               }
+                                                               break;
+                                                           default:
+                                                               break;
+                                                       }
+                                                       try {
+                                                           return method.invoke(connection, args);
+                                                       } catch (InvocationTargetException e) {
+                                                           throw e.getTargetException();
+                                                       }
+                                                   });
+    }
+
+    private static void close(DataSource dataSource) {
+
+        Method close = ReflectionUtils.findMethod(dataSource.getClass(), "close");
+        if (close != null) {
+            ReflectionUtils.invokeMethod(close, dataSource);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.smartcosmos.dao.relationships.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+
+/**
+ * Wraps the primary data source into a {@link ReplicaRoutingDataSource} if read replicas are configured, and leaves it alone otherwise.
+ * <p>
+ * Each read replica gets its own connection pool of the same kind as Spring Boot would create for the primary data source.
+ */
+@Slf4j
+@Component
+public class ReplicaRoutingDataSourcePostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private static final String DATA_SOURCE_BEAN_NAME = "dataSource";
+
+    private BeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+        if (!DATA_SOURCE_BEAN_NAME.equals(beanName) || !(bean instanceof DataSource) || bean instanceof ReplicaRoutingDataSource) {
+            return bean;
+        }
+
+        RelationshipPersistenceProperties.Replicas config = beanFactory.getBean(RelationshipPersistenceProperties.class)
+            .getReplicas();
+        if (config.getUrls()
+            .isEmpty()) {
+            return bean;
+        }
+
+        DataSourceProperties primaryProperties = getPrimaryProperties();
+        String username = config.getUsername() != null || primaryProperties == null ? config.getUsername() : primaryProperties.determineUsername();
+        String password = config.getPassword() != null || primaryProperties == null ? config.getPassword() : primaryProperties.determinePassword();
+
+        List<DataSource> replicas = new ArrayList<>(config.getUrls()
+                                                        .size());
+        for (String url : config.getUrls()) {
+            replicas.add(DataSourceBuilder.create(getClass().getClassLoader())
+                             .url(url)
+                             .username(username)
+                             .password(password)
+                             .driverClassName(config.getDriverClassName())
+                             .build());
+        }
+
+        log.info("Routing relationship finders to {} read replicas, balanced {}", replicas.size(), config.getBalancing());
+        return new ReplicaRoutingDataSource((DataSource) bean, replicas, config.getBalancing());
+    }
+
+    private DataSourceProperties getPrimaryProperties() {
+
+        try {
+            return beanFactory.getBean(DataSourceProperties.class);
+        } catch (NoSuchBeanDefinitionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.smartcosmos.dao.relationships.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.apache.commons.lang.StringUtils;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+
+/**
+ * Encodes {@link RelationshipCursor}s as opaque, URL-safe continuation tokens.
+ */
+public class CursorUtil {
+
+    private static final byte VERSION = 1;
+    private static final int TOKEN_LENGTH = 1 + Long.BYTES + 2 * Long.BYTES;
+
+    public static String encode(RelationshipCursor cursor) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_LENGTH)
+            .put(VERSION)
+            .putLong(cursor.getCreated())
+            .putLong(cursor.getId()
+                         .getMostSignificantBits())
+            .putLong(cursor.getId()
+                         .getLeastSignificantBits());
+
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a continuation token.
+     *
+     * @param token the token
+     * @return the cursor, or {@code null} if the token is blank, i.e. the query starts at the first result
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static RelationshipCursor decode(String token) throws IllegalArgumentException {
+
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder()
+                .decode(token);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+
+        if (bytes == null || bytes.length != TOKEN_LENGTH || bytes[0] != VERSION) {
+            throw new IllegalArgumentException(String.format("Provided cursor '%s' is not valid", token));
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, TOKEN_LENGTH - 1);
+        long created = buffer.getLong();
+        return RelationshipCursor.of(created, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
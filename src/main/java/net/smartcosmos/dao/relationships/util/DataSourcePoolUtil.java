@@ -0,0 +1,41 @@
+package net.smartcosmos.dao.relationships.util;
+
+import java.util.Collection;
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProviders;
+
+import net.smartcosmos.dao.relationships.routing.ReplicaRoutingDataSource;
+
+public class DataSourcePoolUtil {
+
+    /**
+     * Number of connections assumed if the size of the connection pool is unknown.
+     */
+    public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+
+    /**
+     * Gets the maximum number of connections of a data source.
+     *
+     * @param dataSource the data source, may be {@code null}; of a {@link ReplicaRoutingDataSource}, the primary data source is used
+     * @param providers the pool metadata providers of the supported connection pools, may be {@code null}
+     * @return the maximum pool size, or {@link #DEFAULT_MAXIMUM_POOL_SIZE} if the data source is not a known, bounded pool
+     */
+    public static int getMaximumPoolSize(DataSource dataSource, Collection<DataSourcePoolMetadataProvider> providers) {
+
+        if (dataSource == null || providers == null) {
+            return DEFAULT_MAXIMUM_POOL_SIZE;
+        }
+
+        if (dataSource instanceof ReplicaRoutingDataSource) {
+            dataSource = ((ReplicaRoutingDataSource) dataSource).getPrimary();
+        }
+
+        DataSourcePoolMetadata metadata = new DataSourcePoolMetadataProviders(providers).getDataSourcePoolMetadata(dataSource);
+        Integer max = metadata != null ? metadata.getMax() : null;
+
+        return max != null && max > 0 ? max : DEFAULT_MAXIMUM_POOL_SIZE;
+    }
+}
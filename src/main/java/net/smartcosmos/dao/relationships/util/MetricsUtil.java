@@ -0,0 +1,18 @@
+package net.smartcosmos.dao.relationships.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+public class MetricsUtil {
+
+    /**
+     * Gets the registry that the metrics of the relationship persistence are recorded in.
+     *
+     * @param registry the meter registry of the application, may be {@code null}
+     * @return the registry of the application, or the global registry if there is none
+     */
+    public static MeterRegistry getRegistry(MeterRegistry registry) {
+
+        return registry != null ? registry : Metrics.globalRegistry;
+    }
+}
@@ -16,7 +16,7 @@ public class PageableUtil {
             direction = RelationshipPersistenceUtil.getSortDirection(sortOrder);
         }
         if (sortBy == null) {
-            sortBy = RelationshipPersistenceUtil.getSortByFieldName("created"); // TODO default value to service config
+            sortBy = "created"; // TODO default value to service config
         }
         if (page == null) {
             page = 1; // TODO default value to service config
@@ -26,9 +26,24 @@ public class PageableUtil {
         }
         page--;
 
+        return new PageRequest(page, getPageSize(size), direction, RelationshipPersistenceUtil.getSortByFieldNames(sortBy));
+    }
+
+    /**
+     * Gets the size of a results page, falling back to the default size.
+     *
+     * @param size the requested page size, may be {@code null}
+     * @return the page size
+     * @throws IllegalArgumentException if the size is less than one
+     */
+    public static int getPageSize(Integer size) throws IllegalArgumentException {
+
         if (size == null) {
-            size = 20; // TODO default value to service config
+            return 20; // TODO default value to service config
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one!");
         }
-        return new PageRequest(page, size, direction, sortBy);
+        return size;
     }
 }
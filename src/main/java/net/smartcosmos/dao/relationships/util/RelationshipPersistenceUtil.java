@@ -1,15 +1,24 @@
 package net.smartcosmos.dao.relationships.util;
 
+import java.sql.SQLException;
+
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 
 import net.smartcosmos.dao.relationships.SortOrder;
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
 import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.PageInformation;
 import net.smartcosmos.dto.relationships.RelationshipResponse;
 
 public class RelationshipPersistenceUtil {
 
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+    private static final int MYSQL_ERROR_DUPLICATE_ENTRY = 1062;
+
     /**
      * Transforms a field name for a sorted query to a valid case-sensitive field name that exists in the entity class.
      * Returns the input field name, if it does not exist in the entity class.
@@ -91,6 +100,34 @@ public class RelationshipPersistenceUtil {
         return sortBy;
     }
 
+    /**
+     * Gets the fields to sort a page of the relationships of a source or target by, for a {@code sortBy} query.
+     * <p>
+     * The indexes of the relationships of a source or target end with {@code (created, id)}, and those with the relationship type have it
+     * right before. So the database reads these sorts in index order, instead of sorting all matching relationships to find one page:
+     * <ul>
+     * <li>{@code created} for {@code findAllForSource()}, {@code findAllForTarget()} and the finders by relationship type</li>
+     * <li>{@code relationshipType} for the same finders, since the relationship type is constant for the finders by relationship type</li>
+     * </ul>
+     * Both sorts are extended with the remaining index columns, which also gives relationships created at the same time a stable order.
+     * Other fields, and all sorts of {@code findBetweenEntities()}, are sorted by the database.
+     *
+     * @param sortBy the input field name
+     * @return the case-corrected field names, starting with the input field if it exists or with {@code id} otherwise
+     */
+    public static String[] getSortByFieldNames(String sortBy) {
+
+        String fieldName = getSortByFieldName(sortBy);
+        switch (fieldName) {
+            case "created":
+                return new String[] { "created", "id" };
+            case "relationshipType":
+                return new String[] { "relationshipType", "created", "id" };
+            default:
+                return new String[] { fieldName };
+        }
+    }
+
     /**
      * Converts the {@link SortOrder} value to a Spring-compatible {@link Sort.Direction} sort direction.
      *
@@ -120,4 +157,71 @@ public class RelationshipPersistenceUtil {
 
         return Page.<RelationshipResponse>builder().build();
     }
+
+    /**
+     * Gets the page information of a Spring Data {@link org.springframework.data.domain.Page} or {@link Slice}.
+     * <p>
+     * A slice doesn't know the total number of elements, so its page information has no total number of elements, and a total number of
+     * pages that only includes the next page if there is one.
+     *
+     * @param slice the page or slice
+     * @return the page information
+     */
+    public static PageInformation getPageInformation(Slice<?> slice) {
+
+        if (slice instanceof org.springframework.data.domain.Page) {
+            org.springframework.data.domain.Page<?> page = (org.springframework.data.domain.Page<?>) slice;
+            return PageInformation.builder()
+                .number((page.getTotalElements() > 0 ? page.getNumber() + 1 : 0))
+                .totalElements(page.getTotalElements())
+                .size(page.getNumberOfElements())
+                .totalPages((page.getNumberOfElements() > 0 ? page.getTotalPages() : 0))
+                .build();
+        }
+
+        return PageInformation.builder()
+            .number((slice.hasContent() ? slice.getNumber() + 1 : 0))
+            .size(slice.getNumberOfElements())
+            .totalPages((slice.hasContent() ? slice.getNumber() + (slice.hasNext() ? 2 : 1) : 0))
+            .build();
+    }
+
+    /**
+     * Checks if a data integrity violation was caused by inserting a relationship that violates the unique constraint over its natural key,
+     * i.e. if the relationship already exists.
+     *
+     * @param e the exception thrown by the insert
+     * @return {@code true} if the relationship already exists
+     */
+    public static boolean isDuplicateRelationship(DataIntegrityViolationException e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (constraintName != null) {
+                    return StringUtils.containsIgnoreCase(constraintName, RelationshipEntity.UNIQUE_CONSTRAINT_NAME);
+                }
+            }
+            if (cause instanceof SQLException) {
+                // the dialect couldn't tell the constraint name, but the relationship ID is generated, so it can't be the primary key
+                SQLException sqlException = (SQLException) cause;
+                return isDuplicateRelationship(sqlException.getSQLState(), sqlException.getErrorCode());
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if the SQL state or vendor error code of a failed insert of a relationship report a unique constraint violation. The
+     * relationship ID is generated, so it can't violate the primary key, i.e. the relationship already exists.
+     *
+     * @param sqlState the SQL state, may be {@code null}
+     * @param errorCode the vendor error code
+     * @return {@code true} if the relationship already exists
+     */
+    public static boolean isDuplicateRelationship(String sqlState, int errorCode) {
+
+        return SQL_STATE_UNIQUE_VIOLATION.equals(sqlState) || errorCode == MYSQL_ERROR_DUPLICATE_ENTRY;
+    }
 }
@@ -1,10 +1,10 @@
 package net.smartcosmos.dao.relationships.util;
 
+import java.nio.ByteBuffer;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.fasterxml.uuid.Generators;
+import com.fasterxml.uuid.impl.TimeBasedGenerator;
 
 public class UuidUtil {
 
@@ -18,14 +18,46 @@ public class UuidUtil {
     private static final String THING_PREFIX = "thing";
     private static final String RELATIONSHIP_PREFIX = "relationship";
 
+    private static final int UUID_STRING_LENGTH = 36;
+    private static final int URN_START_LENGTH = URN_PREFIX.length() + URN_SEPARATOR.length();
+    private static final int UUID_TYPE_LENGTH = URN_SEPARATOR.length() + UUID_TYPE.length() + URN_SEPARATOR.length();
+
+    /**
+     * Generator of time-based UUIDs with a fixed random node, whose timestamps are unique and increasing within the JVM.
+     */
+    private static final TimeBasedGenerator TIME_BASED_GENERATOR = Generators.timeBasedGenerator();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Number of slots of the tenant URN cache, must be a power of two.
+     */
+    private static final int TENANT_URN_CACHE_SIZE = 256;
+    private static final CachedUrn[] TENANT_URN_CACHE = new CachedUrn[TENANT_URN_CACHE_SIZE];
+
+    /**
+     * Gets the UUID from a URN of the scheme {@code urn:{prefix}:uuid:{uuid}}.
+     * <p>
+     * The URN is parsed by hand, but accepts exactly the URNs matched by the case-insensitive regular expression
+     * {@code ^urn:.*:uuid:([A-F0-9]{8}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{12})$}.
+     *
+     * @param urn the URN
+     * @return the UUID
+     * @throws IllegalArgumentException if the URN does not match the URN scheme
+     */
     public static UUID getUuidFromUrn(String urn) throws IllegalArgumentException {
 
-        String urnScheme = "^urn:.*:uuid:([A-F0-9]{8}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{12})$";
+        int end = urn.length();
+        UUID uuid = parseUrn(urn, end);
 
-        Pattern p = Pattern.compile(urnScheme, Pattern.CASE_INSENSITIVE);
-        Matcher m = p.matcher(urn);
-        if (m.find()) {
-            return UUID.fromString(m.group(1));
+        // like '$' in a regular expression, we also accept a final line terminator
+        if (uuid == null && end > 0 && isLineTerminator(urn.charAt(end - 1))) {
+            boolean crlf = end > 1 && urn.charAt(end - 2) == '\r' && urn.charAt(end - 1) == '\n';
+            uuid = parseUrn(urn, crlf ? end - 2 : end - 1);
+        }
+
+        if (uuid != null) {
+            return uuid;
         }
 
         throw new IllegalArgumentException(String.format("Provided URN '%s' does not match the required URN scheme '%s'",
@@ -38,9 +70,29 @@ public class UuidUtil {
         return getPrefixUrnFromUuid(THING_PREFIX, uuid);
     }
 
+    /**
+     * Gets the tenant URN for a UUID.
+     * <p>
+     * Formatted tenant URNs are kept in a small cache, since the same few tenants are formatted for every relationship of a result page.
+     *
+     * @param uuid the tenant UUID
+     * @return the tenant URN
+     */
     public static String getTenantUrnFromUuid(UUID uuid) {
 
-        return getPrefixUrnFromUuid(TENANT_PREFIX, uuid);
+        int hash = uuid.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (TENANT_URN_CACHE_SIZE - 1);
+
+        // the cache entries are immutable, so a race only means that the URN is formatted once more
+        CachedUrn cached = TENANT_URN_CACHE[index];
+        if (cached != null && cached.uuid.equals(uuid)) {
+            return cached.urn;
+        }
+
+        String urn = getPrefixUrnFromUuid(TENANT_PREFIX, uuid);
+        TENANT_URN_CACHE[index] = new CachedUrn(uuid, urn);
+
+        return urn;
     }
 
     public static String getUserUrnFromUuid(UUID uuid) {
@@ -55,42 +107,206 @@ public class UuidUtil {
 
     static String getPrefixUrnFromUuid(String prefix, UUID uuid) {
 
-        return new StringBuilder(URN_PREFIX)
-            .append(URN_SEPARATOR)
-            .append(prefix)
-            .append(URN_SEPARATOR)
-            .append(UUID_TYPE)
-            .append(URN_SEPARATOR)
-            .append(uuid.toString())
-            .toString()
-            .toLowerCase();
+        String lowerCasePrefix = prefix.toLowerCase();
+        char[] urn = new char[URN_START_LENGTH + lowerCasePrefix.length() + UUID_TYPE_LENGTH + UUID_STRING_LENGTH];
+
+        int position = append(urn, 0, URN_PREFIX);
+        position = append(urn, position, URN_SEPARATOR);
+        position = append(urn, position, lowerCasePrefix);
+        position = append(urn, position, URN_SEPARATOR);
+        position = append(urn, position, UUID_TYPE);
+        position = append(urn, position, URN_SEPARATOR);
+        appendUuid(urn, position, uuid);
+
+        return new String(urn);
     }
 
-    public static UUID getNewUuid() {
+    /**
+     * Encodes a UUID as the 16 bytes of a {@code uuid-binary} column, i.e. its most significant bits followed by its least significant bits.
+     *
+     * @param uuid the UUID
+     * @return the bytes
+     */
+    public static byte[] getBytesFromUuid(UUID uuid) {
 
-        String baseUuidString = Generators.timeBasedGenerator()
-            .generate()
-            .toString();
-        String[] parts = baseUuidString.split("-");
+        return ByteBuffer.allocate(2 * Long.BYTES)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
 
-        String sortedUuidString = new StringBuilder(36)
-            .append(parts[2])
-            .append(parts[1])
-            .append("-")
-            .append(parts[0].substring(0, 4))
-            .append("-")
-            .append(parts[0].substring(4, 8))
-            .append("-")
-            .append(parts[3])
-            .append("-")
-            .append(parts[4])
-            .toString();
+    /**
+     * Decodes the 16 bytes of a {@code uuid-binary} column.
+     *
+     * @param bytes the bytes, may be {@code null}
+     * @return the UUID, or {@code null} if the bytes are {@code null}
+     */
+    public static UUID getUuidFromBytes(byte[] bytes) {
 
-        return UUID.fromString(sortedUuidString);
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Gets a new time-ordered UUID.
+     * <p>
+     * The UUID is a time-based (version 1) UUID whose timestamp fields are swapped, so that its bytes start with the most significant
+     * bits of the timestamp. UUIDs generated by a JVM therefore increase monotonically when compared byte by byte, e.g. in a
+     * {@code BINARY(16)} primary key, and new rows are appended to the end of an index instead of being scattered all over it.
+     *
+     * @return the UUID
+     */
+    public static UUID getNewUuid() {
+
+        return toTimeOrderedUuid(TIME_BASED_GENERATOR.generate());
     }
 
     public static String getNewUuidAsString() {
 
         return getNewUuid().toString();
     }
+
+    /**
+     * Reorders the timestamp of a time-based UUID from {@code time_low-time_mid-version|time_hi} to {@code version|time_hi-time_mid-time_low}.
+     *
+     * @param timeBasedUuid the time-based UUID
+     * @return the time-ordered UUID
+     */
+    static UUID toTimeOrderedUuid(UUID timeBasedUuid) {
+
+        long mostSignificantBits = timeBasedUuid.getMostSignificantBits();
+        long timeOrderedBits = (mostSignificantBits << 48) | ((mostSignificantBits & 0xFFFF0000L) << 16) | (mostSignificantBits >>> 32);
+
+        return new UUID(timeOrderedBits, timeBasedUuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parses a URN whose UUID ends at a given index.
+     *
+     * @param urn the URN
+     * @param end the end index of the UUID
+     * @return the UUID, or {@code null} if the URN does not match the URN scheme
+     */
+    private static UUID parseUrn(String urn, int end) {
+
+        int uuidStart = end - UUID_STRING_LENGTH;
+        int uuidTypeStart = uuidStart - UUID_TYPE_LENGTH;
+        if (uuidTypeStart < URN_START_LENGTH) {
+            return null;
+        }
+
+        // urn:
+        if (!isAsciiLetter(urn.charAt(0), 'u') || !isAsciiLetter(urn.charAt(1), 'r') || !isAsciiLetter(urn.charAt(2), 'n')
+            || urn.charAt(3) != ':') {
+            return null;
+        }
+
+        // the prefix, i.e. any characters except line terminators
+        for (int i = URN_START_LENGTH; i < uuidTypeStart; i++) {
+            if (isLineTerminator(urn.charAt(i))) {
+                return null;
+            }
+        }
+
+        // :uuid:
+        if (urn.charAt(uuidTypeStart) != ':' || !isAsciiLetter(urn.charAt(uuidTypeStart + 1), 'u')
+            || !isAsciiLetter(urn.charAt(uuidTypeStart + 2), 'u') || !isAsciiLetter(urn.charAt(uuidTypeStart + 3), 'i')
+            || !isAsciiLetter(urn.charAt(uuidTypeStart + 4), 'd') || urn.charAt(uuidTypeStart + 5) != ':') {
+            return null;
+        }
+
+        // xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        for (int i = 0; i < UUID_STRING_LENGTH; i++) {
+            char c = urn.charAt(uuidStart + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return null;
+                }
+                continue;
+            }
+
+            int digit = hexDigitValue(c);
+            if (digit < 0) {
+                return null;
+            }
+            if (i < 18) {
+                mostSignificantBits = (mostSignificantBits << 4) | digit;
+            } else {
+                leastSignificantBits = (leastSignificantBits << 4) | digit;
+            }
+        }
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    private static boolean isAsciiLetter(char c, char lowerCaseLetter) {
+
+        return (c | 0x20) == lowerCaseLetter;
+    }
+
+    private static boolean isLineTerminator(char c) {
+
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static int hexDigitValue(char c) {
+
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int append(char[] target, int position, String value) {
+
+        value.getChars(0, value.length(), target, position);
+        return position + value.length();
+    }
+
+    private static void appendUuid(char[] target, int position, UUID uuid) {
+
+        long mostSignificantBits = uuid.getMostSignificantBits();
+        long leastSignificantBits = uuid.getLeastSignificantBits();
+
+        appendHex(target, position, mostSignificantBits >>> 32, 8);
+        target[position + 8] = '-';
+        appendHex(target, position + 9, mostSignificantBits >>> 16, 4);
+        target[position + 13] = '-';
+        appendHex(target, position + 14, mostSignificantBits, 4);
+        target[position + 18] = '-';
+        appendHex(target, position + 19, leastSignificantBits >>> 48, 4);
+        target[position + 23] = '-';
+        appendHex(target, position + 24, leastSignificantBits, 12);
+    }
+
+    private static void appendHex(char[] target, int position, long value, int digits) {
+
+        for (int i = digits - 1; i >= 0; i--) {
+            target[position + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static final class CachedUrn {
+
+        private final UUID uuid;
+        private final String urn;
+
+        private CachedUrn(UUID uuid, String urn) {
+
+            this.uuid = uuid;
+            this.urn = urn;
+        }
+    }
 }
@@ -0,0 +1,18 @@
+-- Enforce that a relationship exists only once per tenant, source, relationship type and target.
+--
+-- Duplicates that were created before the constraint existed are removed first, keeping the oldest relationship.
+-- The key spans three VARCHAR(255) columns, so the table must use a character set of at most 3 bytes per character (e.g. utf8)
+-- to stay within the InnoDB index key length limit of 3072 bytes.
+
+DELETE r1 FROM relationship r1
+    JOIN relationship r2
+        ON r1.tenantId = r2.tenantId
+        AND r1.sourceType = r2.sourceType
+        AND r1.sourceId = r2.sourceId
+        AND r1.relationshipType = r2.relationshipType
+        AND r1.targetType = r2.targetType
+        AND r1.targetId = r2.targetId
+        AND (r1.created > r2.created OR (r1.created = r2.created AND r1.id > r2.id));
+
+ALTER TABLE relationship
+    ADD CONSTRAINT relationship_unique UNIQUE (tenantId, sourceType, sourceId, relationshipType, targetType, targetId);
@@ -0,0 +1,17 @@
+-- Index the relationship type of the relationships of a source or target, within a tenant and across tenants.
+--
+-- The new tenant indexes replace source_index and target_index, which are prefixes of them. Although the relationship_unique
+-- constraint also starts with (tenantId, sourceType, sourceId, relationshipType), the optimizer may prefer the shorter source
+-- index, so the relationship type is indexed explicitly.
+
+CREATE INDEX source_type_index ON relationship (tenantId, sourceType, sourceId, relationshipType);
+
+CREATE INDEX target_type_index ON relationship (tenantId, targetType, targetId, relationshipType);
+
+DROP INDEX source_index ON relationship;
+
+DROP INDEX target_index ON relationship;
+
+CREATE INDEX source_type_all_tenants_index ON relationship (sourceType, sourceId, relationshipType);
+
+CREATE INDEX target_type_all_tenants_index ON relationship (targetType, targetId, relationshipType);
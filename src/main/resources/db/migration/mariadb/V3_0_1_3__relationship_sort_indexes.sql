@@ -0,0 +1,22 @@
+-- Extend the indexes of the relationships of a source or target with (created, id), so pages sorted by creation date are read in index
+-- order instead of sorting all relationships of the source or target first.
+
+CREATE INDEX source_created_index ON relationship (tenantId, sourceType, sourceId, created, id);
+
+CREATE INDEX target_created_index ON relationship (tenantId, targetType, targetId, created, id);
+
+ALTER TABLE relationship
+    DROP INDEX source_type_index,
+    ADD INDEX source_type_index (tenantId, sourceType, sourceId, relationshipType, created, id);
+
+ALTER TABLE relationship
+    DROP INDEX target_type_index,
+    ADD INDEX target_type_index (tenantId, targetType, targetId, relationshipType, created, id);
+
+ALTER TABLE relationship
+    DROP INDEX source_type_all_tenants_index,
+    ADD INDEX source_type_all_tenants_index (sourceType, sourceId, relationshipType, created, id);
+
+ALTER TABLE relationship
+    DROP INDEX target_type_all_tenants_index,
+    ADD INDEX target_type_all_tenants_index (targetType, targetId, relationshipType, created, id);
@@ -0,0 +1,23 @@
+-- Count the relationships of each relationship type that an entity is the source or target of, so degrees can be read without counting
+-- the relationships. The counters are maintained when relationships are created or deleted, and initialized from the existing
+-- relationships here.
+
+CREATE TABLE relationship_degree (
+    tenantId BINARY(16) NOT NULL,
+    endpoint VARCHAR(6) NOT NULL,
+    endpointType VARCHAR(255) NOT NULL,
+    endpointId BINARY(16) NOT NULL,
+    relationshipType VARCHAR(255) NOT NULL,
+    relationshipCount BIGINT NOT NULL,
+    PRIMARY KEY (tenantId, endpoint, endpointType, endpointId, relationshipType)
+);
+
+INSERT INTO relationship_degree (tenantId, endpoint, endpointType, endpointId, relationshipType, relationshipCount)
+    SELECT tenantId, 'SOURCE', sourceType, sourceId, relationshipType, COUNT(*)
+    FROM relationship
+    GROUP BY tenantId, sourceType, sourceId, relationshipType;
+
+INSERT INTO relationship_degree (tenantId, endpoint, endpointType, endpointId, relationshipType, relationshipCount)
+    SELECT tenantId, 'TARGET', targetType, targetId, relationshipType, COUNT(*)
+    FROM relationship
+    GROUP BY tenantId, targetType, targetId, relationshipType;
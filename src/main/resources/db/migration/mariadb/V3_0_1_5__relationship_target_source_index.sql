@@ -0,0 +1,7 @@
+-- Extend the index of the relationships of a target with the source ID, so the source IDs of a target are read from that index alone,
+-- like the target IDs of a source are read from relationship_unique. The column is appended, so pages sorted by creation date are still
+-- read in index order.
+
+ALTER TABLE relationship
+    DROP INDEX target_type_index,
+    ADD INDEX target_type_index (tenantId, targetType, targetId, relationshipType, created, id, sourceId);
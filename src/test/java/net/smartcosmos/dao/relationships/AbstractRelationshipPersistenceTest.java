@@ -0,0 +1,65 @@
+package net.smartcosmos.dao.relationships;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.smartcosmos.dao.relationships.repository.RelationshipRepository;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipReference;
+
+/**
+ * Base class of the tests that run against the persistence configuration on the embedded test database, which is emptied after each test.
+ * <p>
+ * Subclasses that need further properties declare {@link IntegrationTest} again, including the properties declared here.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {
+    RelationshipPersistenceTestApplication.class,
+    RelationshipPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false" })
+public abstract class AbstractRelationshipPersistenceTest {
+
+    @Autowired
+    protected RelationshipRepository relationshipRepository;
+
+    @After
+    public void deleteRelationships() throws Exception {
+
+        relationshipRepository.deleteAll();
+    }
+
+    /**
+     * Builds a relationship of type {@code Type} from a source to a new target, both of type {@code Thing}.
+     */
+    public static RelationshipCreate createRelationship(String sourceUrn) {
+
+        return createRelationship(sourceUrn, "Type", UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid()));
+    }
+
+    /**
+     * Builds a relationship between a source and a target, both of type {@code Thing}.
+     */
+    public static RelationshipCreate createRelationship(String sourceUrn, String relationshipType, String targetUrn) {
+
+        return RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type("Thing")
+                        .urn(sourceUrn)
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type("Thing")
+                        .urn(targetUrn)
+                        .build())
+            .relationshipType(relationshipType)
+            .build();
+    }
+}
@@ -0,0 +1,128 @@
+package net.smartcosmos.dao.relationships.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.*;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+public class AdjacencyPageCacheTest {
+
+    private final RelationshipEntity entity = RelationshipEntity.builder()
+        .id(UuidUtil.getNewUuid())
+        .tenantId(UuidUtil.getNewUuid())
+        .sourceType("Thing")
+        .sourceId(UuidUtil.getNewUuid())
+        .relationshipType("Contains")
+        .targetType("Thing")
+        .targetId(UuidUtil.getNewUuid())
+        .build();
+
+    private final List<?> query = Arrays.asList("findAllForSource", entity.getTenantId(), 1, 10);
+
+    private final Page<RelationshipResponse> page = Page.<RelationshipResponse>builder()
+        .data(Collections.emptyList())
+        .build();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private AdjacencyPageCache cache;
+
+    @Before
+    public void setUp() {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getPageCache()
+            .setEnabled(true);
+        cache = new AdjacencyPageCache(properties);
+    }
+
+    @After
+    public void tearDown() {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void thatPageIsCachedPerQuery() {
+
+        assertSame(page, cache.get(entity.getSourceType(), entity.getSourceId(), query, loader()));
+        assertSame(page, cache.get(entity.getSourceType(), entity.getSourceId(), query, loader()));
+        cache.get(entity.getSourceType(), entity.getSourceId(), Arrays.asList("findAllForSource", entity.getTenantId(), 2, 10), loader());
+
+        assertEquals(2, loads.get());
+        assertEquals(1,
+                     cache.stats()
+                         .hitCount());
+    }
+
+    @Test
+    public void thatInvalidateMovesSourceAndTargetToNewGeneration() {
+
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+        cache.get(entity.getTargetType(), entity.getTargetId(), query, loader());
+        cache.get("Other", entity.getSourceId(), query, loader());
+
+        cache.invalidate(entity);
+
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+        cache.get(entity.getTargetType(), entity.getTargetId(), query, loader());
+        cache.get("Other", entity.getSourceId(), query, loader());
+
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void thatInvalidateWaitsForCommit() {
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+
+        cache.invalidate(entity);
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+        assertEquals(1, loads.get());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void thatDisabledCacheAlwaysLoads() {
+
+        cache = new AdjacencyPageCache(new RelationshipPersistenceProperties());
+
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+        cache.get(entity.getSourceType(), entity.getSourceId(), query, loader());
+
+        assertFalse(cache.isEnabled());
+        assertEquals(2, loads.get());
+        assertEquals(0,
+                     cache.stats()
+                         .requestCount());
+    }
+
+    private Supplier<Page<RelationshipResponse>> loader() {
+
+        return () -> {
+            loads.incrementAndGet();
+            return page;
+        };
+    }
+}
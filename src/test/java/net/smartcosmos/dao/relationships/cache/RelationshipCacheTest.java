@@ -0,0 +1,113 @@
+package net.smartcosmos.dao.relationships.cache;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.*;
+
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+public class RelationshipCacheTest {
+
+    private final RelationshipEntity entity = RelationshipEntity.builder()
+        .id(UuidUtil.getNewUuid())
+        .tenantId(UuidUtil.getNewUuid())
+        .sourceType("Thing")
+        .sourceId(UuidUtil.getNewUuid())
+        .relationshipType("Contains")
+        .targetType("Thing")
+        .targetId(UuidUtil.getNewUuid())
+        .build();
+
+    private final RelationshipResponse response = RelationshipResponse.builder()
+        .urn(UuidUtil.getRelationshipUrnFromUuid(entity.getId()))
+        .relationshipType(entity.getRelationshipType())
+        .build();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RelationshipCache cache;
+
+    @Before
+    public void setUp() {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getCache()
+            .setEnabled(true);
+        cache = new RelationshipCache(properties);
+    }
+
+    @Test
+    public void thatFoundRelationshipIsCached() {
+
+        assertEquals(response, cache.get(entity.getTenantId(), entity.getId(), loader(Optional.of(response)))
+            .get());
+        assertEquals(response, cache.get(entity.getTenantId(), entity.getId(), loader(Optional.of(response)))
+            .get());
+
+        assertEquals(1, loads.get());
+        assertEquals(1,
+                     cache.stats()
+                         .hitCount());
+        assertEquals(1,
+                     cache.stats()
+                         .missCount());
+    }
+
+    @Test
+    public void thatMissingRelationshipIsNotCached() {
+
+        assertFalse(cache.get(RelationshipKey.of(entity), loader(Optional.empty()))
+                        .isPresent());
+        assertTrue(cache.get(RelationshipKey.of(entity), loader(Optional.of(response)))
+                       .isPresent());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void thatInvalidateRemovesIdAndNaturalKey() {
+
+        cache.get(entity.getTenantId(), entity.getId(), loader(Optional.of(response)));
+        cache.get(RelationshipKey.of(entity), loader(Optional.of(response)));
+
+        cache.invalidate(entity);
+
+        assertFalse(cache.get(entity.getTenantId(), entity.getId(), loader(Optional.empty()))
+                        .isPresent());
+        assertFalse(cache.get(RelationshipKey.of(entity), loader(Optional.empty()))
+                        .isPresent());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void thatDisabledCacheAlwaysLoads() {
+
+        cache = new RelationshipCache(new RelationshipPersistenceProperties());
+
+        cache.get(entity.getTenantId(), entity.getId(), loader(Optional.of(response)));
+        cache.get(entity.getTenantId(), entity.getId(), loader(Optional.of(response)));
+
+        assertFalse(cache.isEnabled());
+        assertEquals(2, loads.get());
+        assertEquals(0,
+                     cache.stats()
+                         .requestCount());
+    }
+
+    private Supplier<Optional<RelationshipResponse>> loader(Optional<RelationshipResponse> result) {
+
+        return () -> {
+            loads.incrementAndGet();
+            return result;
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package net.smartcosmos.dao.relationships.converter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.*;
@@ -71,4 +74,31 @@ public class RelationshipEntityToRelationshipResponseConverterTest {
         assertEquals(TEST_TENANT_URN, relationshipResponse.getSource().getTenantUrn());
         assertEquals(TEST_TENANT_URN, relationshipResponse.getTarget().getTenantUrn());
     }
+
+    @Test
+    public void thatToResponsesConvertsInOrder() throws Exception {
+
+        List<RelationshipEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .id(UuidUtil.getNewUuid())
+                             .tenantId(UuidUtil.getNewUuid())
+                             .sourceId(UuidUtil.getNewUuid())
+                             .sourceType("Thing")
+                             .targetId(UuidUtil.getNewUuid())
+                             .targetType("Thing")
+                             .relationshipType("Type " + i)
+                             .build());
+        }
+
+        RelationshipEntityToRelationshipResponseConverter converter = new RelationshipEntityToRelationshipResponseConverter();
+        List<RelationshipResponse> responses = RelationshipEntityToRelationshipResponseConverter.toResponses(entities);
+
+        assertEquals(entities.size(), responses.size());
+        for (int i = 0; i < entities.size(); i++) {
+            assertEquals(converter.convert(entities.get(i)), responses.get(i));
+        }
+        assertTrue(RelationshipEntityToRelationshipResponseConverter.toResponses(Collections.emptyList())
+                       .isEmpty());
+    }
 }
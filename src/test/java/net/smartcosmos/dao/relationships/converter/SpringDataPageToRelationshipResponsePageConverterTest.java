@@ -6,6 +6,8 @@ import java.util.List;
 
 import org.junit.*;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
 import net.smartcosmos.dao.relationships.util.RelationshipPersistenceUtil;
@@ -88,4 +90,43 @@ public class SpringDataPageToRelationshipResponsePageConverterTest extends Abstr
         assertEquals(emptyPage, convertedPage);
     }
 
+    @Test
+    public void thatSliceConversionHasNoTotalElements() {
+
+        List<RelationshipEntity> content = new ArrayList<>();
+        content.add(RelationshipEntity.builder()
+                        .id(UuidUtil.getNewUuid())
+                        .tenantId(UuidUtil.getNewUuid())
+                        .sourceId(UuidUtil.getNewUuid())
+                        .sourceType("Thing")
+                        .targetId(UuidUtil.getNewUuid())
+                        .targetType("Thing")
+                        .relationshipType("Created by")
+                        .build());
+
+        Page<RelationshipResponse> convertedPage = conversionService.convert(new SliceImpl<>(content, new PageRequest(2, 1), true), Page.class);
+
+        assertEquals(1,
+                     convertedPage.getData()
+                         .size());
+        PageInformation pageInformation = convertedPage.getPage();
+        assertEquals(1, pageInformation.getSize());
+        assertEquals(3, pageInformation.getNumber());
+        assertEquals(4, pageInformation.getTotalPages());
+        assertEquals(0, pageInformation.getTotalElements());
+
+        convertedPage = conversionService.convert(new SliceImpl<>(content, new PageRequest(2, 1), false), Page.class);
+
+        assertEquals(3,
+                     convertedPage.getPage()
+                         .getTotalPages());
+    }
+
+    @Test
+    public void thatEmptySliceConversionSucceeds() {
+
+        Page<RelationshipResponse> convertedPage = conversionService.convert(new SliceImpl<>(new ArrayList<RelationshipEntity>()), Page.class);
+
+        assertEquals(RelationshipPersistenceUtil.emptyPage(), convertedPage);
+    }
 }
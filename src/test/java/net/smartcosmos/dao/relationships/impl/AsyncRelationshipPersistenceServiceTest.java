@@ -0,0 +1,160 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+public class AsyncRelationshipPersistenceServiceTest extends AbstractRelationshipPersistenceTest {
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+
+    @Autowired
+    AsyncRelationshipPersistenceService asyncRelationshipPersistenceService;
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    List<DataSourcePoolMetadataProvider> poolMetadataProviders;
+
+    @Test
+    public void thatThreadsMatchConnectionPool() {
+
+        assertEquals(((org.apache.tomcat.jdbc.pool.DataSource) dataSource).getMaxActive(), asyncRelationshipPersistenceService.getThreads());
+    }
+
+    @Test
+    public void thatLookupsOverlap() throws Exception {
+
+        final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+        final String targetUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+        String urn = asyncRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn, "Type", targetUrn))
+            .get(10, TimeUnit.SECONDS)
+            .map(RelationshipResponse::getUrn)
+            .orElseThrow(IllegalStateException::new);
+
+        CompletableFuture<Optional<RelationshipResponse>> byUrn = asyncRelationshipPersistenceService.findByUrn(accountUrn, urn);
+        CompletableFuture<Page<RelationshipResponse>> forSource = asyncRelationshipPersistenceService
+            .findAllForSource(accountUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created");
+        CompletableFuture<Page<RelationshipResponse>> forTarget = asyncRelationshipPersistenceService
+            .findAllForTarget(accountUrn, "Thing", targetUrn, 1, 10, SortOrder.ASC, "created");
+        CompletableFuture.allOf(byUrn, forSource, forTarget)
+            .get(10, TimeUnit.SECONDS);
+
+        assertTrue(byUrn.get()
+                       .isPresent());
+        assertEquals(urn,
+                     forSource.get()
+                         .getData()
+                         .get(0)
+                         .getUrn());
+        assertEquals(urn,
+                     forTarget.get()
+                         .getData()
+                         .get(0)
+                         .getUrn());
+    }
+
+    @Test
+    public void thatFailureCompletesFutureExceptionally() throws Exception {
+
+        try {
+            asyncRelationshipPersistenceService.findByUrn(accountUrn, "no-urn")
+                .get(10, TimeUnit.SECONDS);
+            fail("Expected an IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void thatFullQueueRejectsCalls() throws Exception {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getAsync()
+            .setThreads(1);
+        properties.getAsync()
+            .setQueueCapacity(1);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AsyncRelationshipPersistenceService service = new AsyncRelationshipPersistenceService(relationshipPersistenceService,
+                                                                                              properties,
+                                                                                              providerOf(dataSource),
+                                                                                              providerOf(poolMetadataProviders),
+                                                                                              providerOf(meterRegistry));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = service.submit(dao -> {
+                started.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<Boolean> queued = service.submit(dao -> true);
+            CompletableFuture<Boolean> rejected = service.submit(dao -> true);
+
+            assertEquals(1, service.getActiveCount());
+            assertEquals(1, service.getQueueDepth());
+            assertEquals(1, service.getRejectedCount());
+            assertEquals(1.0, meterRegistry.get(AsyncRelationshipPersistenceService.QUEUE_DEPTH)
+                .gauge()
+                .value(), 0.0);
+            assertEquals(1.0, meterRegistry.get(AsyncRelationshipPersistenceService.REJECTIONS)
+                .functionCounter()
+                .count(), 0.0);
+            assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+                fail("Expected a RejectedExecutionException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS));
+            assertTrue(queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> providerOf(T object) {
+
+        ObjectProvider<T> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable())
+            .thenReturn(object);
+        return provider;
+    }
+}
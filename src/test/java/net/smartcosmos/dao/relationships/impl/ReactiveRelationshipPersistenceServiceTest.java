@@ -0,0 +1,300 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.BaseSubscriber;
+
+import org.junit.*;
+import org.mockito.*;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+public class ReactiveRelationshipPersistenceServiceTest extends AbstractRelationshipPersistenceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    @Autowired
+    ReactiveRelationshipPersistenceService reactiveRelationshipPersistenceService;
+
+    @Test
+    public void thatCreateAndFindByUrnPublishRelationship() {
+
+        RelationshipResponse created = reactiveRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn))
+            .block(TIMEOUT);
+
+        assertNotNull(created);
+        assertEquals(created.getUrn(),
+                     reactiveRelationshipPersistenceService.findByUrn(accountUrn, created.getUrn())
+                         .map(RelationshipResponse::getUrn)
+                         .block(TIMEOUT));
+        assertEquals(1,
+                     reactiveRelationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created")
+                         .block(TIMEOUT)
+                         .getData()
+                         .size());
+    }
+
+    @Test
+    public void thatMissingRelationshipIsEmpty() {
+
+        String urn = UuidUtil.getRelationshipUrnFromUuid(UuidUtil.getNewUuid());
+
+        assertFalse(reactiveRelationshipPersistenceService.findByUrn(accountUrn, urn)
+                        .hasElement()
+                        .block(TIMEOUT));
+        assertEquals(0,
+                     reactiveRelationshipPersistenceService.delete(accountUrn, urn)
+                         .count()
+                         .block(TIMEOUT)
+                         .longValue());
+    }
+
+    @Test
+    public void thatNothingHappensWithoutSubscription() {
+
+        reactiveRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn));
+
+        assertEquals(0, relationshipRepository.count());
+    }
+
+    @Test
+    public void thatAllRelationshipsOfSourceArePublishedInOrder() {
+
+        List<String> urns = reactiveRelationshipPersistenceService.createAll(accountUrn, createRelationships(5))
+            .map(result -> result.getRelationship()
+                .getUrn())
+            .collectList()
+            .block(TIMEOUT);
+
+        List<String> published = reactiveRelationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn)
+            .map(RelationshipResponse::getUrn)
+            .limitRate(2)
+            .collectList()
+            .block(TIMEOUT);
+
+        assertEquals(urns.stream()
+                         .sorted()
+                         .collect(Collectors.toList()), published);
+    }
+
+    @Test
+    public void thatRelationshipsArePublishedOnDemand() throws Exception {
+
+        reactiveRelationshipPersistenceService.createAll(accountUrn, createRelationships(5))
+            .blockLast(TIMEOUT);
+
+        List<String> received = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        reactiveRelationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn)
+            .subscribe(new BaseSubscriber<RelationshipResponse>() {
+
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+
+                    request(1);
+                }
+
+                @Override
+                protected void hookOnNext(RelationshipResponse value) {
+
+                    synchronized (received) {
+                        received.add(value.getUrn());
+                        threads.add(Thread.currentThread()
+                                        .getName());
+                        if (received.size() == 2) {
+                            cancel();
+                        } else {
+                            request(1);
+                        }
+                        received.notifyAll();
+                    }
+                }
+            });
+
+        synchronized (received) {
+            long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+            while (received.size() < 2 && System.currentTimeMillis() < deadline) {
+                received.wait(100);
+            }
+        }
+        Thread.sleep(100);
+
+        assertEquals(2, received.size());
+        for (String thread : threads) {
+            assertTrue(thread, thread.startsWith("relationship-dao-"));
+        }
+    }
+
+    @Test
+    public void thatCursorIsNotClosedWhileRead() throws Exception {
+
+        AtomicBoolean reading = new AtomicBoolean();
+        AtomicBoolean closedWhileReading = new AtomicBoolean();
+        // the first read may happen within the subscription, so the cancel races with the second read
+        CountDownLatch readStarted = new CountDownLatch(2);
+        CountDownLatch closed = new CountDownLatch(1);
+        Stream<RelationshipResponse> cursor = Stream.generate(() -> {
+            reading.set(true);
+            readStarted.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+            }
+            reading.set(false);
+            return RelationshipResponse.builder()
+                .build();
+        })
+            .onClose(() -> {
+                closedWhileReading.set(reading.get());
+                closed.countDown();
+            });
+
+        RelationshipPersistenceService dao = Mockito.mock(RelationshipPersistenceService.class);
+        Mockito.when(dao.streamAllForSource(accountUrn, "Thing", sourceUrn))
+            .thenReturn(cursor);
+        AsyncRelationshipPersistenceService async = Mockito.mock(AsyncRelationshipPersistenceService.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Mockito.when(async.getExecutor())
+            .thenReturn(executor);
+        try {
+            BaseSubscriber<RelationshipResponse> subscriber = new BaseSubscriber<RelationshipResponse>() {
+
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+
+                    request(1);
+                }
+
+                @Override
+                protected void hookOnNext(RelationshipResponse value) {
+
+                    request(1);
+                }
+            };
+            newService(dao, async, 1).findAllForSource(accountUrn, "Thing", sourceUrn)
+                .subscribe(subscriber);
+            assertTrue(readStarted.await(10, TimeUnit.SECONDS));
+            subscriber.dispose();
+
+            assertTrue(closed.await(10, TimeUnit.SECONDS));
+            assertFalse(closedWhileReading.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void thatCursorsBeyondLimitAreRejected() throws Exception {
+
+        RelationshipPersistenceService dao = Mockito.mock(RelationshipPersistenceService.class);
+        Mockito.when(dao.streamAllForSource(accountUrn, "Thing", sourceUrn))
+            .thenAnswer(invocation -> Stream.generate(() -> RelationshipResponse.builder()
+                .build()));
+        AsyncRelationshipPersistenceService async = Mockito.mock(AsyncRelationshipPersistenceService.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Mockito.when(async.getExecutor())
+            .thenReturn(executor);
+        try {
+            ReactiveRelationshipPersistenceService service = newService(dao, async, 1);
+            CountDownLatch received = new CountDownLatch(1);
+            BaseSubscriber<RelationshipResponse> subscriber = new BaseSubscriber<RelationshipResponse>() {
+
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+
+                    request(1);
+                }
+
+                @Override
+                protected void hookOnNext(RelationshipResponse value) {
+
+                    received.countDown();
+                }
+            };
+            service.findAllForSource(accountUrn, "Thing", sourceUrn)
+                .subscribe(subscriber);
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(0, service.getAvailableCursors());
+
+            try {
+                service.findAllForSource(accountUrn, "Thing", sourceUrn)
+                    .blockFirst(TIMEOUT);
+                fail("expected a RejectedExecutionException");
+            } catch (RejectedExecutionException e) {
+                assertEquals(0, service.getAvailableCursors());
+            }
+
+            subscriber.dispose();
+            awaitAvailableCursors(service, 1);
+            assertNotNull(service.findAllForSource(accountUrn, "Thing", sourceUrn)
+                              .blockFirst(TIMEOUT));
+            awaitAvailableCursors(service, 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitAvailableCursors(ReactiveRelationshipPersistenceService service, int expected) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (service.getAvailableCursors() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, service.getAvailableCursors());
+    }
+
+    private static ReactiveRelationshipPersistenceService newService(
+        RelationshipPersistenceService dao,
+        AsyncRelationshipPersistenceService async,
+        int maxOpenCursors) {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getReactive()
+            .setMaxOpenCursors(maxOpenCursors);
+        return new ReactiveRelationshipPersistenceService(dao, async, properties, providerOf(null), providerOf(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> providerOf(T object) {
+
+        ObjectProvider<T> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable())
+            .thenReturn(object);
+        return provider;
+    }
+
+    private List<RelationshipCreate> createRelationships(int count) {
+
+        List<RelationshipCreate> relationships = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            relationships.add(createRelationship(sourceUrn));
+        }
+        return relationships;
+    }
+}
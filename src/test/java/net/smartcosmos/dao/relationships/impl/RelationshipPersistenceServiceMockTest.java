@@ -9,6 +9,10 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.domain.Pageable;
 
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.cache.AdjacencyPageCache;
+import net.smartcosmos.dao.relationships.cache.RelationshipCache;
+import net.smartcosmos.dao.relationships.repository.RelationshipDegreeRepository;
 import net.smartcosmos.dao.relationships.repository.RelationshipRepository;
 
 import static org.junit.Assert.*;
@@ -21,12 +25,25 @@ import static org.mockito.Mockito.verify;
 @RunWith(MockitoJUnitRunner.class)
 public class RelationshipPersistenceServiceMockTest {
 
-    @Mock
+    // the pages are converted directly, so the finders return mocked pages instead of null
+    @Mock(answer = Answers.RETURNS_MOCKS)
     RelationshipRepository relationshipRepository;
 
+    @Mock
+    RelationshipDegreeRepository relationshipDegreeRepository;
+
     @Mock
     ConversionService conversionService;
 
+    @Spy
+    RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+
+    @Spy
+    RelationshipCache relationshipCache = new RelationshipCache(properties);
+
+    @Spy
+    AdjacencyPageCache adjacencyPageCache = new AdjacencyPageCache(properties);
+
     @InjectMocks
     RelationshipPersistenceService service;
 
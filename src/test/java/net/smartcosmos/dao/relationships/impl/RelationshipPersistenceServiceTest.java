@@ -1,28 +1,48 @@
 package net.smartcosmos.dao.relationships.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
 import javax.validation.ConstraintViolationException;
 
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.stat.Statistics;
 import org.junit.*;
-import org.junit.runner.*;
 import org.mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.IntegrationTest;
-import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.test.context.web.WebAppConfiguration;
-
-import net.smartcosmos.dao.relationships.RelationshipPersistenceConfig;
-import net.smartcosmos.dao.relationships.RelationshipPersistenceTestApplication;
-import net.smartcosmos.dao.relationships.repository.RelationshipRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.PageMode;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.cache.AdjacencyPageCache;
+import net.smartcosmos.dao.relationships.cache.RelationshipCache;
+import net.smartcosmos.dao.relationships.domain.CursorPage;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
 import net.smartcosmos.dao.relationships.util.UuidUtil;
 import net.smartcosmos.dto.relationships.Page;
 import net.smartcosmos.dto.relationships.RelationshipCreate;
@@ -37,14 +57,7 @@ import static org.junit.Assert.*;
  * actually called. It's a minor setback with Spring, one that just requires some diligent
  * testing.accountId
  */
-@RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = {
-    RelationshipPersistenceTestApplication.class,
-    RelationshipPersistenceConfig.class })
-@ActiveProfiles("test")
-@WebAppConfiguration
-@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false" })
-public class RelationshipPersistenceServiceTest {
+public class RelationshipPersistenceServiceTest extends AbstractRelationshipPersistenceTest {
 
     private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
 
@@ -52,7 +65,16 @@ public class RelationshipPersistenceServiceTest {
     RelationshipPersistenceService relationshipPersistenceService;
 
     @Autowired
-    RelationshipRepository relationshipRepository;
+    RelationshipCache relationshipCache;
+
+    @Autowired
+    AdjacencyPageCache adjacencyPageCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
 
     @Before
     public void setUp() throws Exception {
@@ -72,7 +94,8 @@ public class RelationshipPersistenceServiceTest {
     @After
     public void tearDown() throws Exception {
 
-        relationshipRepository.deleteAll();
+        relationshipCache.invalidateAll();
+        adjacencyPageCache.invalidateAll();
     }
 
     @Test
@@ -197,6 +220,171 @@ public class RelationshipPersistenceServiceTest {
 
     }
 
+    @Test
+    public void testCreateOrGetReturnsExistingRelationshipOnSecondCreate() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_SOURCE_TYPE = "Thing";
+        final String TEST_TARGET_TYPE = "Thing";
+        final String TEST_RELATIONSHIP_TYPE = "Created by";
+
+        RelationshipCreate relationshipCreate = RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type(TEST_SOURCE_TYPE)
+                        .urn(TEST_SOURCE_URN)
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type(TEST_TARGET_TYPE)
+                        .urn(TEST_TARGET_URN)
+                        .build())
+            .relationshipType(TEST_RELATIONSHIP_TYPE)
+            .build();
+
+        RelationshipCreateResult result = relationshipPersistenceService.createOrGet(accountUrn, relationshipCreate);
+
+        assertTrue(result.isCreated());
+        assertEquals(TEST_SOURCE_URN,
+                     result.getRelationship()
+                         .getSource()
+                         .getUrn());
+
+        RelationshipCreateResult result2 = relationshipPersistenceService.createOrGet(accountUrn, relationshipCreate);
+
+        assertFalse(result2.isCreated());
+        assertEquals(result.getRelationship(), result2.getRelationship());
+    }
+
+    @Test
+    public void testCreateAllSuccess() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_SOURCE_TYPE = "Thing";
+        final String TEST_TARGET_TYPE = "Thing";
+        final String TEST_RELATIONSHIP_TYPE = "Created in batch";
+
+        List<RelationshipCreate> relationshipCreates = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            relationshipCreates.add(RelationshipCreate.builder()
+                                        .source(RelationshipReference.builder()
+                                                    .type(TEST_SOURCE_TYPE)
+                                                    .urn(TEST_SOURCE_URN)
+                                                    .build())
+                                        .target(RelationshipReference.builder()
+                                                    .type(TEST_TARGET_TYPE)
+                                                    .urn("urn:thing:uuid:" + UuidUtil.getNewUuidAsString())
+                                                    .build())
+                                        .relationshipType(TEST_RELATIONSHIP_TYPE)
+                                        .build());
+        }
+
+        List<RelationshipCreateResult> results = relationshipPersistenceService.createAll(accountUrn, relationshipCreates);
+
+        assertEquals(relationshipCreates.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            RelationshipCreateResult result = results.get(i);
+            assertTrue(result.isCreated());
+            assertNotNull(result.getRelationship()
+                              .getUrn());
+            assertEquals(accountUrn,
+                         result.getRelationship()
+                             .getTenantUrn());
+            assertEquals(relationshipCreates.get(i)
+                             .getTarget()
+                             .getUrn(),
+                         result.getRelationship()
+                             .getTarget()
+                             .getUrn());
+        }
+
+        Page<RelationshipResponse> responsePage = relationshipPersistenceService.findAllForSource(accountUrn, TEST_SOURCE_TYPE, TEST_SOURCE_URN,
+                                                                                                  1, 1, null, null);
+        assertEquals(relationshipCreates.size(),
+                     responsePage.getPage()
+                         .getTotalElements());
+    }
+
+    @Test
+    public void testCreateAllReportsDuplicatesAndExistingRelationships() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_SOURCE_TYPE = "Thing";
+        final String TEST_TARGET_TYPE = "Thing";
+        final String TEST_RELATIONSHIP_TYPE = "Created in batch";
+
+        RelationshipCreate existing = RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type(TEST_SOURCE_TYPE)
+                        .urn(TEST_SOURCE_URN)
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type(TEST_TARGET_TYPE)
+                        .urn("urn:thing:uuid:" + UuidUtil.getNewUuidAsString())
+                        .build())
+            .relationshipType(TEST_RELATIONSHIP_TYPE)
+            .build();
+        RelationshipCreate duplicate = RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type(TEST_SOURCE_TYPE)
+                        .urn(TEST_SOURCE_URN)
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type(TEST_TARGET_TYPE)
+                        .urn("urn:thing:uuid:" + UuidUtil.getNewUuidAsString())
+                        .build())
+            .relationshipType(TEST_RELATIONSHIP_TYPE)
+            .build();
+
+        String existingUrn = relationshipPersistenceService.create(accountUrn, existing)
+            .get()
+            .getUrn();
+
+        List<RelationshipCreateResult> results = relationshipPersistenceService.createAll(accountUrn,
+                                                                                          Arrays.asList(duplicate, existing, duplicate));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0)
+                       .isCreated());
+        assertFalse(results.get(1)
+                        .isCreated());
+        assertEquals(existingUrn,
+                     results.get(1)
+                         .getRelationship()
+                         .getUrn());
+        assertFalse(results.get(2)
+                        .isCreated());
+        assertEquals(results.get(0)
+                         .getRelationship()
+                         .getUrn(),
+                     results.get(2)
+                         .getRelationship()
+                         .getUrn());
+
+        Page<RelationshipResponse> responsePage = relationshipPersistenceService.findAllForSource(accountUrn, TEST_SOURCE_TYPE, TEST_SOURCE_URN,
+                                                                                                  null, null, null, null);
+        assertEquals(2,
+                     responsePage.getPage()
+                         .getTotalElements());
+    }
+
+    @Test(expected = ConstraintViolationException.class)
+    public void testCreateAllThrowsConstraintViolationExceptionOnBadRelationshipType() {
+
+        RelationshipCreate relationshipCreate = RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type("Thing")
+                        .urn("urn:thing:uuid:" + UuidUtil.getNewUuidAsString())
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type("Thing")
+                        .urn("urn:thing:uuid:" + UuidUtil.getNewUuidAsString())
+                        .build())
+            .relationshipType(null)
+            .build();
+
+        relationshipPersistenceService.createAll(accountUrn, Arrays.asList(relationshipCreate));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testCreateThrowsIllegalArgumentExceptionOnBadSourceUrn() {
 
@@ -1141,4 +1329,585 @@ public class RelationshipPersistenceServiceTest {
                          .getTotalPages());
     }
 
+    @Test
+    public void testFindAllForSourceAfterPagesThroughAllRelationships() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN, "Type", 25));
+
+        CursorPage<RelationshipResponse> firstPage = relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", TEST_SOURCE_URN,
+                                                                                                         null, 10, SortOrder.ASC);
+        assertEquals(10,
+                     firstPage.getData()
+                         .size());
+        assertNotNull(firstPage.getNextCursor());
+
+        // relationships created in between are appended at the end, and don't shift the following pages
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN, "Type", 5));
+
+        List<RelationshipResponse> all = new ArrayList<>(firstPage.getData());
+        String cursor = firstPage.getNextCursor();
+        List<Integer> pageSizes = new ArrayList<>();
+        while (cursor != null) {
+            CursorPage<RelationshipResponse> page = relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", TEST_SOURCE_URN,
+                                                                                                        cursor, 10, SortOrder.ASC);
+            pageSizes.add(page.getData()
+                              .size());
+            all.addAll(page.getData());
+            cursor = page.getNextCursor();
+        }
+
+        assertEquals(Arrays.asList(10, 10), pageSizes);
+        assertEquals(30, all.size());
+        Set<String> urns = new HashSet<>();
+        for (RelationshipResponse response : all) {
+            assertTrue(urns.add(response.getUrn()));
+        }
+    }
+
+    @Test
+    public void testFindAllForSourceAfterDescending() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN, "Type", 7));
+
+        List<RelationshipResponse> ascending = relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", TEST_SOURCE_URN, null, 10,
+                                                                                                   SortOrder.ASC)
+            .getData();
+
+        List<RelationshipResponse> descending = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<RelationshipResponse> page = relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", TEST_SOURCE_URN,
+                                                                                                        cursor, 3, SortOrder.DESC);
+            descending.addAll(page.getData());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Collections.reverse(descending);
+        assertEquals(ascending, descending);
+    }
+
+    @Test
+    public void testFindAllForTargetAfterReturnsEmptyPageIfNotFound() {
+
+        CursorPage<RelationshipResponse> page = relationshipPersistenceService.findAllForTargetAfter(accountUrn, "Thing",
+                                                                                                    "urn:thing:uuid:" + UuidUtil.getNewUuidAsString(),
+                                                                                                    null, null, null);
+
+        assertTrue(page.getData()
+                       .isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testFindByTypeForTargetAfterWithoutTenant() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String otherTenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+
+        List<RelationshipCreate> relationshipCreates = Arrays.asList(createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN),
+                                                                     createRelationship(TEST_SOURCE_URN, "Other Type", TEST_TARGET_URN));
+        relationshipPersistenceService.createAll(accountUrn, relationshipCreates);
+        relationshipPersistenceService.createAll(otherTenantUrn, relationshipCreates);
+
+        CursorPage<RelationshipResponse> firstPage = relationshipPersistenceService.findByTypeForTargetAfter(null, "Thing", TEST_TARGET_URN, "Type",
+                                                                                                            null, 1, null);
+        CursorPage<RelationshipResponse> secondPage = relationshipPersistenceService.findByTypeForTargetAfter(null, "Thing", TEST_TARGET_URN, "Type",
+                                                                                                             firstPage.getNextCursor(), 1, null);
+
+        assertEquals(1,
+                     firstPage.getData()
+                         .size());
+        assertEquals(1,
+                     secondPage.getData()
+                         .size());
+        assertNull(secondPage.getNextCursor());
+        assertNotEquals(firstPage.getData()
+                            .get(0)
+                            .getTenantUrn(),
+                        secondPage.getData()
+                            .get(0)
+                            .getTenantUrn());
+        assertEquals("Type",
+                     secondPage.getData()
+                         .get(0)
+                         .getRelationshipType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindAllForSourceAfterThrowsIllegalArgumentExceptionOnInvalidCursor() {
+
+        relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", "urn:thing:uuid:" + UuidUtil.getNewUuidAsString(), "invalid",
+                                                             null, null);
+    }
+
+    @Test
+    public void testFindAllForSourceInSliceMode() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN, "Type", 3));
+
+        Page<RelationshipResponse> firstPage = relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 2, null,
+                                                                                              null, PageMode.SLICE);
+        Page<RelationshipResponse> secondPage = relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 2, 2, null,
+                                                                                               null, PageMode.SLICE);
+
+        assertEquals(2,
+                     firstPage.getData()
+                         .size());
+        assertEquals(1,
+                     firstPage.getPage()
+                         .getNumber());
+        assertEquals(2,
+                     firstPage.getPage()
+                         .getTotalPages());
+        assertEquals(0,
+                     firstPage.getPage()
+                         .getTotalElements());
+
+        assertEquals(1,
+                     secondPage.getData()
+                         .size());
+        assertEquals(2,
+                     secondPage.getPage()
+                         .getNumber());
+        assertEquals(2,
+                     secondPage.getPage()
+                         .getTotalPages());
+    }
+
+    @Test
+    public void testFindByTypeForTargetInSliceModeWithoutTenant() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN));
+
+        Page<RelationshipResponse> page = relationshipPersistenceService.findByTypeForTarget(null, "Thing", TEST_TARGET_URN, "Type", null, null,
+                                                                                             null, null, PageMode.SLICE);
+
+        assertEquals(1,
+                     page.getData()
+                         .size());
+        assertEquals(1,
+                     page.getPage()
+                         .getTotalPages());
+    }
+
+    @Test
+    public void testStreamAllForSource() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        List<RelationshipResponse> created = relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN,
+                                                                                                                              "Type", 120))
+            .stream()
+            .map(RelationshipCreateResult::getRelationship)
+            .collect(Collectors.toList());
+
+        List<RelationshipResponse> streamed;
+        try (Stream<RelationshipResponse> stream = relationshipPersistenceService.streamAllForSource(accountUrn, "Thing", TEST_SOURCE_URN)) {
+            streamed = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(120, streamed.size());
+        assertEquals(new HashSet<>(created), new HashSet<>(streamed));
+    }
+
+    @Test
+    public void testStreamAllForTargetReturnsEmptyStreamIfNotFound() {
+
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        try (Stream<RelationshipResponse> stream = relationshipPersistenceService.streamAllForTarget(accountUrn, "Thing", TEST_TARGET_URN)) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamAllForSourceThrowsIllegalArgumentExceptionOnMalformedUrn() {
+
+        relationshipPersistenceService.streamAllForSource(accountUrn, "Thing", "malformedUrn");
+    }
+
+    @Test
+    public void testFindAllForSourcesGroupsBySource() {
+
+        final String TEST_SOURCE_URN_1 = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_SOURCE_URN_2 = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_SOURCE_URN_3 = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        List<String> created = relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN_1, "Type", 5))
+            .stream()
+            .map(result -> result.getRelationship()
+                .getUrn())
+            .collect(Collectors.toList());
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN_2, "Other", 2));
+
+        Map<String, List<RelationshipResponse>> relationships = relationshipPersistenceService
+            .findAllForSources(accountUrn, "Thing", Arrays.asList(TEST_SOURCE_URN_3, TEST_SOURCE_URN_1, TEST_SOURCE_URN_2), null, 3);
+
+        assertEquals(Arrays.asList(TEST_SOURCE_URN_3, TEST_SOURCE_URN_1, TEST_SOURCE_URN_2), new ArrayList<>(relationships.keySet()));
+        assertTrue(relationships.get(TEST_SOURCE_URN_3)
+                       .isEmpty());
+        assertEquals(created.subList(0, 3),
+                     relationships.get(TEST_SOURCE_URN_1)
+                         .stream()
+                         .map(RelationshipResponse::getUrn)
+                         .collect(Collectors.toList()));
+        assertEquals(2,
+                     relationships.get(TEST_SOURCE_URN_2)
+                         .size());
+
+        Map<String, List<RelationshipResponse>> ofType = relationshipPersistenceService
+            .findAllForSources(accountUrn, "Thing", Arrays.asList(TEST_SOURCE_URN_1, TEST_SOURCE_URN_2), "Other", null);
+
+        assertTrue(ofType.get(TEST_SOURCE_URN_1)
+                       .isEmpty());
+        assertEquals(2,
+                     ofType.get(TEST_SOURCE_URN_2)
+                         .size());
+    }
+
+    @Test
+    public void testFindAllForTargetsGroupsByTarget() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN_1 = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN_2 = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN_1));
+
+        Map<String, List<RelationshipResponse>> relationships = relationshipPersistenceService
+            .findAllForTargets(accountUrn, "Thing", Arrays.asList(TEST_TARGET_URN_1, TEST_TARGET_URN_2, TEST_TARGET_URN_1), null, null);
+
+        assertEquals(2, relationships.size());
+        assertEquals(TEST_SOURCE_URN,
+                     relationships.get(TEST_TARGET_URN_1)
+                         .get(0)
+                         .getSource()
+                         .getUrn());
+        assertTrue(relationships.get(TEST_TARGET_URN_2)
+                       .isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindAllForSourcesThrowsIllegalArgumentExceptionOnMalformedUrn() {
+
+        relationshipPersistenceService.findAllForSources(accountUrn, "Thing", Collections.singletonList("malformedUrn"), null, null);
+    }
+
+    @Test
+    public void testCountForSourceAndTargetFollowCreateAndDelete() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        assertEquals(0, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN));
+
+        String urn = relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN))
+            .get()
+            .getUrn();
+        assertFalse(relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN))
+                        .isPresent());
+        List<RelationshipCreate> batch = createRelationshipsForSource(TEST_SOURCE_URN, "Other", 3);
+        batch.add(createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN));
+        batch.add(batch.get(0));
+        relationshipPersistenceService.createAll(accountUrn, batch);
+
+        assertEquals(4, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN));
+        assertEquals(1, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Type"));
+        assertEquals(3, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Other"));
+        assertEquals(0, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Missing"));
+        assertEquals(1, relationshipPersistenceService.countForTarget(accountUrn, "Thing", TEST_TARGET_URN));
+        assertEquals(0, relationshipPersistenceService.countForTarget(accountUrn, "Thing", TEST_SOURCE_URN));
+
+        relationshipPersistenceService.delete(accountUrn, urn);
+        relationshipPersistenceService.delete(accountUrn, urn);
+
+        assertEquals(3, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN));
+        assertEquals(0, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Type"));
+        assertEquals(0, relationshipPersistenceService.countForTarget(accountUrn, "Thing", TEST_TARGET_URN, "Type"));
+    }
+
+    @Test
+    public void testCountForSourceWithConcurrentCreates() throws Exception {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<RelationshipResponse>>> futures = new ArrayList<>();
+            for (RelationshipCreate relationship : createRelationshipsForSource(TEST_SOURCE_URN, "Type", threads)) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return relationshipPersistenceService.create(accountUrn, relationship);
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<RelationshipResponse>> future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS)
+                               .isPresent());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Type"));
+    }
+
+    @Test
+    public void testExists() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN));
+
+        assertTrue(relationshipPersistenceService.exists(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type"));
+        assertFalse(relationshipPersistenceService.exists(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Other"));
+        assertFalse(relationshipPersistenceService.exists(accountUrn, "Thing", TEST_TARGET_URN, "Thing", TEST_SOURCE_URN, "Type"));
+        assertFalse(relationshipPersistenceService.exists(UuidUtil.getTenantUrnFromUuid(UUID.randomUUID()),
+                                                          "Thing",
+                                                          TEST_SOURCE_URN,
+                                                          "Thing",
+                                                          TEST_TARGET_URN,
+                                                          "Type"));
+    }
+
+    @Test
+    public void testExistsAllIsAlignedToInput() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        List<RelationshipCreate> created = createRelationshipsForSource(TEST_SOURCE_URN, "Type", 3);
+        relationshipPersistenceService.createAll(accountUrn, created);
+
+        List<RelationshipCreate> relationships = new ArrayList<>();
+        relationships.add(createRelationship(TEST_SOURCE_URN, "Type", "urn:thing:uuid:" + UuidUtil.getNewUuidAsString()));
+        relationships.add(created.get(1));
+        relationships.add(createRelationship(TEST_SOURCE_URN, "Other", created.get(0)
+            .getTarget()
+            .getUrn()));
+        relationships.add(created.get(0));
+        relationships.add(created.get(1));
+
+        BitSet exists = relationshipPersistenceService.existsAll(accountUrn, relationships);
+
+        assertEquals(BitSet.valueOf(new long[] { 0b11010 }), exists);
+        assertTrue(relationshipPersistenceService.existsAll(accountUrn, Collections.emptyList())
+                       .isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExistsThrowsIllegalArgumentExceptionOnMalformedUrn() {
+
+        relationshipPersistenceService.exists(accountUrn, "Thing", "malformedUrn", "Thing", "malformedUrn", "Type");
+    }
+
+    @Test
+    public void testFindByUrnIsCachedUntilDelete() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        String urn = relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN))
+            .get()
+            .getUrn();
+
+        long hitCount = relationshipCache.stats()
+            .hitCount();
+        assertTrue(relationshipPersistenceService.findByUrn(accountUrn, urn)
+                       .isPresent());
+        assertTrue(relationshipPersistenceService.findByUrn(accountUrn, urn)
+                       .isPresent());
+        assertTrue(relationshipPersistenceService.findSpecific(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type")
+                       .isPresent());
+        assertEquals(hitCount + 1,
+                     relationshipCache.stats()
+                         .hitCount());
+
+        relationshipPersistenceService.delete(accountUrn, urn);
+
+        assertFalse(relationshipPersistenceService.findByUrn(accountUrn, urn)
+                        .isPresent());
+        assertFalse(relationshipPersistenceService.findSpecific(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type")
+                        .isPresent());
+    }
+
+    @Test
+    public void testDeletedRelationshipIsNotCachedByConcurrentLookup() throws Exception {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        String urn = relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN))
+            .get()
+            .getUrn();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                relationshipPersistenceService.delete(accountUrn, urn);
+
+                // another thread still finds the relationship until the delete is committed, and caches it
+                try {
+                    assertTrue(executor.submit(() -> relationshipPersistenceService.findByUrn(accountUrn, urn)
+                        .isPresent())
+                                   .get(10, TimeUnit.SECONDS));
+                    assertTrue(executor.submit(() -> relationshipPersistenceService
+                        .findSpecific(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type")
+                        .isPresent())
+                                   .get(10, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(relationshipPersistenceService.findByUrn(accountUrn, urn)
+                        .isPresent());
+        assertFalse(relationshipPersistenceService.findSpecific(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type")
+                        .isPresent());
+    }
+
+    @Test
+    public void testAdjacencyPagesAreCachedUntilCreateOrDelete() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN));
+
+        long hitCount = adjacencyPageCache.stats()
+            .hitCount();
+        assertEquals(1,
+                     relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+        assertEquals(1,
+                     relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+        assertEquals(1,
+                     relationshipPersistenceService.findByTypeForTarget(accountUrn, "Thing", TEST_TARGET_URN, "Type", 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+        assertEquals(hitCount + 1,
+                     adjacencyPageCache.stats()
+                         .hitCount());
+
+        String urn = relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Other", TEST_TARGET_URN))
+            .get()
+            .getUrn();
+
+        assertEquals(2,
+                     relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+
+        relationshipPersistenceService.delete(accountUrn, urn);
+
+        assertEquals(1,
+                     relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+        assertEquals(1,
+                     relationshipPersistenceService.findByTypeForTarget(accountUrn, "Thing", TEST_TARGET_URN, "Type", 1, 10, SortOrder.ASC, "created")
+                         .getData()
+                         .size());
+    }
+
+    @Test
+    public void testFindersKeepNoSnapshotsAndDoNotFlush() {
+
+        final String TEST_SOURCE_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+        final String TEST_TARGET_URN = "urn:thing:uuid:" + UuidUtil.getNewUuidAsString();
+
+        String urn = relationshipPersistenceService.create(accountUrn, createRelationship(TEST_SOURCE_URN, "Type", TEST_TARGET_URN))
+            .get()
+            .getUrn();
+        relationshipPersistenceService.createAll(accountUrn, createRelationshipsForSource(TEST_SOURCE_URN, "Type", 4));
+        relationshipCache.invalidateAll();
+        adjacencyPageCache.invalidateAll();
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        AtomicInteger snapshots = new AtomicInteger();
+        PostLoadEventListener snapshotCounter = event -> {
+            if (!event.getSession()
+                .isReadOnly(event.getEntity())) {
+                snapshots.incrementAndGet();
+            }
+        };
+        sessionFactory.getServiceRegistry()
+            .getService(EventListenerRegistry.class)
+            .appendListeners(EventType.POST_LOAD, snapshotCounter);
+        Statistics statistics = sessionFactory.getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            assertTrue(relationshipPersistenceService.findByUrn(accountUrn, urn)
+                           .isPresent());
+            assertTrue(relationshipPersistenceService.findSpecific(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, "Type")
+                           .isPresent());
+            assertEquals(5,
+                         relationshipPersistenceService.findAllForSource(accountUrn, "Thing", TEST_SOURCE_URN, 1, 10, SortOrder.ASC, "created")
+                             .getData()
+                             .size());
+            assertEquals(5,
+                         relationshipPersistenceService.findByTypeForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Type", 1, 10, SortOrder.ASC,
+                                                                            "created", PageMode.SLICE)
+                             .getData()
+                             .size());
+            assertEquals(1,
+                         relationshipPersistenceService.findBetweenEntities(accountUrn, "Thing", TEST_SOURCE_URN, "Thing", TEST_TARGET_URN, 1, 10,
+                                                                            SortOrder.ASC, "created")
+                             .getData()
+                             .size());
+            assertEquals(5,
+                         relationshipPersistenceService.findAllForSourceAfter(accountUrn, "Thing", TEST_SOURCE_URN, null, 10, SortOrder.ASC)
+                             .getData()
+                             .size());
+            assertEquals(5,
+                         relationshipPersistenceService.findAllForSources(accountUrn, "Thing", Collections.singletonList(TEST_SOURCE_URN), null, null)
+                             .get(TEST_SOURCE_URN)
+                             .size());
+            assertTrue(relationshipPersistenceService.existsAll(accountUrn, Collections.singletonList(createRelationship(TEST_SOURCE_URN, "Type",
+                                                                                                                       TEST_TARGET_URN)))
+                           .get(0));
+            assertEquals(5, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN));
+            assertEquals(5, relationshipPersistenceService.countForSource(accountUrn, "Thing", TEST_SOURCE_URN, "Type"));
+
+            assertTrue(statistics.getEntityLoadCount() > 0);
+            assertEquals(0, snapshots.get());
+            assertEquals(0, statistics.getFlushCount());
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+            sessionFactory.getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .getEventListenerGroup(EventType.POST_LOAD)
+                .clear();
+        }
+    }
+
+    private List<RelationshipCreate> createRelationshipsForSource(String sourceUrn, String relationshipType, int count) {
+
+        List<RelationshipCreate> relationshipCreates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            relationshipCreates.add(createRelationship(sourceUrn, relationshipType, "urn:thing:uuid:" + UuidUtil.getNewUuidAsString()));
+        }
+        return relationshipCreates;
+    }
 }
@@ -0,0 +1,182 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.sql.DataSource;
+
+import org.junit.*;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+public class RelationshipScatterGatherServiceTest extends AbstractRelationshipPersistenceTest {
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+
+    @Autowired
+    RelationshipScatterGatherService relationshipScatterGatherService;
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    List<DataSourcePoolMetadataProvider> poolMetadataProviders;
+
+    @Test
+    public void thatConcurrencyMatchesConnectionPool() {
+
+        assertEquals(((org.apache.tomcat.jdbc.pool.DataSource) dataSource).getMaxActive(),
+                     relationshipScatterGatherService.getMaxConcurrency());
+    }
+
+    @Test
+    public void thatResultsAreGatheredInOrder() {
+
+        final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+        final String targetUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+        relationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn, "Type", targetUrn));
+
+        List<Function<RelationshipPersistenceService, Page<RelationshipResponse>>> calls = new ArrayList<>();
+        calls.add(dao -> dao.findAllForSource(accountUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created"));
+        calls.add(dao -> dao.findAllForTarget(accountUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created"));
+        calls.add(dao -> dao.findAllForTarget(accountUrn, "Thing", targetUrn, 1, 10, SortOrder.ASC, "created"));
+
+        List<Page<RelationshipResponse>> pages = relationshipScatterGatherService.gather(calls);
+
+        assertEquals(3, pages.size());
+        assertEquals(1, pages.get(0).getData().size());
+        assertTrue(pages.get(1).getData().isEmpty());
+        assertEquals(1, pages.get(2).getData().size());
+    }
+
+    @Test
+    public void thatRelationshipTypesAreFoundAtOnce() {
+
+        final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+        relationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn, "A", UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid())));
+        relationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn, "B", UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid())));
+        relationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn, "B", UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid())));
+
+        Map<String, Page<RelationshipResponse>> pages = relationshipScatterGatherService
+            .findByTypesForSource(accountUrn, "Thing", sourceUrn, Arrays.asList("B", "A", "C"), 1, 10, SortOrder.ASC, "created");
+
+        assertEquals(Arrays.asList("B", "A", "C"), new ArrayList<>(pages.keySet()));
+        assertEquals(2, pages.get("B").getData().size());
+        assertEquals(1, pages.get("A").getData().size());
+        assertTrue(pages.get("C").getData().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatFailureIsRethrown() {
+
+        relationshipScatterGatherService.gather(Arrays.<Function<RelationshipPersistenceService, Object>>asList(
+            dao -> dao.findByUrn(accountUrn, UuidUtil.getRelationshipUrnFromUuid(UuidUtil.getNewUuid())),
+            dao -> dao.findByUrn(accountUrn, "no-urn")));
+    }
+
+    @Test
+    public void thatConcurrencyIsBounded() throws Exception {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getScatterGather()
+            .setMaxConcurrency(2);
+        RelationshipScatterGatherService service = new RelationshipScatterGatherService(relationshipPersistenceService,
+                                                                                        properties,
+                                                                                        providerOf(dataSource),
+                                                                                        providerOf(poolMetadataProviders));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try {
+            List<Function<RelationshipPersistenceService, Integer>> calls = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                final int index = i;
+                calls.add(dao -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    bothStarted.countDown();
+                    try {
+                        // the first two calls only finish once both are running, so they must overlap
+                        bothStarted.await(10, TimeUnit.SECONDS);
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return index;
+                });
+            }
+
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), service.gather(calls));
+            assertEquals(2, maxRunning.get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void thatPermitsOfCancelledCallsAreReleased() throws Exception {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getScatterGather()
+            .setMaxConcurrency(4);
+        RelationshipScatterGatherService service = new RelationshipScatterGatherService(relationshipPersistenceService,
+                                                                                        properties,
+                                                                                        providerOf(dataSource),
+                                                                                        providerOf(poolMetadataProviders));
+        try {
+            for (int batch = 0; batch < 50; batch++) {
+                // the first call fails right away, so the calls submitted after it are likely cancelled before they start
+                List<Function<RelationshipPersistenceService, Object>> calls = new ArrayList<>();
+                calls.add(dao -> dao.findByUrn(accountUrn, "no-urn"));
+                for (int i = 0; i < 7; i++) {
+                    calls.add(dao -> dao.findByUrn(accountUrn, UuidUtil.getRelationshipUrnFromUuid(UuidUtil.getNewUuid())));
+                }
+                try {
+                    service.gather(calls);
+                    fail("Expected an IllegalArgumentException");
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+
+            // calls that already started may still be running
+            long deadline = System.currentTimeMillis() + 10000;
+            while (service.getAvailablePermits() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(4, service.getAvailablePermits());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> providerOf(T object) {
+
+        ObjectProvider<T> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable())
+            .thenReturn(object);
+        return provider;
+    }
+}
@@ -0,0 +1,212 @@
+package net.smartcosmos.dao.relationships.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.*;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipCreateResult;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindRelationshipPersistenceServiceTest extends AbstractRelationshipPersistenceTest {
+
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    @Autowired
+    WriteBehindRelationshipPersistenceService writeBehindRelationshipPersistenceService;
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    private final List<WriteBehindRelationshipPersistenceService> services = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @After
+    public void tearDown() throws Exception {
+
+        services.forEach(WriteBehindRelationshipPersistenceService::shutdown);
+    }
+
+    @Test
+    public void thatDisabledBufferWritesRightAway() throws Exception {
+
+        RelationshipCreateResult result = writeBehindRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn))
+            .getNow(null);
+
+        assertNotNull(result);
+        assertTrue(result.isCreated());
+        assertEquals(0, writeBehindRelationshipPersistenceService.getDepth());
+    }
+
+    @Test
+    public void thatFullBatchIsFlushed() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(100, 5, NEVER, 0);
+
+        List<CompletableFuture<RelationshipCreateResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(service.create(accountUrn, createRelationship(sourceUrn)));
+        }
+
+        for (CompletableFuture<RelationshipCreateResult> future : futures) {
+            assertTrue(future.get(10, TimeUnit.SECONDS)
+                           .isCreated());
+        }
+        assertEquals(5, relationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn));
+        assertEquals(1, service.getFlushCount());
+        assertEquals(5, service.getWrittenCount());
+        assertTrue(service.getMaxFlushTimeNanos() > 0);
+        assertEquals(1,
+                     meterRegistry.get(WriteBehindRelationshipPersistenceService.FLUSH)
+                         .timer()
+                         .count());
+    }
+
+    @Test
+    public void thatBufferIsFlushedAfterInterval() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(100, 100, 50, 0);
+
+        CompletableFuture<RelationshipCreateResult> future = service.create(accountUrn, createRelationship(sourceUrn));
+
+        assertTrue(future.get(10, TimeUnit.SECONDS)
+                       .isCreated());
+        assertEquals(0, service.getDepth());
+    }
+
+    @Test
+    public void thatDuplicatesAreCoalesced() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(100, 100, NEVER, 0);
+        RelationshipCreate relationship = createRelationship(sourceUrn);
+
+        CompletableFuture<RelationshipCreateResult> first = service.create(accountUrn, relationship);
+        CompletableFuture<RelationshipCreateResult> second = service.create(accountUrn, createRelationship(sourceUrn, "Type", relationship.getTarget()
+            .getUrn()));
+        assertEquals(1, service.getDepth());
+        assertEquals(1, service.getCoalescedCount());
+
+        service.flush();
+
+        assertTrue(first.get()
+                       .isCreated());
+        assertFalse(second.get()
+                        .isCreated());
+        assertEquals(first.get()
+                         .getRelationship(),
+                     second.get()
+                         .getRelationship());
+        assertEquals(1, relationshipRepository.count());
+    }
+
+    @Test
+    public void thatFullBufferRejectsCreates() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(2, 100, NEVER, 0);
+
+        CompletableFuture<RelationshipCreateResult> first = service.create(accountUrn, createRelationship(sourceUrn));
+        service.create(accountUrn, createRelationship(sourceUrn));
+        CompletableFuture<RelationshipCreateResult> rejected = service.create(accountUrn, createRelationship(sourceUrn));
+
+        assertEquals(2, service.getDepth());
+        assertEquals(2.0,
+                     meterRegistry.get(WriteBehindRelationshipPersistenceService.BUFFER_DEPTH)
+                         .gauge()
+                         .value(),
+                     0.0);
+        assertEquals(1, service.getRejectedCount());
+        try {
+            rejected.get();
+            fail("Expected a RejectedExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        service.flush();
+
+        assertTrue(first.isDone());
+        assertFalse(service.create(accountUrn, createRelationship(sourceUrn))
+                        .isCompletedExceptionally());
+        assertEquals(1, service.getDepth());
+    }
+
+    @Test
+    public void thatInvalidCreateOnlyFailsItself() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(100, 100, NEVER, 0);
+
+        CompletableFuture<RelationshipCreateResult> valid = service.create(accountUrn, createRelationship(sourceUrn));
+        CompletableFuture<RelationshipCreateResult> invalid = service.create(accountUrn, createRelationship("malformedUrn"));
+
+        service.flush();
+
+        assertTrue(valid.get()
+                       .isCreated());
+        try {
+            invalid.get();
+            fail("Expected an IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void thatShutdownFlushesBuffer() throws Exception {
+
+        WriteBehindRelationshipPersistenceService service = createService(100, 100, NEVER, 0);
+
+        CompletableFuture<RelationshipCreateResult> future = service.create(accountUrn, createRelationship(sourceUrn));
+        service.shutdown();
+
+        assertTrue(future.isDone());
+        assertTrue(future.get()
+                       .isCreated());
+        assertTrue(service.create(accountUrn, createRelationship(sourceUrn))
+                       .isCompletedExceptionally());
+    }
+
+    private WriteBehindRelationshipPersistenceService createService(int capacity, int batchSize, long flushIntervalMillis, long offerTimeoutMillis) {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        RelationshipPersistenceProperties.WriteBehind config = properties.getWriteBehind();
+        config.setEnabled(true);
+        config.setCapacity(capacity);
+        config.setBatchSize(batchSize);
+        config.setFlushIntervalMillis(flushIntervalMillis);
+        config.setOfferTimeoutMillis(offerTimeoutMillis);
+
+        WriteBehindRelationshipPersistenceService service = new WriteBehindRelationshipPersistenceService(relationshipPersistenceService,
+                                                                                                          properties,
+                                                                                                          providerOf(meterRegistry));
+        services.add(service);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> providerOf(T object) {
+
+        ObjectProvider<T> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable())
+            .thenReturn(object);
+        return provider;
+    }
+}
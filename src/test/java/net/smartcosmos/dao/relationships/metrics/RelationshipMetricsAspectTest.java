@@ -0,0 +1,140 @@
+package net.smartcosmos.dao.relationships.metrics;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+@SpringApplicationConfiguration(classes = RelationshipMetricsAspectTest.MeterRegistryConfig.class)
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.dao.relationships.metrics.tenant-tag=true",
+                   "smartcosmos.dao.relationships.metrics.hibernate-statistics=true" })
+public class RelationshipMetricsAspectTest extends AbstractRelationshipPersistenceTest {
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    public void thatOutcomesAreCounted() {
+
+        RelationshipCreate relationship = relationshipOfType("Owns");
+        RelationshipResponse created = relationshipPersistenceService.create(accountUrn, relationship)
+            .get();
+        relationshipPersistenceService.createOrGet(accountUrn, relationship);
+        relationshipPersistenceService.createAll(accountUrn, Arrays.asList(relationship, relationshipOfType("Owns"), relationshipOfType("Uses")));
+        relationshipPersistenceService.delete(accountUrn, created.getUrn());
+
+        assertEquals(1, countOutcomes("create", "Owns", "created"), 0);
+        assertEquals(1, countOutcomes("createOrGet", "Owns", "duplicate"), 0);
+        assertEquals(1, countOutcomes("createAll", "Owns", "duplicate"), 0);
+        assertEquals(1, countOutcomes("createAll", "Owns", "created"), 0);
+        assertEquals(1, countOutcomes("createAll", "Uses", "created"), 0);
+        assertEquals(1, countOutcomes("delete", "Owns", "deleted"), 0);
+    }
+
+    @Test
+    public void thatCallsAreTimedByOperationAndRelationshipType() {
+
+        relationshipPersistenceService.createAll(accountUrn, Arrays.asList(relationshipOfType("Owns"), relationshipOfType("Owns"),
+                                                                          relationshipOfType("Owns")));
+        relationshipPersistenceService.findByTypeForSource(accountUrn, "Thing", sourceUrn, "Owns", 2, 2, SortOrder.ASC, "created");
+
+        Timer timer = registry.find(RelationshipMetricsAspect.CALLS)
+            .tags("operation", "findByTypeForSource", "relationshipType", "Owns", "tenant", accountUrn, "exception", "none")
+            .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+
+        DistributionSummary returned = registry.find(RelationshipMetricsAspect.RETURNED)
+            .tags("operation", "findByTypeForSource", "relationshipType", "Owns")
+            .summary();
+        assertNotNull(returned);
+        assertEquals(1, returned.totalAmount(), 0);
+
+        DistributionSummary offset = registry.find(RelationshipMetricsAspect.OFFSET)
+            .tags("operation", "findByTypeForSource", "relationshipType", "Owns")
+            .summary();
+        assertNotNull(offset);
+        assertEquals(2, offset.totalAmount(), 0);
+    }
+
+    @Test
+    public void thatFailedCallsAreTimedWithException() {
+
+        try {
+            relationshipPersistenceService.findByUrn(accountUrn, "malformedUrn");
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Timer timer = registry.find(RelationshipMetricsAspect.CALLS)
+            .tags("operation", "findByUrn", "relationshipType", "none", "exception", "IllegalArgumentException")
+            .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    public void thatHibernateStatisticsAreExported() {
+
+        relationshipPersistenceService.create(accountUrn, relationshipOfType("Owns"));
+        relationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created");
+
+        FunctionCounter queries = registry.find("hibernate.query.executions")
+            .functionCounter();
+        assertNotNull(queries);
+        assertTrue(queries.count() > 0);
+    }
+
+    private double countOutcomes(String operation, String relationshipType, String outcome) {
+
+        return registry.find(RelationshipMetricsAspect.OUTCOMES)
+            .tags("operation", operation, "relationshipType", relationshipType, "outcome", outcome)
+            .counters()
+            .stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+
+    private RelationshipCreate relationshipOfType(String relationshipType) {
+
+        return createRelationship(sourceUrn, relationshipType, UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid()));
+    }
+
+    @Configuration
+    static class MeterRegistryConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+
+            return new SimpleMeterRegistry();
+        }
+    }
+}
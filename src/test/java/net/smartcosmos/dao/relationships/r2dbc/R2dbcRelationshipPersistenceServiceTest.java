@@ -0,0 +1,286 @@
+package net.smartcosmos.dao.relationships.r2dbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.junit.*;
+
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest.createRelationship;
+import static org.junit.Assert.*;
+
+/**
+ * Runs against H2 through r2dbc-h2, in the {@code r2dbc-test} execution of Surefire, since r2dbc-h2 needs a newer H2 than the JPA tests.
+ */
+public class R2dbcRelationshipPersistenceServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // the schema of the database migrations, with the column names of the production naming strategy
+    private static final String[] SCHEMA = {
+        "CREATE TABLE relationship (id BINARY(16) NOT NULL, tenantId BINARY(16) NOT NULL, sourceType VARCHAR(255) NOT NULL,"
+        + " sourceId BINARY(16) NOT NULL, relationshipType VARCHAR(255) NOT NULL, targetType VARCHAR(255) NOT NULL,"
+        + " targetId BINARY(16) NOT NULL, created TIMESTAMP, lastModified TIMESTAMP, PRIMARY KEY (id),"
+        + " CONSTRAINT relationship_unique UNIQUE (tenantId, sourceType, sourceId, relationshipType, targetType, targetId))",
+        "CREATE INDEX source_created_index ON relationship (tenantId, sourceType, sourceId, created, id)",
+        "CREATE INDEX target_created_index ON relationship (tenantId, targetType, targetId, created, id)",
+        "CREATE TABLE relationship_degree (tenantId BINARY(16) NOT NULL, endpoint VARCHAR(6) NOT NULL, endpointType VARCHAR(255) NOT NULL,"
+        + " endpointId BINARY(16) NOT NULL, relationshipType VARCHAR(255) NOT NULL, relationshipCount BIGINT NOT NULL,"
+        + " PRIMARY KEY (tenantId, endpoint, endpointType, endpointId, relationshipType))"
+    };
+
+    private final String accountUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private R2dbcRelationshipPersistenceService r2dbcRelationshipPersistenceService;
+
+    @Before
+    public void setUp() throws Exception {
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        Flux.usingWhen(connectionFactory.create(),
+                       connection -> Flux.fromArray(SCHEMA)
+                           .concatMap(sql -> Flux.from(connection.createStatement(sql)
+                                                           .execute())
+                               .concatMap(result -> result.getRowsUpdated())),
+                       Connection::close)
+            .blockLast(TIMEOUT);
+
+        r2dbcRelationshipPersistenceService = new R2dbcRelationshipPersistenceService(countingConnections(connectionFactory));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        awaitConnectionsClosed();
+    }
+
+    @Test
+    public void thatCreateSucceeds() {
+
+        RelationshipCreate create = createRelationship(sourceUrn);
+
+        RelationshipResponse response = r2dbcRelationshipPersistenceService.create(accountUrn, create)
+            .block(TIMEOUT);
+
+        assertNotNull(response);
+        assertTrue(response.getUrn()
+                       .startsWith("urn:relationship:uuid:"));
+        assertEquals(accountUrn, response.getTenantUrn());
+        assertEquals(sourceUrn, response.getSource()
+            .getUrn());
+        assertEquals(accountUrn, response.getSource()
+            .getTenantUrn());
+        assertEquals(create.getTarget()
+                         .getUrn(), response.getTarget()
+                         .getUrn());
+        assertEquals("Type", response.getRelationshipType());
+
+        assertEquals(response, r2dbcRelationshipPersistenceService.findByUrn(accountUrn, response.getUrn())
+            .block(TIMEOUT));
+        assertEquals(response, r2dbcRelationshipPersistenceService.findSpecific(accountUrn, "Thing", sourceUrn, "Thing", create.getTarget()
+            .getUrn(), "Type")
+            .block(TIMEOUT));
+        assertEquals(Long.valueOf(1), r2dbcRelationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn)
+            .block(TIMEOUT));
+        assertEquals(Long.valueOf(1), r2dbcRelationshipPersistenceService.countForTarget(accountUrn, "Thing", create.getTarget()
+            .getUrn())
+            .block(TIMEOUT));
+    }
+
+    @Test
+    public void thatCreateOfExistingRelationshipIsEmpty() {
+
+        RelationshipCreate create = createRelationship(sourceUrn);
+        assertNotNull(r2dbcRelationshipPersistenceService.create(accountUrn, create)
+                          .block(TIMEOUT));
+
+        assertNull(r2dbcRelationshipPersistenceService.create(accountUrn, create)
+                       .block(TIMEOUT));
+
+        assertEquals(Long.valueOf(1), r2dbcRelationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn)
+            .block(TIMEOUT));
+    }
+
+    @Test
+    public void thatRelationshipsOfSourceAreFoundInCreationOrder() {
+
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(r2dbcRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn))
+                            .block(TIMEOUT)
+                            .getUrn());
+        }
+
+        List<String> found = r2dbcRelationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn)
+            .limitRate(1)
+            .map(RelationshipResponse::getUrn)
+            .collectList()
+            .block(TIMEOUT);
+
+        assertEquals(created, found);
+        assertEquals(created, r2dbcRelationshipPersistenceService.findByTypeForSource(accountUrn, "Thing", sourceUrn, "Type")
+            .map(RelationshipResponse::getUrn)
+            .collectList()
+            .block(TIMEOUT));
+        assertTrue(r2dbcRelationshipPersistenceService.findByTypeForSource(accountUrn, "Thing", sourceUrn, "OtherType")
+                       .collectList()
+                       .block(TIMEOUT)
+                       .isEmpty());
+        assertEquals(Long.valueOf(5), r2dbcRelationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn)
+            .block(TIMEOUT));
+    }
+
+    @Test
+    public void thatRelationshipsOfTargetAreFound() {
+
+        RelationshipCreate create = createRelationship(sourceUrn);
+        String urn = r2dbcRelationshipPersistenceService.create(accountUrn, create)
+            .block(TIMEOUT)
+            .getUrn();
+        String targetUrn = create.getTarget()
+            .getUrn();
+
+        assertEquals(urn, r2dbcRelationshipPersistenceService.findAllForTarget(accountUrn, "Thing", targetUrn)
+            .single()
+            .block(TIMEOUT)
+            .getUrn());
+        assertEquals(urn, r2dbcRelationshipPersistenceService.findByTypeForTarget(accountUrn, "Thing", targetUrn, "Type")
+            .single()
+            .block(TIMEOUT)
+            .getUrn());
+        assertTrue(r2dbcRelationshipPersistenceService.findAllForTarget(UuidUtil.getTenantUrnFromUuid(UUID.randomUUID()), "Thing", targetUrn)
+                       .collectList()
+                       .block(TIMEOUT)
+                       .isEmpty());
+    }
+
+    @Test
+    public void thatDeleteSucceeds() {
+
+        RelationshipCreate create = createRelationship(sourceUrn);
+        RelationshipResponse created = r2dbcRelationshipPersistenceService.create(accountUrn, create)
+            .block(TIMEOUT);
+        r2dbcRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn))
+            .block(TIMEOUT);
+
+        List<RelationshipResponse> deleted = r2dbcRelationshipPersistenceService.delete(accountUrn, created.getUrn())
+            .collectList()
+            .block(TIMEOUT);
+
+        assertEquals(1, deleted.size());
+        assertEquals(created, deleted.get(0));
+        assertNull(r2dbcRelationshipPersistenceService.findByUrn(accountUrn, created.getUrn())
+                       .block(TIMEOUT));
+        assertEquals(Long.valueOf(1), r2dbcRelationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn)
+            .block(TIMEOUT));
+        assertEquals(Long.valueOf(0), r2dbcRelationshipPersistenceService.countForTarget(accountUrn, "Thing", create.getTarget()
+            .getUrn())
+            .block(TIMEOUT));
+
+        assertTrue(r2dbcRelationshipPersistenceService.delete(accountUrn, created.getUrn())
+                       .collectList()
+                       .block(TIMEOUT)
+                       .isEmpty());
+        assertEquals(Long.valueOf(1), r2dbcRelationshipPersistenceService.countForSource(accountUrn, "Thing", sourceUrn)
+            .block(TIMEOUT));
+    }
+
+    @Test
+    public void thatMalformedUrnIsPublishedAsError() {
+
+        Mono<RelationshipResponse> found = r2dbcRelationshipPersistenceService.findByUrn(accountUrn, "urn:relationship:uuid:malformed");
+
+        try {
+            found.block(TIMEOUT);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, openConnections.get());
+        }
+    }
+
+    @Test
+    public void thatConnectionIsClosedWhenCancelled() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            r2dbcRelationshipPersistenceService.create(accountUrn, createRelationship(sourceUrn))
+                .block(TIMEOUT);
+        }
+
+        List<String> found = r2dbcRelationshipPersistenceService.findAllForSource(accountUrn, "Thing", sourceUrn)
+            .take(2)
+            .map(RelationshipResponse::getUrn)
+            .collect(Collectors.toList())
+            .block(TIMEOUT);
+
+        assertEquals(2, found.size());
+        awaitConnectionsClosed();
+    }
+
+    private void awaitConnectionsClosed() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (openConnections.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, openConnections.get());
+    }
+
+    /**
+     * Wraps a connection factory, so that {@link #openConnections} counts the connections that were created and not closed yet.
+     */
+    private ConnectionFactory countingConnections(ConnectionFactory connectionFactory) {
+
+        return new ConnectionFactory() {
+
+            @Override
+            public Publisher<? extends Connection> create() {
+
+                return Mono.from(connectionFactory.create())
+                    .doOnNext(connection -> openConnections.incrementAndGet())
+                    .map(this::countingClose);
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+
+                return connectionFactory.getMetadata();
+            }
+
+            private Connection countingClose(Connection connection) {
+
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(connection, args);
+                        if ("close".equals(method.getName())) {
+                            return Mono.from((Publisher<?>) result)
+                                .doOnTerminate(openConnections::decrementAndGet);
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package net.smartcosmos.dao.relationships.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.PageMode;
+import net.smartcosmos.dao.relationships.ReadEngine;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.SortOrder;
+import net.smartcosmos.dao.relationships.domain.CursorPage;
+import net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.Page;
+import net.smartcosmos.dto.relationships.RelationshipCreate;
+import net.smartcosmos.dto.relationships.RelationshipReference;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the finders return the same results with the JDBC read engine as with the JPA read engine.
+ */
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.dao.relationships.cache.enabled=false",
+                   "smartcosmos.dao.relationships.page-cache.enabled=false" })
+public class RelationshipJdbcRepositoryTest extends AbstractRelationshipPersistenceTest {
+
+    private static final String[] SORT_BY = { null, "created", "relationshipType", "targetUrn", "urn", "unknownField" };
+
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String otherTenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+    private final String otherSourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+    private final String targetUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    private final List<RelationshipResponse> created = new ArrayList<>();
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    @Autowired
+    RelationshipPersistenceProperties properties;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Before
+    public void setUp() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            create(tenantUrn, sourceUrn, i % 2 == 0 ? "Owns" : "Uses", i % 3 == 0 ? "Device" : "Thing", thingUrn());
+        }
+        create(tenantUrn, sourceUrn, "Owns", "Thing", targetUrn);
+        create(tenantUrn, sourceUrn, "Uses", "Thing", targetUrn);
+        create(tenantUrn, otherSourceUrn, "Owns", "Thing", targetUrn);
+        create(otherTenantUrn, sourceUrn, "Owns", "Thing", targetUrn);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        properties.setReadEngine(ReadEngine.JPA);
+    }
+
+    @Test
+    public void thatFindByUrnMatches() {
+
+        for (RelationshipResponse relationship : created) {
+            assertEquals(relationship, assertParity(() -> relationshipPersistenceService.findByUrn(relationship.getTenantUrn(),
+                                                                                                  relationship.getUrn()))
+                .get());
+        }
+        assertFalse(assertParity(() -> relationshipPersistenceService.findByUrn(otherTenantUrn, created.get(0)
+            .getUrn())).isPresent());
+    }
+
+    @Test
+    public void thatFindSpecificMatches() {
+
+        assertTrue(assertParity(() -> relationshipPersistenceService.findSpecific(tenantUrn, "Thing", sourceUrn, "Thing", targetUrn, "Uses"))
+                       .isPresent());
+        assertFalse(assertParity(() -> relationshipPersistenceService.findSpecific(tenantUrn, "Thing", sourceUrn, "Device", targetUrn, "Uses"))
+                        .isPresent());
+    }
+
+    @Test
+    public void thatPagesMatch() {
+
+        for (PageMode pageMode : PageMode.values()) {
+            for (SortOrder sortOrder : SortOrder.values()) {
+                for (String sortBy : SORT_BY) {
+                    for (int page = 1; page <= 4; page++) {
+                        int p = page;
+                        assertParity(() -> relationshipPersistenceService.findAllForSource(tenantUrn, "Thing", sourceUrn, p, 3, sortOrder, sortBy,
+                                                                                           pageMode));
+                        assertParity(() -> relationshipPersistenceService.findAllForTarget(tenantUrn, "Thing", targetUrn, p, 1, sortOrder, sortBy,
+                                                                                           pageMode));
+                        assertParity(() -> relationshipPersistenceService.findByTypeForSource(tenantUrn, "Thing", sourceUrn, "Owns", p, 2,
+                                                                                              sortOrder, sortBy, pageMode));
+                        assertParity(() -> relationshipPersistenceService.findByTypeForTarget(tenantUrn, "Thing", targetUrn, "Owns", p, 1,
+                                                                                              sortOrder, sortBy, pageMode));
+                        assertParity(() -> relationshipPersistenceService.findBetweenEntities(tenantUrn, "Thing", sourceUrn, "Thing", targetUrn, p,
+                                                                                              1, sortOrder, sortBy, pageMode));
+                    }
+                }
+            }
+        }
+
+        Page<RelationshipResponse> page = assertParity(() -> relationshipPersistenceService.findAllForSource(tenantUrn, "Thing", sourceUrn, 2, 3,
+                                                                                                            SortOrder.ASC, "created"));
+        assertEquals(3, page.getData()
+            .size());
+        assertEquals(7, page.getPage()
+            .getTotalElements());
+    }
+
+    @Test
+    public void thatPagesOfAllTenantsMatch() {
+
+        Page<RelationshipResponse> page = assertParity(() -> relationshipPersistenceService.findByTypeForTarget("", "Thing", targetUrn, "Owns", 1,
+                                                                                                               10, SortOrder.DESC, "created"));
+        assertEquals(3, page.getData()
+            .size());
+        assertParity(() -> relationshipPersistenceService.findByTypeForSource(null, "Thing", sourceUrn, "Owns", 1, 2, SortOrder.ASC, "urn",
+                                                                             PageMode.SLICE));
+    }
+
+    @Test
+    public void thatCursorPagesMatch() {
+
+        for (SortOrder sortOrder : SortOrder.values()) {
+            List<RelationshipResponse> all = new ArrayList<>();
+            String cursor = null;
+            do {
+                String previous = cursor;
+                CursorPage<RelationshipResponse> page = assertParity(() -> relationshipPersistenceService.findAllForSourceAfter(tenantUrn, "Thing",
+                                                                                                                                sourceUrn, previous,
+                                                                                                                                2, sortOrder));
+                all.addAll(page.getData());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            assertEquals(7, all.size());
+        }
+
+        assertParity(() -> relationshipPersistenceService.findByTypeForTargetAfter(null, "Thing", targetUrn, "Owns", null, 2, SortOrder.ASC));
+        assertParity(() -> relationshipPersistenceService.findAllForTargetAfter(tenantUrn, "Thing", targetUrn, null, 10, null));
+    }
+
+    @Test
+    public void thatBulkFindersMatch() {
+
+        List<String> sourceUrns = Arrays.asList(otherSourceUrn, sourceUrn, thingUrn(), sourceUrn);
+        assertEquals(3, assertParity(() -> relationshipPersistenceService.findAllForSources(tenantUrn, "Thing", sourceUrns, null, 4))
+            .size());
+        assertParity(() -> relationshipPersistenceService.findAllForSources(tenantUrn, "Thing", sourceUrns, "Uses", null));
+        List<String> targetUrns = Arrays.asList(targetUrn, thingUrn());
+        assertParity(() -> relationshipPersistenceService.findAllForTargets(tenantUrn, "Thing", targetUrns, null, 2));
+    }
+
+    @Test
+    public void thatIdsAreFoundPacked() {
+
+        List<UUID> targetIds = created.stream()
+            .filter(relationship -> tenantUrn.equals(relationship.getTenantUrn()) && sourceUrn.equals(relationship.getSource()
+                                                                                                        .getUrn()))
+            .map(relationship -> UuidUtil.getUuidFromUrn(relationship.getTarget()
+                                                             .getUrn()))
+            .sorted()
+            .collect(Collectors.toList());
+        assertEquals(targetIds, unpack(relationshipPersistenceService.findTargetIdsForSource(tenantUrn, "Thing", sourceUrn, null)));
+        assertEquals(4, unpack(relationshipPersistenceService.findTargetIdsForSource(tenantUrn, "Thing", sourceUrn, "Owns")).size());
+
+        List<UUID> sourceIds = Arrays.asList(UuidUtil.getUuidFromUrn(sourceUrn), UuidUtil.getUuidFromUrn(sourceUrn),
+                                             UuidUtil.getUuidFromUrn(otherSourceUrn));
+        Collections.sort(sourceIds);
+        assertEquals(sourceIds, unpack(relationshipPersistenceService.findSourceIdsForTarget(tenantUrn, "Thing", targetUrn, null)));
+        assertEquals(0, relationshipPersistenceService.findSourceIdsForTarget(otherTenantUrn, "Thing", targetUrn, "Uses").length);
+    }
+
+    @Test
+    public void thatJdbcReadEngineLoadsNoEntities() {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            properties.setReadEngine(ReadEngine.JDBC);
+            long entityLoads = statistics.getEntityLoadCount();
+
+            relationshipPersistenceService.findByUrn(tenantUrn, created.get(0)
+                .getUrn());
+            relationshipPersistenceService.findAllForSource(tenantUrn, "Thing", sourceUrn, 1, 10, SortOrder.ASC, "created");
+            relationshipPersistenceService.findAllForTargetAfter(tenantUrn, "Thing", targetUrn, null, 10, SortOrder.ASC);
+            relationshipPersistenceService.findAllForSources(tenantUrn, "Thing", Arrays.asList(sourceUrn, otherSourceUrn), null, 10);
+
+            assertEquals(entityLoads, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+
+    /**
+     * Calls a finder with the JPA read engine and with the JDBC read engine, and checks that both return the same result.
+     */
+    private <T> T assertParity(Supplier<T> finder) {
+
+        properties.setReadEngine(ReadEngine.JPA);
+        T expected = finder.get();
+        properties.setReadEngine(ReadEngine.JDBC);
+        T actual = finder.get();
+
+        assertEquals(expected, actual);
+        return actual;
+    }
+
+    private static List<UUID> unpack(long[] ids) {
+
+        assertEquals(0, ids.length % 2);
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < ids.length; i += 2) {
+            uuids.add(new UUID(ids[i], ids[i + 1]));
+        }
+        Collections.sort(uuids);
+        return uuids;
+    }
+
+    private void create(String tenantUrn, String sourceUrn, String relationshipType, String targetType, String targetUrn) {
+
+        created.add(relationshipPersistenceService.create(tenantUrn, RelationshipCreate.builder()
+            .source(RelationshipReference.builder()
+                        .type("Thing")
+                        .urn(sourceUrn)
+                        .build())
+            .target(RelationshipReference.builder()
+                        .type(targetType)
+                        .urn(targetUrn)
+                        .build())
+            .relationshipType(relationshipType)
+            .build())
+                        .get());
+    }
+
+    private static String thingUrn() {
+
+        return UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+    }
+}
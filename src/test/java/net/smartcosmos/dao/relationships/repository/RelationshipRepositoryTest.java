@@ -1,22 +1,25 @@
 package net.smartcosmos.dao.relationships.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.*;
-import org.junit.runner.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.IntegrationTest;
-import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 
-import net.smartcosmos.dao.relationships.RelationshipPersistenceConfig;
-import net.smartcosmos.dao.relationships.RelationshipPersistenceTestApplication;
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
 import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.domain.RelationshipKey;
 import net.smartcosmos.util.UuidUtil;
 
 import static org.junit.Assert.*;
@@ -26,20 +29,13 @@ import static org.junit.Assert.*;
  * actually called. It's a minor setback with Spring, one that just requires some diligent
  * testing.tenantId
  */
-@RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = {
-    RelationshipPersistenceTestApplication.class,
-    RelationshipPersistenceConfig.class })
-@ActiveProfiles("test")
-@WebAppConfiguration
-@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false" })
-public class RelationshipRepositoryTest {
+public class RelationshipRepositoryTest extends AbstractRelationshipPersistenceTest {
 
     final String TEST_REFERENCE_TYPE = "Thing";
     final String TEST_RELATIONSHIP_TYPE = "Contains";
 
     @Autowired
-    RelationshipRepository relationshipRepository;
+    JdbcTemplate jdbcTemplate;
     final UUID tenantId = UUID.randomUUID();
     private UUID id;
     private UUID referenceId;
@@ -64,12 +60,6 @@ public class RelationshipRepositoryTest {
         id = entity.getId();
     }
 
-    @After
-    public void delete() throws Exception {
-
-        relationshipRepository.deleteAll();
-    }
-
     @Test
     public void findByTenantIdAndId() throws Exception {
 
@@ -163,6 +153,243 @@ public class RelationshipRepositoryTest {
         assertEquals(tenantId, entity.getTenantId());
     }
 
+    @Test
+    public void findSliceByTenantIdAndSourceTypeAndSourceId() {
+
+        Slice<RelationshipEntity> entitySlice = relationshipRepository.findSliceByTenantIdAndSourceTypeAndSourceId(
+            tenantId,
+            TEST_REFERENCE_TYPE,
+            referenceId,
+            new PageRequest(0, 1));
+
+        assertFalse(entitySlice.hasNext());
+        assertEquals(1, entitySlice.getNumberOfElements());
+        assertEquals(id,
+                     entitySlice.getContent()
+                         .get(0)
+                         .getId());
+    }
+
+    @Test
+    public void streamForSource() {
+
+        List<RelationshipEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .tenantId(tenantId)
+                             .sourceType(TEST_REFERENCE_TYPE)
+                             .sourceId(referenceId)
+                             .relationshipType("Other")
+                             .targetType(TEST_REFERENCE_TYPE)
+                             .targetId(UuidUtil.getNewUuid())
+                             .build());
+        }
+        relationshipRepository.insertAll(entities);
+
+        try (Stream<RelationshipEntity> stream = relationshipRepository.streamForSource(tenantId, TEST_REFERENCE_TYPE, referenceId, null, 10)) {
+            assertEquals(26, stream.count());
+        }
+
+        List<RelationshipEntity> streamed;
+        try (Stream<RelationshipEntity> stream = relationshipRepository.streamForSource(tenantId, TEST_REFERENCE_TYPE, referenceId,
+                                                                                      TEST_RELATIONSHIP_TYPE, 10)) {
+            streamed = stream.collect(Collectors.toList());
+        }
+        assertEquals(1, streamed.size());
+        assertEquals(id,
+                     streamed.get(0)
+                         .getId());
+    }
+
+    @Test
+    public void streamForTarget() {
+
+        try (Stream<RelationshipEntity> stream = relationshipRepository.streamForTarget(tenantId, TEST_REFERENCE_TYPE, relatedReferenceId, null,
+                                                                                       10)) {
+            assertEquals(1, stream.count());
+        }
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void thatDuplicateRelationshipViolatesUniqueConstraint() {
+
+        RelationshipEntity entity = RelationshipEntity.builder()
+            .tenantId(tenantId)
+            .sourceType(TEST_REFERENCE_TYPE)
+            .sourceId(referenceId)
+            .relationshipType(TEST_RELATIONSHIP_TYPE)
+            .targetType(TEST_REFERENCE_TYPE)
+            .targetId(relatedReferenceId)
+            .build();
+
+        relationshipRepository.saveAndFlush(entity);
+    }
+
+    @Test
+    public void findAllByKeys() {
+
+        RelationshipKey existingKey = RelationshipKey.of(tenantId, TEST_REFERENCE_TYPE, referenceId, TEST_RELATIONSHIP_TYPE,
+                                                         TEST_REFERENCE_TYPE, relatedReferenceId);
+        RelationshipKey missingKey = RelationshipKey.of(tenantId, TEST_REFERENCE_TYPE, referenceId, TEST_RELATIONSHIP_TYPE,
+                                                        TEST_REFERENCE_TYPE, UuidUtil.getNewUuid());
+
+        List<RelationshipEntity> entities = relationshipRepository.findAllByKeys(tenantId, Arrays.asList(existingKey, missingKey));
+
+        assertEquals(1, entities.size());
+        assertEquals(id,
+                     entities.get(0)
+                         .getId());
+    }
+
+    @Test
+    public void findAllByKeysReturnsPaddedKeyOnce() {
+
+        RelationshipKey otherTypeKey = RelationshipKey.of(tenantId, TEST_REFERENCE_TYPE, referenceId, "otherType",
+                                                          TEST_REFERENCE_TYPE, relatedReferenceId);
+        RelationshipKey missingKey = RelationshipKey.of(tenantId, TEST_REFERENCE_TYPE, UuidUtil.getNewUuid(), TEST_RELATIONSHIP_TYPE,
+                                                        TEST_REFERENCE_TYPE, relatedReferenceId);
+        // the last of three keys is repeated to pad the chunk to four
+        RelationshipKey existingKey = RelationshipKey.of(tenantId, TEST_REFERENCE_TYPE, referenceId, TEST_RELATIONSHIP_TYPE,
+                                                         TEST_REFERENCE_TYPE, relatedReferenceId);
+
+        List<RelationshipEntity> entities = relationshipRepository.findAllByKeys(tenantId, Arrays.asList(otherTypeKey, missingKey, existingKey));
+
+        assertEquals(1, entities.size());
+        assertEquals(id,
+                     entities.get(0)
+                         .getId());
+    }
+
+    @Test
+    public void insertAll() {
+
+        List<RelationshipEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 75; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .tenantId(tenantId)
+                             .sourceType(TEST_REFERENCE_TYPE)
+                             .sourceId(referenceId)
+                             .relationshipType(TEST_RELATIONSHIP_TYPE)
+                             .targetType(TEST_REFERENCE_TYPE)
+                             .targetId(UuidUtil.getNewUuid())
+                             .build());
+        }
+
+        List<RelationshipEntity> inserted = relationshipRepository.insertAll(entities);
+
+        assertEquals(entities.size(), inserted.size());
+        for (RelationshipEntity entity : inserted) {
+            assertNotNull(entity.getId());
+            assertNotNull(entity.getCreated());
+        }
+        assertEquals(entities.size() + 1,
+                     relationshipRepository.findByTenantIdAndSourceTypeAndSourceId(tenantId, TEST_REFERENCE_TYPE, referenceId, new PageRequest(0, 1))
+                         .getTotalElements());
+    }
+
+    @Test
+    public void thatGeneratedIdsIncrease() {
+
+        List<RelationshipEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .tenantId(tenantId)
+                             .sourceType(TEST_REFERENCE_TYPE)
+                             .sourceId(referenceId)
+                             .relationshipType(TEST_RELATIONSHIP_TYPE)
+                             .targetType(TEST_REFERENCE_TYPE)
+                             .targetId(UuidUtil.getNewUuid())
+                             .build());
+        }
+
+        UUID previous = id;
+        for (RelationshipEntity entity : relationshipRepository.insertAll(entities)) {
+            assertTrue(Long.compareUnsigned(entity.getId()
+                                                .getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = entity.getId();
+        }
+    }
+
+    @Test
+    public void findForSources() {
+
+        List<RelationshipEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entities.add(RelationshipEntity.builder()
+                             .tenantId(tenantId)
+                             .sourceType(TEST_REFERENCE_TYPE)
+                             .sourceId(relatedReferenceId)
+                             .relationshipType(TEST_RELATIONSHIP_TYPE)
+                             .targetType(TEST_REFERENCE_TYPE)
+                             .targetId(UuidUtil.getNewUuid())
+                             .build());
+        }
+        List<UUID> ids = relationshipRepository.insertAll(entities)
+            .stream()
+            .map(RelationshipEntity::getId)
+            .collect(Collectors.toList());
+
+        Map<UUID, List<RelationshipEntity>> found = relationshipRepository.findForSources(tenantId,
+                                                                                          TEST_REFERENCE_TYPE,
+                                                                                          Arrays.asList(relatedReferenceId,
+                                                                                                        UuidUtil.getNewUuid(),
+                                                                                                        referenceId),
+                                                                                          null,
+                                                                                          2);
+
+        assertEquals(Arrays.asList(relatedReferenceId, referenceId), new ArrayList<>(found.keySet()));
+        assertEquals(ids.subList(0, 2),
+                     found.get(relatedReferenceId)
+                         .stream()
+                         .map(RelationshipEntity::getId)
+                         .collect(Collectors.toList()));
+        assertEquals(id,
+                     found.get(referenceId)
+                         .get(0)
+                         .getId());
+        assertTrue(relationshipRepository.findForTargets(tenantId, TEST_REFERENCE_TYPE, Arrays.asList(relatedReferenceId), "Other", 2)
+                       .isEmpty());
+    }
+
+    @Test
+    public void findExistingKeys() {
+
+        RelationshipKey existing = RelationshipKey.of(tenantId,
+                                                      TEST_REFERENCE_TYPE,
+                                                      referenceId,
+                                                      TEST_RELATIONSHIP_TYPE,
+                                                      TEST_REFERENCE_TYPE,
+                                                      relatedReferenceId);
+        RelationshipKey otherType = RelationshipKey.of(tenantId,
+                                                       TEST_REFERENCE_TYPE,
+                                                       referenceId,
+                                                       "Other",
+                                                       TEST_REFERENCE_TYPE,
+                                                       relatedReferenceId);
+        RelationshipKey reversed = RelationshipKey.of(tenantId,
+                                                      TEST_REFERENCE_TYPE,
+                                                      relatedReferenceId,
+                                                      TEST_RELATIONSHIP_TYPE,
+                                                      TEST_REFERENCE_TYPE,
+                                                      referenceId);
+
+        assertEquals(Collections.singleton(existing), relationshipRepository.findExistingKeys(tenantId, Arrays.asList(existing, otherType, reversed)));
+        assertTrue(relationshipRepository.findExistingKeys(UUID.randomUUID(), Collections.singletonList(existing))
+                       .isEmpty());
+    }
+
+    @Test
+    public void padToPowerOfTwo() {
+
+        assertEquals(Collections.emptyList(), RelationshipRepositoryImpl.padToPowerOfTwo(Collections.emptyList()));
+        assertEquals(Arrays.asList(1), RelationshipRepositoryImpl.padToPowerOfTwo(Arrays.asList(1)));
+        assertEquals(Arrays.asList(1, 2, 3, 3), RelationshipRepositoryImpl.padToPowerOfTwo(Arrays.asList(1, 2, 3)));
+        assertEquals(Arrays.asList(1, 2, 3, 4), RelationshipRepositoryImpl.padToPowerOfTwo(Arrays.asList(1, 2, 3, 4)));
+        assertEquals(8,
+                     RelationshipRepositoryImpl.padToPowerOfTwo(Arrays.asList(1, 2, 3, 4, 5))
+                         .size());
+    }
+
     @Test
     public void deleteByTenantIdAndId() {
 
@@ -175,4 +402,44 @@ public class RelationshipRepositoryTest {
         assertEquals(id, entity.getId());
         assertEquals(tenantId, entity.getTenantId());
     }
+
+    @Test
+    public void thatEveryFinderUsesAnIndex() {
+
+        // the conditions of the derived queries, as Hibernate generates them for the test schema, and the columns that must be looked up
+        // in an index; H2 may pick any index that matches them, e.g. the source index or the unique constraint
+        assertIndexLookup("tenant_id = ? AND id = ?", "id");
+        assertIndexLookup("tenant_id = ? AND source_type = ? AND source_id = ? AND relationship_type = ? AND target_type = ? AND target_id = ?",
+                          "tenant_id", "source_type", "source_id");
+        assertIndexLookup("tenant_id = ? AND source_type = ? AND source_id = ? AND relationship_type = ?",
+                          "tenant_id", "source_type", "source_id", "relationship_type");
+        assertIndexLookup("source_type = ? AND source_id = ? AND relationship_type = ?", "source_type", "source_id", "relationship_type");
+        assertIndexLookup("tenant_id = ? AND target_type = ? AND target_id = ? AND relationship_type = ?",
+                          "tenant_id", "target_type", "target_id", "relationship_type");
+        assertIndexLookup("target_type = ? AND target_id = ? AND relationship_type = ?", "target_type", "target_id", "relationship_type");
+        assertIndexLookup("tenant_id = ? AND source_type = ? AND source_id = ? AND target_type = ? AND target_id = ?",
+                          "tenant_id", "source_type", "source_id");
+        assertIndexLookup("tenant_id = ? AND source_type = ? AND source_id = ?", "tenant_id", "source_type", "source_id");
+        assertIndexLookup("tenant_id = ? AND target_type = ? AND target_id = ?", "tenant_id", "target_type", "target_id");
+        assertIndexLookup("tenant_id = ? AND source_type = ? AND source_id IN (?, ?, ?, ?)", "tenant_id", "source_type");
+        assertIndexLookup("tenant_id = ? AND target_type = ? AND target_id IN (?, ?) AND relationship_type = ?", "tenant_id", "target_type");
+    }
+
+    private void assertIndexLookup(String condition, String... indexedColumns) {
+
+        // any value will do, since the plan is chosen by the indexed columns ("00" is valid for both the UUID and the string columns)
+        Object[] parameters = new Object[condition.length() - condition.replace("?", "").length()];
+        Arrays.fill(parameters, "00");
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT * FROM relationship WHERE " + condition, String.class, parameters);
+
+        // H2 describes the chosen index and its lookup conditions in a comment, e.g. /* PUBLIC.SOURCE_TYPE_INDEX: SOURCE_ID = ?3 ... */
+        assertFalse(plan, plan.contains("tableScan"));
+        int indexStart = plan.indexOf("/* PUBLIC.");
+        assertTrue(plan, indexStart >= 0);
+        String index = plan.substring(indexStart, plan.indexOf("*/", indexStart));
+        for (String column : indexedColumns) {
+            assertTrue(plan, index.contains(column.toUpperCase() + " = "));
+        }
+    }
 }
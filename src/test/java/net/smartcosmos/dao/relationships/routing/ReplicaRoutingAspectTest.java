@@ -0,0 +1,118 @@
+package net.smartcosmos.dao.relationships.routing;
+
+import java.util.Collections;
+import java.util.UUID;
+import javax.sql.DataSource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.*;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import net.smartcosmos.dao.relationships.AbstractRelationshipPersistenceTest;
+import net.smartcosmos.dao.relationships.RelationshipPersistenceProperties;
+import net.smartcosmos.dao.relationships.domain.RelationshipEntity;
+import net.smartcosmos.dao.relationships.impl.RelationshipPersistenceService;
+import net.smartcosmos.dao.relationships.util.UuidUtil;
+import net.smartcosmos.dto.relationships.RelationshipResponse;
+
+import static org.junit.Assert.*;
+
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.dao.relationships.cache.enabled=false",
+                   "smartcosmos.dao.relationships.page-cache.enabled=false",
+                   "smartcosmos.dao.relationships.replicas.urls[0]=jdbc:h2:mem:relationship-replica;DB_CLOSE_DELAY=-1",
+                   "smartcosmos.dao.relationships.replicas.read-your-writes-millis=60000" })
+public class ReplicaRoutingAspectTest extends AbstractRelationshipPersistenceTest {
+
+    private static boolean replicaSchemaCreated;
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+    private final String sourceUrn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+
+    @Autowired
+    RelationshipPersistenceService relationshipPersistenceService;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+
+        if (!replicaSchemaCreated) {
+            // the replica is an empty copy of the schema that Hibernate created in the primary database, and never receives any data
+            ReplicaRoutingDataSource routingDataSource = (ReplicaRoutingDataSource) dataSource;
+            JdbcTemplate replica = new JdbcTemplate(routingDataSource.getReplicas()
+                                                        .get(0));
+            for (String statement : new JdbcTemplate(routingDataSource.getPrimary()).queryForList("SCRIPT NODATA", String.class)) {
+                if (!statement.startsWith("--")) {
+                    replica.execute(statement);
+                }
+            }
+            replicaSchemaCreated = true;
+        }
+    }
+
+    @Test
+    public void thatFindersReadFromReplica() {
+
+        RelationshipEntity entity = relationshipRepository.insertAll(Collections.singletonList(RelationshipEntity.builder()
+                                                                                                   .tenantId(tenantId)
+                                                                                                   .sourceType("Thing")
+                                                                                                   .sourceId(UuidUtil.getUuidFromUrn(sourceUrn))
+                                                                                                   .relationshipType("Type")
+                                                                                                   .targetType("Thing")
+                                                                                                   .targetId(UuidUtil.getNewUuid())
+                                                                                                   .build()))
+            .get(0);
+        String urn = UuidUtil.getRelationshipUrnFromUuid(entity.getId());
+
+        assertTrue(relationshipRepository.exists(entity.getId()));
+        assertFalse(relationshipPersistenceService.findByUrn(tenantUrn, urn)
+                        .isPresent());
+        assertEquals(0, relationshipPersistenceService.countForSource(tenantUrn, "Thing", sourceUrn));
+        assertFalse(ReplicaRoutingDataSource.isUsingReplica());
+    }
+
+    @Test
+    public void thatTenantReadsOwnWritesFromPrimary() {
+
+        RelationshipResponse created = relationshipPersistenceService.create(tenantUrn, createRelationship(sourceUrn))
+            .get();
+
+        assertTrue(relationshipRepository.exists(UuidUtil.getUuidFromUrn(created.getUrn())));
+        assertTrue(relationshipPersistenceService.findByUrn(tenantUrn, created.getUrn())
+                       .isPresent());
+        assertEquals(1, relationshipPersistenceService.countForSource(tenantUrn, "Thing", sourceUrn));
+    }
+
+    @Test
+    public void thatReadYourWritesWindowExpires() throws Throwable {
+
+        RelationshipPersistenceProperties properties = new RelationshipPersistenceProperties();
+        properties.getReplicas()
+            .getUrls()
+            .add("jdbc:h2:mem:relationship-replica");
+        properties.getReplicas()
+            .setReadYourWritesMillis(100);
+        ReplicaRoutingAspect aspect = new ReplicaRoutingAspect(properties);
+
+        ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+        Mockito.when(joinPoint.getArgs())
+            .thenReturn(new Object[] { tenantUrn });
+        Mockito.when(joinPoint.proceed())
+            .thenAnswer(invocation -> ReplicaRoutingDataSource.isUsingReplica());
+
+        assertEquals(true, aspect.routeFinder(joinPoint));
+        assertEquals(false, aspect.routeWrite(joinPoint));
+        assertEquals(false, aspect.routeFinder(joinPoint));
+
+        Thread.sleep(200);
+
+        assertEquals(true, aspect.routeFinder(joinPoint));
+        assertFalse(ReplicaRoutingDataSource.isUsingReplica());
+    }
+}
@@ -0,0 +1,101 @@
+package net.smartcosmos.dao.relationships.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.sql.DataSource;
+
+import org.junit.*;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import net.smartcosmos.dao.relationships.ReplicaBalancing;
+
+import static org.junit.Assert.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = h2("primary");
+    private final DataSource replica1 = h2("replica1");
+    private final DataSource replica2 = h2("replica2");
+
+    @After
+    public void tearDown() throws Exception {
+
+        ReplicaRoutingDataSource.useReplica(false);
+    }
+
+    @Test
+    public void thatPrimaryIsUsedByDefault() throws Exception {
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), ReplicaBalancing.ROUND_ROBIN);
+
+        assertEquals("primary", getDatabase(dataSource));
+        assertEquals("primary", getDatabase(dataSource));
+    }
+
+    @Test
+    public void thatReplicasAreUsedInTurn() throws Exception {
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), ReplicaBalancing.ROUND_ROBIN);
+
+        assertFalse(ReplicaRoutingDataSource.useReplica(true));
+        assertEquals("replica1", getDatabase(dataSource));
+        assertEquals("replica2", getDatabase(dataSource));
+        assertEquals("replica1", getDatabase(dataSource));
+
+        assertTrue(ReplicaRoutingDataSource.useReplica(false));
+        assertEquals("primary", getDatabase(dataSource));
+    }
+
+    @Test
+    public void thatLeastLoadedReplicaIsUsed() throws Exception {
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), ReplicaBalancing.LEAST_LOADED);
+        ReplicaRoutingDataSource.useReplica(true);
+
+        try (Connection first = dataSource.getConnection()) {
+            assertEquals("replica1", getDatabase(first));
+            dataSource.getConnection()
+                .close();
+            // it is the turn of replica1 again, but it is busier
+            try (Connection second = dataSource.getConnection()) {
+                assertEquals("replica2", getDatabase(second));
+            }
+        }
+    }
+
+    @Test
+    public void thatPrimaryIsUsedIfReplicaFails() throws Exception {
+
+        DriverManagerDataSource broken = new DriverManagerDataSource("jdbc:unknown:broken");
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Collections.singletonList(broken), ReplicaBalancing.ROUND_ROBIN);
+        ReplicaRoutingDataSource.useReplica(true);
+
+        assertEquals("primary", getDatabase(dataSource));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatReplicaIsRequired() {
+
+        new ReplicaRoutingDataSource(primary, Collections.emptyList(), ReplicaBalancing.ROUND_ROBIN);
+    }
+
+    private static String getDatabase(DataSource dataSource) throws SQLException {
+
+        try (Connection connection = dataSource.getConnection()) {
+            return getDatabase(connection);
+        }
+    }
+
+    private static String getDatabase(Connection connection) throws SQLException {
+
+        return connection.getCatalog()
+            .toLowerCase();
+    }
+
+    private static DataSource h2(String database) {
+
+        return new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,41 @@
+package net.smartcosmos.dao.relationships.util;
+
+import java.util.UUID;
+
+import org.junit.*;
+
+import net.smartcosmos.dao.relationships.domain.RelationshipCursor;
+
+import static org.junit.Assert.*;
+
+public class CursorUtilTest {
+
+    @Test
+    public void encodeAndDecode() throws Exception {
+
+        final RelationshipCursor cursor = RelationshipCursor.of(1476741600123L, UUID.randomUUID());
+
+        String token = CursorUtil.encode(cursor);
+
+        assertEquals(cursor, CursorUtil.decode(token));
+    }
+
+    @Test
+    public void decodeBlankToken() throws Exception {
+
+        assertNull(CursorUtil.decode(null));
+        assertNull(CursorUtil.decode(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeInvalidToken() throws Exception {
+
+        CursorUtil.decode("this-is-no-valid-cursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeMalformedBase64() throws Exception {
+
+        CursorUtil.decode("%%%");
+    }
+}
@@ -0,0 +1,56 @@
+package net.smartcosmos.dao.relationships.util;
+
+import org.junit.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import net.smartcosmos.dao.relationships.SortOrder;
+
+import static org.junit.Assert.*;
+
+public class PageableUtilTest {
+
+    @Test
+    public void thatDefaultSortMatchesCreatedIndexes() {
+
+        Pageable pageable = PageableUtil.buildPageable(null, null, null, null);
+
+        assertEquals(0, pageable.getPageNumber());
+        assertEquals(20, pageable.getPageSize());
+        assertEquals(new Sort(Sort.DEFAULT_DIRECTION, "created", "id"), pageable.getSort());
+    }
+
+    @Test
+    public void thatRelationshipTypeSortMatchesTypeIndexes() {
+
+        Pageable pageable = PageableUtil.buildPageable(2, 10, SortOrder.DESC, "RELATIONSHIPTYPE");
+
+        assertEquals(1, pageable.getPageNumber());
+        assertEquals(new Sort(Sort.Direction.DESC, "relationshipType", "created", "id"), pageable.getSort());
+    }
+
+    @Test
+    public void thatOtherSortIsNotExtended() {
+
+        assertEquals(new Sort(Sort.Direction.ASC, "targetType"),
+                     PageableUtil.buildPageable(1, 10, SortOrder.ASC, "targettype")
+                         .getSort());
+        assertEquals(new Sort(Sort.Direction.ASC, "id"),
+                     PageableUtil.buildPageable(1, 10, SortOrder.ASC, "urn")
+                         .getSort());
+    }
+
+    @Test
+    public void thatUnknownSortFieldFallsBackToId() {
+
+        assertEquals(new Sort(Sort.Direction.ASC, "id"),
+                     PageableUtil.buildPageable(1, 10, SortOrder.ASC, "noSuchField")
+                         .getSort());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatPageBelowOneIsRejected() {
+
+        PageableUtil.buildPageable(0, 10, SortOrder.ASC, "created");
+    }
+}
@@ -40,6 +40,90 @@ public class UuidUtilTest {
         UuidUtil.getUuidFromUrn(urn);
     }
 
+    @Test
+    public void getUuidFromUpperCaseUrn() throws Exception {
+
+        final String expectedUuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        final String urn = "URN:THING:UUID:" + expectedUuid.toUpperCase();
+
+        UUID uuid = UuidUtil.getUuidFromUrn(urn);
+
+        assertEquals(expectedUuid, uuid.toString());
+    }
+
+    @Test
+    public void getUuidFromUrnWithEmptyPrefix() throws Exception {
+
+        final String expectedUuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        final String urn = "urn::uuid:" + expectedUuid;
+
+        UUID uuid = UuidUtil.getUuidFromUrn(urn);
+
+        assertEquals(expectedUuid, uuid.toString());
+    }
+
+    @Test
+    public void getUuidFromUrnWithNestedPrefix() throws Exception {
+
+        final String expectedUuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        final String urn = "urn:thing:uuid:00000000-0000-0000-0000-000000000000:uuid:" + expectedUuid;
+
+        UUID uuid = UuidUtil.getUuidFromUrn(urn);
+
+        assertEquals(expectedUuid, uuid.toString());
+    }
+
+    @Test
+    public void getUuidFromUrnWithTrailingLineTerminator() throws Exception {
+
+        final String expectedUuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+
+        assertEquals(expectedUuid, UuidUtil.getUuidFromUrn("urn:thing:uuid:" + expectedUuid + "\n").toString());
+        assertEquals(expectedUuid, UuidUtil.getUuidFromUrn("urn:thing:uuid:" + expectedUuid + "\r\n").toString());
+        assertEquals(expectedUuid, UuidUtil.getUuidFromUrn("urn:thing:uuid:" + expectedUuid + "\u2028").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromUrnWithTwoTrailingLineTerminators() throws Exception {
+
+        final String urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b413\n\n";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromUrnWithLineTerminatorInPrefix() throws Exception {
+
+        final String urn = "urn:th\ning:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromUrnWithInvalidHexDigit() throws Exception {
+
+        final String urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b41g";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromUrnWithMisplacedHyphen() throws Exception {
+
+        final String urn = "urn:thing:uuid:8e24eab-d1be9-46ac-8c7d-1e753746b413";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromUrnWithoutUuidType() throws Exception {
+
+        final String urn = "urn:thing:8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromEmptyUrn() throws Exception {
+
+        UuidUtil.getUuidFromUrn("");
+    }
+
     @Test
     public void getThingUrnFromUuid() throws Exception {
 
@@ -72,4 +156,57 @@ public class UuidUtilTest {
 
         assertEquals(expectedUrn, urn);
     }
+
+    @Test
+    public void getTenantUrnFromUuidIsCached() throws Exception {
+
+        final UUID uuid = UUID.fromString("8e24eabd-1be9-46ac-8c7d-1e753746b413");
+
+        assertSame(UuidUtil.getTenantUrnFromUuid(uuid), UuidUtil.getTenantUrnFromUuid(uuid));
+    }
+
+    @Test
+    public void getPrefixUrnFromUuidLowerCasesPrefix() throws Exception {
+
+        final String uuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        final String expectedUrn = "urn:prefix:uuid:" + uuid;
+
+        String urn = UuidUtil.getPrefixUrnFromUuid("PreFix", UUID.fromString(uuid));
+
+        assertEquals(expectedUrn, urn);
+    }
+
+    @Test
+    public void getUuidFromFormattedUrn() throws Exception {
+
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = UUID.randomUUID();
+            assertEquals(uuid.toString(), UuidUtil.getThingUrnFromUuid(uuid).substring("urn:thing:uuid:".length()));
+            assertEquals(uuid, UuidUtil.getUuidFromUrn(UuidUtil.getThingUrnFromUuid(uuid)));
+        }
+    }
+
+    @Test
+    public void toTimeOrderedUuid() throws Exception {
+
+        // time_low 1be946ac, time_mid 8e24, version 1 and time_hi 1ea3
+        final UUID timeBasedUuid = UUID.fromString("1be946ac-8e24-11ea-8c7d-1e753746b413");
+
+        assertEquals("11ea8e24-1be9-46ac-8c7d-1e753746b413",
+                     UuidUtil.toTimeOrderedUuid(timeBasedUuid)
+                         .toString());
+    }
+
+    @Test
+    public void getNewUuidIsMonotonic() throws Exception {
+
+        UUID previous = UuidUtil.getNewUuid();
+        for (int i = 0; i < 10000; i++) {
+            UUID uuid = UuidUtil.getNewUuid();
+
+            // byte order, as in a BINARY(16) column
+            assertTrue(Long.compareUnsigned(uuid.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = uuid;
+        }
+    }
 }